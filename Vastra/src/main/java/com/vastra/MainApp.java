@@ -1,25 +1,126 @@
 package com.vastra;
 
+import com.vastra.dao.SalesDAO;
+import com.vastra.service.BarcodeImageService;
+import com.vastra.service.BillingService;
+import com.vastra.service.CustomerDirectory;
+import com.vastra.service.LabelPrintService;
+import com.vastra.service.LowStockTracker;
+import com.vastra.service.PrintSpooler;
+import com.vastra.service.ProductCatalogCache;
+import com.vastra.service.SaleWriter;
+import com.vastra.ui.controllers.MainController;
 import com.vastra.util.DBUtil;
+import com.vastra.util.MetricsServer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class MainApp extends Application {
 
-    public void start(Stage stage) throws Exception {
-        DBUtil.init();
+    public void start(Stage stage) {
+        MetricsServer.startInstance();
+        Stage splash = showSplash();
+
+        // Schema migrations and the catalog warm-up run while the window is built
+        CompletableFuture<Void> database = CompletableFuture.runAsync(() -> {
+            try {
+                DBUtil.init();
+                ProductCatalogCache.getInstance().load();
+                LowStockTracker.getInstance().load();
+                CustomerDirectory.getInstance().load();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, MainApp::startupThread);
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/vastra/ui/fxml/main.fxml"));
-        Scene scene = new Scene(loader.load());
-        stage.setTitle("Vastra");
-        stage.setScene(scene);
-        stage.setWidth(1000);
-        stage.setHeight(700);
-        stage.show();
+        CompletableFuture<Parent> ui = CompletableFuture.supplyAsync(() -> {
+            try {
+                return loader.<Parent>load();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, MainApp::startupThread);
+
+        ui.thenCombine(database, (root, ready) -> root).whenComplete((root, error) -> Platform.runLater(() -> {
+            splash.close();
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                cause.printStackTrace();
+                Alert alert = new Alert(Alert.AlertType.ERROR, "Vastra could not start: " + cause.getMessage());
+                alert.setTitle("Error");
+                alert.setHeaderText(null);
+                alert.showAndWait();
+                Platform.exit();
+                return;
+            }
+            stage.setTitle("Vastra");
+            stage.setScene(new Scene(root));
+            stage.setWidth(1000);
+            stage.setHeight(700);
+            stage.show();
+            loader.<MainController>getController().onShown(stage);
+        }));
+    }
+
+    private Stage showSplash() {
+        Label title = new Label("Vastra");
+        title.setStyle("-fx-font-size: 28px; -fx-font-weight: bold;");
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setPrefSize(40, 40);
+        VBox box = new VBox(16, title, progress, new Label("Opening the store..."));
+        box.setAlignment(Pos.CENTER);
+        box.setPadding(new Insets(32));
+
+        Stage splash = new Stage(StageStyle.UNDECORATED);
+        splash.setScene(new Scene(box, 320, 200));
+        splash.show();
+        return splash;
+    }
+
+    private static void startupThread(Runnable r) {
+        Thread t = new Thread(r, "startup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public void stop() {
+        BillingService.shutdownInstance();
+        SaleWriter.shutdownInstance();
+        // Receipts still queued are rendered from store settings, so before the pool closes
+        PrintSpooler.shutdownInstance();
+        LabelPrintService.shutdownInstance();
+        BarcodeImageService.shutdownInstance();
+        DBUtil.shutdown();
+        MetricsServer.shutdownInstance();
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Maintenance command: recompute the daily sales rollup without starting the UI
+        if (args.length > 0 && args[0].equals("--rebuild-daily-summary")) {
+            DBUtil.init();
+            long start = System.currentTimeMillis();
+            SalesDAO.rebuildDailySummary();
+            System.out.println("Daily sales summary rebuilt in " + (System.currentTimeMillis() - start) + " ms");
+            DBUtil.shutdown();
+            return;
+        }
         launch();
     }
 }
@@ -0,0 +1,20 @@
+package com.vastra.dao;
+
+import com.vastra.model.Customer;
+
+/**
+ * Notified by CustomerDAO after customer changes have been committed.
+ * Register with CustomerDAO.addChangeListener().
+ */
+public interface CustomerChangeListener {
+
+    /**
+     * A customer was added. The customer reflects the committed row.
+     */
+    void customerCreated(Customer customer);
+
+    /**
+     * Points for a customer changed by delta (negative when redeemed).
+     */
+    void pointsChanged(String customerId, int delta);
+}
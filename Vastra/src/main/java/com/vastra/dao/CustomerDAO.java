@@ -7,9 +7,22 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.UUID;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class CustomerDAO {
+
+    private static final List<CustomerChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public static void addChangeListener(CustomerChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeChangeListener(CustomerChangeListener listener) {
+        listeners.remove(listener);
+    }
+
     public static Customer findByPhone(String phone) throws SQLException {
         String sql = "SELECT * FROM customers WHERE phone = ?";
         try (Connection c = DBUtil.getConnection();
@@ -25,36 +38,42 @@ public class CustomerDAO {
 
     public static Customer createCustomer(String name, String phone, String email) throws SQLException {
         String sql = """
-            INSERT INTO customers(id, name, phone, email, points, created_at)
-            VALUES (?, ?, ?, ?, 0, datetime('now'))
+            INSERT INTO customers(name, phone, email, points, created_at)
+            VALUES (?, ?, ?, 0, datetime('now'))
         """;
 
-        String id = UUID.randomUUID().toString();
-        try (Connection c = DBUtil.getConnection();
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, id);
-            ps.setString(2, name);
-            ps.setString(3, phone);
-            ps.setString(4, email);
+            ps.setString(1, name);
+            ps.setString(2, phone);
+            ps.setString(3, email);
             ps.executeUpdate();
         }
 
-        return findByPhone(phone);
+        Customer customer = findByPhone(phone);
+        if (customer != null) {
+            for (CustomerChangeListener l : listeners) {
+                l.customerCreated(customer);
+            }
+        }
+        return customer;
     }
 
     public static void addPoints(String customerId, int points) throws SQLException {
         String sql = "UPDATE customers SET points = points + ? WHERE id = ?";
-        try (Connection c = DBUtil.getConnection();
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setInt(1, points);
             ps.setString(2, customerId);
-            ps.executeUpdate();
+            if (ps.executeUpdate() == 0) return;
         }
+
+        notifyPointsChanged(customerId, points);
     }
 
     public static void redeemPoints(String customerId, int points) throws SQLException {
         String sql = "UPDATE customers SET points = points - ? WHERE id = ? AND points >= ?";
-        try (Connection c = DBUtil.getConnection();
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setInt(1, points);
             ps.setString(2, customerId);
@@ -64,6 +83,57 @@ public class CustomerDAO {
                 throw new SQLException("Insufficient points for customer: " + customerId);
             }
         }
+
+        notifyPointsChanged(customerId, -points);
+    }
+
+    /**
+     * Redeem and award points for a sale in one statement on the caller's transaction.
+     * The caller tells listeners with notifyPointsChanged once it has committed.
+     */
+    public static void updatePoints(Connection c, String customerId, int redeemed, int earned) throws SQLException {
+        if (redeemed == 0 && earned == 0) return;
+        String sql = "UPDATE customers SET points = points - ? + ? WHERE id = ? AND points >= ?";
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, redeemed);
+            ps.setInt(2, earned);
+            ps.setString(3, customerId);
+            ps.setInt(4, redeemed);
+            int updated = ps.executeUpdate();
+            if (updated == 0) {
+                throw new SQLException("Insufficient points for customer: " + customerId);
+            }
+        }
+    }
+
+    /**
+     * Tell listeners about points changed on a committed transaction.
+     */
+    public static void notifyPointsChanged(String customerId, int delta) {
+        if (delta == 0) return;
+        for (CustomerChangeListener l : listeners) {
+            l.pointsChanged(customerId, delta);
+        }
+    }
+
+    /**
+     * Stream id, name, phone and points of every active customer in id order. The
+     * other fields of the customers handed to handler are not set.
+     */
+    public static void forEachCustomerSummary(RowHandler<Customer> handler) throws SQLException {
+        String sql = "SELECT id, name, phone, points FROM customers WHERE is_active = 1 ORDER BY id";
+        try (Connection c = DBUtil.getConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery(sql)) {
+            while (rs.next()) {
+                Customer customer = new Customer();
+                customer.setId(rs.getString(1));
+                customer.setName(rs.getString(2));
+                customer.setPhone(rs.getString(3));
+                customer.setPoints(rs.getInt(4));
+                handler.handle(customer);
+            }
+        }
     }
 
     public static Customer findById(String id) throws SQLException {
@@ -0,0 +1,25 @@
+package com.vastra.dao;
+
+import com.vastra.model.Product;
+
+/**
+ * Notified by ProductDAO after product changes have been committed.
+ * Register with ProductDAO.addChangeListener().
+ */
+public interface ProductChangeListener {
+
+    /**
+     * A product was inserted or updated. The product reflects the committed row.
+     */
+    void productSaved(Product product);
+
+    /**
+     * A product was deactivated and should no longer be sold.
+     */
+    void productRemoved(String productId);
+
+    /**
+     * Stock for a product changed by delta (negative for sales).
+     */
+    void stockChanged(String productId, int delta);
+}
@@ -1,48 +1,73 @@
 package com.vastra.dao;
 
+import com.vastra.model.CartItem;
 import com.vastra.model.Product;
+import com.vastra.model.ProductImportRow;
+import com.vastra.service.BarcodeAllocator;
 import com.vastra.util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ProductDAO {
 
+    private static final List<ProductChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Matches scored by bm25 per search pass */
+    private static final int SEARCH_CANDIDATES = 200;
+
+    public static void addChangeListener(ProductChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeChangeListener(ProductChangeListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Insert a new product with auto-generated barcode if not provided
      */
     public static String insertProduct(String prod_name, String variant,
                                        int mrp, int sellPrice, int gst, int stock,
                                        String category, String brand, String sku) throws Exception {
-        String prod_id = UUID.randomUUID().toString();
-        String barcode = sku != null && !sku.isEmpty() ? sku : generateBarcode();
+        String barcode = sku != null && !sku.isEmpty() ? sku : BarcodeAllocator.getInstance().next();
 
         String sql = """
-            INSERT INTO products(id, name, variant, category, brand, barcode, sku,
-                               mrp_cents, sell_price_cents, gst_percent, stock, 
+            INSERT INTO products(name, variant, category, brand, barcode, sku,
+                               mrp_cents, sell_price_cents, gst_percent, stock,
                                reorder_threshold, is_active, created_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, datetime('now'))
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, datetime('now'))
+            RETURNING id
         """;
 
-        try (Connection c = DBUtil.getConnection();
+        String prod_id;
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, prod_id);
-            ps.setString(2, prod_name);
-            ps.setString(3, variant != null ? variant : "");
-            ps.setString(4, category != null ? category : "");
-            ps.setString(5, brand != null ? brand : "");
-            ps.setString(6, barcode);
-            ps.setString(7, sku != null ? sku : barcode);
-            ps.setInt(8, mrp);
-            ps.setInt(9, sellPrice);
-            ps.setInt(10, gst);
-            ps.setInt(11, stock);
-            ps.setInt(12, 5); // default reorder threshold
-            ps.executeUpdate();
+            ps.setString(1, prod_name);
+            ps.setString(2, variant != null ? variant : "");
+            ps.setString(3, category != null ? category : "");
+            ps.setString(4, brand != null ? brand : "");
+            ps.setString(5, barcode);
+            ps.setString(6, sku != null ? sku : barcode);
+            ps.setInt(7, mrp);
+            ps.setInt(8, sellPrice);
+            ps.setInt(9, gst);
+            ps.setInt(10, stock);
+            ps.setInt(11, 5); // default reorder threshold
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            prod_id = rs.getString(1);
         }
 
+        if (!listeners.isEmpty()) {
+            fireProductSaved(findById(prod_id));
+        }
         return prod_id;
     }
 
@@ -96,34 +121,117 @@ public class ProductDAO {
         return null;
     }
 
+    /**
+     * Find an active product by barcode or SKU in one query (barcode wins). Ids are not
+     * matched: a short numeric code would otherwise resolve to that rowid; use findById.
+     */
+    public static Product findByCode(String code) throws SQLException {
+        if (code == null || code.isBlank()) return null;
+        String sql = """
+            SELECT * FROM products
+            WHERE (barcode = ? OR sku = ?) AND is_active = 1
+            ORDER BY CASE WHEN barcode = ? THEN 0 ELSE 1 END
+            LIMIT 1
+        """;
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 1; i <= 3; i++) {
+                ps.setString(i, code);
+            }
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return extractProduct(rs);
+            }
+        }
+        return null;
+    }
+
     /**
      * Search products by name (for manual search)
      */
     public static List<Product> searchByName(String name) throws SQLException {
-        String sql = "SELECT * FROM products WHERE name LIKE ? AND is_active = 1 ORDER BY name LIMIT 20";
+        return search(name, 20);
+    }
+
+    /**
+     * Ranked full-text search over name, variant, brand, category and SKU.
+     * Every word typed must match the start of a word in the product, so "sar blu"
+     * finds "Saree - Blue". Products whose name matches every word come first, then
+     * products matching across the other columns; each group is ordered by bm25 relevance.
+     *
+     * Each group reads at most SEARCH_CANDIDATES of its best ranked matches from the index
+     * before joining products. The index only holds active products, so deactivated ones
+     * cannot take up the window.
+     */
+    public static List<Product> search(String query, int limit) throws SQLException {
+        String match = toFtsQuery(query);
         List<Product> products = new ArrayList<>();
+        if (match.isEmpty()) return products;
+
+        String sql = """
+            SELECT p.* FROM (
+                SELECT rowid, rank
+                FROM products_fts
+                WHERE products_fts MATCH ?
+                ORDER BY rank
+                LIMIT ?
+            ) f
+            JOIN products p ON p.rowid = f.rowid
+            WHERE p.is_active = 1
+            ORDER BY f.rank
+            LIMIT ?
+        """;
         try (Connection c = DBUtil.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, "%" + name + "%");
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                products.add(extractProduct(rs));
+            Set<String> seen = new HashSet<>();
+            for (String m : new String[] {"name : (" + match + ")", match}) {
+                ps.setString(1, m);
+                ps.setInt(2, Math.max(SEARCH_CANDIDATES, limit));
+                ps.setInt(3, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next() && products.size() < limit) {
+                        Product p = extractProduct(rs);
+                        if (seen.add(p.getId())) {
+                            products.add(p);
+                        }
+                    }
+                }
+                if (products.size() >= limit) break;
             }
         }
         return products;
     }
 
+    /**
+     * Turn free text into an FTS5 query of quoted prefix terms, e.g. {@code "blu"* "sil"*}.
+     * Quoting keeps characters like - or " typed by the user from being read as FTS syntax.
+     */
+    static String toFtsQuery(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append('"').append(token).append("\"*");
+        }
+        return sb.toString();
+    }
+
     /**
      * Update product stock
      */
     public static void updateStock(String productId, int newStock) throws SQLException {
         String sql = "UPDATE products SET stock = ?, updated_at = datetime('now') WHERE id = ?";
-        try (Connection c = DBUtil.getConnection();
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setInt(1, newStock);
             ps.setString(2, productId);
             ps.executeUpdate();
         }
+
+        if (!listeners.isEmpty()) {
+            fireProductSaved(findById(productId));
+        }
     }
 
     /**
@@ -132,7 +240,7 @@ public class ProductDAO {
     public static void decrementStock(String productId, int quantity) throws SQLException {
         String sql = "UPDATE products SET stock = stock - ?, updated_at = datetime('now') " +
                 "WHERE id = ? AND stock >= ?";
-        try (Connection c = DBUtil.getConnection();
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setInt(1, quantity);
             ps.setString(2, productId);
@@ -142,21 +250,261 @@ public class ProductDAO {
                 throw new SQLException("Insufficient stock for product: " + productId);
             }
         }
+
+        for (ProductChangeListener l : listeners) {
+            l.stockChanged(productId, -quantity);
+        }
     }
 
     /**
-     * Get products with low stock (at or below reorder threshold)
+     * Decrement stock for every line of a sale as one JDBC batch on the caller's transaction.
+     * Fails the whole batch if any product would go below zero.
      */
-    public static List<Product> getLowStockProducts() throws SQLException {
-        String sql = """
-            SELECT * FROM products 
-            WHERE stock <= reorder_threshold AND is_active = 1 
-            ORDER BY stock ASC
+    public static void decrementStock(Connection c, List<CartItem> items) throws SQLException {
+        // Merge repeated lines for the same product so the oversell check sees the full quantity
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+
+        String sql = "UPDATE products SET stock = stock - ?, updated_at = datetime('now') " +
+                "WHERE id = ? AND stock >= ?";
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (Map.Entry<String, Integer> e : quantities.entrySet()) {
+                ps.setInt(1, e.getValue());
+                ps.setString(2, e.getKey());
+                ps.setInt(3, e.getValue());
+                ps.addBatch();
+            }
+            int[] updated = ps.executeBatch();
+            int i = 0;
+            for (String productId : quantities.keySet()) {
+                if (updated[i++] == 0) {
+                    throw new SQLException("Insufficient stock for product: " + productId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tell listeners about stock sold by a committed sale. Call only after the commit.
+     */
+    public static void notifyStockSold(List<CartItem> items) {
+        if (listeners.isEmpty()) return;
+        for (CartItem item : items) {
+            for (ProductChangeListener l : listeners) {
+                l.stockChanged(item.getProduct().getId(), -item.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Fill barcode -> id and SKU -> id maps for every product, active or not, so imports
+     * can check codes without a query per row.
+     */
+    public static void loadCodes(Map<String, String> idByBarcode, Map<String, String> idBySku) throws SQLException {
+        String sql = "SELECT id, barcode, sku FROM products";
+        try (Connection c = DBUtil.getConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery(sql)) {
+            while (rs.next()) {
+                String id = rs.getString(1);
+                String barcode = rs.getString(2);
+                String sku = rs.getString(3);
+                if (barcode != null && !barcode.isEmpty()) idByBarcode.putIfAbsent(barcode, id);
+                if (sku != null && !sku.isEmpty()) idBySku.putIfAbsent(sku, id);
+            }
+        }
+    }
+
+    /**
+     * Fill id -> {stock, reorder threshold} for every active product.
+     */
+    public static void loadStockLevels(Map<String, int[]> levels) throws SQLException {
+        String sql = "SELECT id, stock, reorder_threshold FROM products WHERE is_active = 1";
+        try (Connection c = DBUtil.getConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery(sql)) {
+            while (rs.next()) {
+                levels.put(rs.getString(1), new int[] {rs.getInt(2), rs.getInt(3)});
+            }
+        }
+    }
+
+    /**
+     * Highest product id, or 0 if there are no products. New products are numbered from
+     * here by whoever holds the writer connection.
+     */
+    public static long maxProductId(Connection c) throws SQLException {
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT coalesce(max(id), 0) FROM products")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Write imported rows on the caller's transaction: new rows are inserted, the rest
+     * update the product with their id. In an update, null fields keep the stored value,
+     * and the product is reactivated.
+     *
+     * New rows go in as multi-row INSERTs of up to IMPORT_ROWS_PER_INSERT rows. The search
+     * index trigger still fires for each row, but FTS5 writes out what it has collected
+     * once per statement, so one statement per row (a JDBC batch) would write a tiny
+     * index segment for every product.
+     */
+    public static void upsertImportRows(Connection c, List<ProductImportRow> rows) throws SQLException {
+        List<ProductImportRow> inserts = new ArrayList<>();
+        try (PreparedStatement update = c.prepareStatement(UPDATE_IMPORT_SQL)) {
+            int updates = 0;
+            for (ProductImportRow row : rows) {
+                if (row.isNewProduct()) {
+                    inserts.add(row);
+                } else {
+                    bindImportRow(update, row, 0);
+                    update.addBatch();
+                    updates++;
+                }
+            }
+            for (int from = 0; from < inserts.size(); from += IMPORT_ROWS_PER_INSERT) {
+                List<ProductImportRow> part = inserts.subList(from, Math.min(from + IMPORT_ROWS_PER_INSERT, inserts.size()));
+                try (PreparedStatement insert = c.prepareStatement(insertImportSql(part.size()))) {
+                    for (int i = 0; i < part.size(); i++) {
+                        bindImportRow(insert, part.get(i), i * IMPORT_COLUMNS);
+                    }
+                    insert.executeUpdate();
+                }
+            }
+            if (updates > 0) update.executeBatch();
+        }
+    }
+
+    /**
+     * Single-row form of upsertImportRows, to find which row of a failed batch is at fault.
+     */
+    public static void upsertImportRow(Connection c, ProductImportRow row) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(row.isNewProduct() ? insertImportSql(1) : UPDATE_IMPORT_SQL)) {
+            bindImportRow(ps, row, 0);
+            ps.executeUpdate();
+        }
+    }
+
+    private static final int IMPORT_COLUMNS = 15;
+    // 7,500 parameters per statement, well under SQLite's limit of 32,766
+    private static final int IMPORT_ROWS_PER_INSERT = 500;
+
+    private static final String INSERT_IMPORT_SQL = """
+        INSERT INTO products(name, variant, category, brand, barcode, sku,
+                             mrp_cents, sell_price_cents, purchase_price_cents, gst_percent,
+                             hsn_code, stock, reorder_threshold, unit, id, is_active, created_at)
+        VALUES
+        """;
+    private static final String INSERT_IMPORT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, datetime('now'))";
+
+    private static String insertImportSql(int rows) {
+        StringBuilder sb = new StringBuilder(INSERT_IMPORT_SQL.length() + rows * (INSERT_IMPORT_ROW.length() + 2));
+        sb.append(INSERT_IMPORT_SQL).append(INSERT_IMPORT_ROW);
+        for (int i = 1; i < rows; i++) {
+            sb.append(", ").append(INSERT_IMPORT_ROW);
+        }
+        return sb.toString();
+    }
+
+    // Rows that would not change anything are skipped, so re-importing the same file
+    // touches neither updated_at nor the triggers
+    private static final String UPDATE_IMPORT_SQL = """
+        UPDATE products SET
+            name = coalesce(?1, name),
+            variant = coalesce(?2, variant),
+            category = coalesce(?3, category),
+            brand = coalesce(?4, brand),
+            barcode = coalesce(?5, barcode),
+            sku = coalesce(?6, sku),
+            mrp_cents = coalesce(?7, mrp_cents),
+            sell_price_cents = coalesce(?8, sell_price_cents),
+            purchase_price_cents = coalesce(?9, purchase_price_cents),
+            gst_percent = coalesce(?10, gst_percent),
+            hsn_code = coalesce(?11, hsn_code),
+            stock = coalesce(?12, stock),
+            reorder_threshold = coalesce(?13, reorder_threshold),
+            unit = coalesce(?14, unit),
+            is_active = 1,
+            updated_at = datetime('now')
+        WHERE id = ?15
+          AND (is_active IS NOT 1
+               OR ?1 IS NOT NULL AND ?1 IS NOT name
+               OR ?2 IS NOT NULL AND ?2 IS NOT variant
+               OR ?3 IS NOT NULL AND ?3 IS NOT category
+               OR ?4 IS NOT NULL AND ?4 IS NOT brand
+               OR ?5 IS NOT NULL AND ?5 IS NOT barcode
+               OR ?6 IS NOT NULL AND ?6 IS NOT sku
+               OR ?7 IS NOT NULL AND ?7 IS NOT mrp_cents
+               OR ?8 IS NOT NULL AND ?8 IS NOT sell_price_cents
+               OR ?9 IS NOT NULL AND ?9 IS NOT purchase_price_cents
+               OR ?10 IS NOT NULL AND ?10 IS NOT gst_percent
+               OR ?11 IS NOT NULL AND ?11 IS NOT hsn_code
+               OR ?12 IS NOT NULL AND ?12 IS NOT stock
+               OR ?13 IS NOT NULL AND ?13 IS NOT reorder_threshold
+               OR ?14 IS NOT NULL AND ?14 IS NOT unit)
+    """;
+
+    /** Bind row's 15 values to parameters offset + 1 to offset + 15 */
+    private static void bindImportRow(PreparedStatement ps, ProductImportRow row, int offset) throws SQLException {
+        ps.setString(offset + 1, row.getName());
+        ps.setString(offset + 2, row.getVariant());
+        ps.setString(offset + 3, row.getCategory());
+        ps.setString(offset + 4, row.getBrand());
+        ps.setString(offset + 5, row.getBarcode());
+        ps.setString(offset + 6, row.getSku());
+        ps.setObject(offset + 7, row.getMrpCents());
+        ps.setObject(offset + 8, row.getSellPriceCents());
+        ps.setObject(offset + 9, row.getPurchasePriceCents());
+        ps.setObject(offset + 10, row.getGstPercent());
+        ps.setString(offset + 11, row.getHsnCode());
+        ps.setObject(offset + 12, row.getStock());
+        ps.setObject(offset + 13, row.getReorderThreshold());
+        ps.setString(offset + 14, row.getUnit());
+        ps.setString(offset + 15, row.getId());
+    }
+
+    /**
+     * Tell listeners about products written by a committed import. Call only after the commit.
+     */
+    public static void notifyProductsSaved(List<String> ids) throws SQLException {
+        if (listeners.isEmpty() || ids.isEmpty()) return;
+        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setString(i + 1, ids.get(i));
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                fireProductSaved(extractProduct(rs));
+            }
+        }
+    }
+
+    // Its WHERE clause is the one idx_products_low_stock is built with, so only the low
+    // stock rows (already in stock, name order) are read
+    static final String LOW_STOCK_SQL = """
+            SELECT * FROM products
+            WHERE is_active = 1 AND stock <= reorder_threshold
+            ORDER BY stock, name
         """;
+
+    /**
+     * Get products with low stock (at or below reorder threshold), lowest stock first.
+     * LowStockTracker keeps the same list in memory.
+     */
+    public static List<Product> getLowStockProducts() throws SQLException {
         List<Product> products = new ArrayList<>();
         try (Connection c = DBUtil.getConnection();
              Statement s = c.createStatement();
-             ResultSet rs = s.executeQuery(sql)) {
+             ResultSet rs = s.executeQuery(LOW_STOCK_SQL)) {
             while (rs.next()) {
                 products.add(extractProduct(rs));
             }
@@ -180,6 +528,79 @@ public class ProductDAO {
         return products;
     }
 
+    /**
+     * Active products to print labels for, ordered by category and name.
+     *
+     * @param category       only this category, or null for all
+     * @param restockedSince only products added or restocked after this time, or null
+     * @param changedSince   only products added or with label details (name, code, price)
+     *                       changed after this time, or null
+     */
+    public static List<Product> getProductsForLabels(String category, String restockedSince,
+                                                     String changedSince) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE is_active = 1");
+        List<String> params = new ArrayList<>();
+        if (category != null) {
+            sql.append(" AND category = ?");
+            params.add(category);
+        }
+        if (restockedSince != null) {
+            sql.append(" AND (created_at > ? OR restocked_at > ?)");
+            params.add(restockedSince);
+            params.add(restockedSince);
+        }
+        if (changedSince != null) {
+            sql.append(" AND (created_at > ? OR label_changed_at > ?)");
+            params.add(changedSince);
+            params.add(changedSince);
+        }
+        sql.append(" ORDER BY category, name");
+
+        List<Product> products = new ArrayList<>();
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setString(i + 1, params.get(i));
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                products.add(extractProduct(rs));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Distinct categories of active products
+     */
+    public static List<String> getCategories() throws SQLException {
+        String sql = "SELECT DISTINCT category FROM products " +
+                "WHERE is_active = 1 AND category IS NOT NULL AND category <> '' ORDER BY category";
+        List<String> categories = new ArrayList<>();
+        try (Connection c = DBUtil.getConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery(sql)) {
+            while (rs.next()) {
+                categories.add(rs.getString(1));
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * Stream all active products ordered by name without building a list
+     */
+    public static void forEachProduct(RowHandler<Product> handler) throws SQLException {
+        String sql = "SELECT * FROM products WHERE is_active = 1 ORDER BY name";
+        try (Connection c = DBUtil.getConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery(sql)) {
+            while (rs.next()) {
+                handler.handle(extractProduct(rs));
+            }
+        }
+    }
+
     /**
      * Update product details
      */
@@ -194,7 +615,7 @@ public class ProductDAO {
             WHERE id = ?
         """;
 
-        try (Connection c = DBUtil.getConnection();
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, product.getName());
             ps.setString(2, product.getVariant());
@@ -214,6 +635,8 @@ public class ProductDAO {
             ps.setString(16, product.getId());
             ps.executeUpdate();
         }
+
+        fireProductSaved(new Product(product));
     }
 
     /**
@@ -221,11 +644,15 @@ public class ProductDAO {
      */
     public static void deactivateProduct(String productId) throws SQLException {
         String sql = "UPDATE products SET is_active = 0, updated_at = datetime('now') WHERE id = ?";
-        try (Connection c = DBUtil.getConnection();
+        try (Connection c = DBUtil.getWriteConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, productId);
             ps.executeUpdate();
         }
+
+        for (ProductChangeListener l : listeners) {
+            l.productRemoved(productId);
+        }
     }
 
     /**
@@ -242,21 +669,28 @@ public class ProductDAO {
     }
 
     /**
-     * Generate unique barcode (13 digits EAN-13 style)
+     * Highest code number among 13-digit numeric barcodes that start with prefix (the
+     * digits between the prefix and the check digit), or -1 if there are none.
      */
-    private static String generateBarcode() throws SQLException {
-        String barcode;
-        int attempts = 0;
-        do {
-            // Generate 13 digit barcode starting with 890 (for internal use)
-            long timestamp = System.currentTimeMillis() % 10000000000L;
-            barcode = String.format("890%010d", timestamp);
-            attempts++;
-            if (attempts > 100) {
-                throw new SQLException("Could not generate unique barcode");
-            }
-        } while (barcodeExists(barcode));
-        return barcode;
+    public static long maxBarcodeNumber(String prefix) throws SQLException {
+        int digits = 12 - prefix.length();
+        String sql = "SELECT max(substr(barcode, ?, ?)) FROM products WHERE barcode GLOB ?";
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, prefix.length() + 1);
+            ps.setInt(2, digits);
+            ps.setString(3, prefix + "[0-9]".repeat(digits + 1));
+            ResultSet rs = ps.executeQuery();
+            String max = rs.next() ? rs.getString(1) : null;
+            return max != null ? Long.parseLong(max) : -1;
+        }
+    }
+
+    private static void fireProductSaved(Product product) {
+        if (product == null) return;
+        for (ProductChangeListener l : listeners) {
+            l.productSaved(product);
+        }
     }
 
     /**
@@ -0,0 +1,12 @@
+package com.vastra.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Receives rows one at a time from a streaming DAO query. The underlying cursor and
+ * connection are closed by the DAO once the last row has been handled (or on error).
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+    void handle(T row) throws SQLException;
+}
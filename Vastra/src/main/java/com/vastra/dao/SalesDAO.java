@@ -1,146 +1,276 @@
 package com.vastra.dao;
 
 import com.vastra.model.CartItem;
+import com.vastra.model.Sale;
+import com.vastra.service.CartTotals;
+import com.vastra.service.GstCalculator;
 import com.vastra.util.DBUtil;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SalesDAO {
+    private static final AtomicLong lastInvoiceMillis = new AtomicLong();
+    private static final ThreadLocal<CartTotals> TOTALS = ThreadLocal.withInitial(CartTotals::new);
+
     public static String completeSale(List<CartItem> items, String customerId,
                                       int discountCents, String paymentMode) throws SQLException {
-        Connection conn = null;
-        try {
-            conn = DBUtil.getConnection();
-            conn.setAutoCommit(false);
-
-            // Calculate totals
-            int subtotal = 0;
-            int tax = 0;
-            for (CartItem item : items) {
-                int lineTotal = item.getProduct().getSellPriceCents() * item.getQuantity();
-                subtotal += lineTotal;
-                tax += (int) (item.getTaxAmount() * 100);
-            }
+        return completeSale(items, customerId, discountCents, 0, paymentMode);
+    }
 
-            int total = subtotal - discountCents;
-
-            // Generate invoice number
-            String invoiceNumber = "INV-" + System.currentTimeMillis();
-            String saleId = UUID.randomUUID().toString();
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-
-            // Insert sale record
-            String saleSql = """
-                INSERT INTO sales(id, invoice_number, customer_id, ts, subtotal_cents, tax_cents, 
-                                  discount_cents, total_cents, payment_mode, status, created_at)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'COMPLETED', datetime('now'))
-            """;
-
-            try (PreparedStatement ps = conn.prepareStatement(saleSql)) {
-                ps.setString(1, saleId);
-                ps.setString(2, invoiceNumber);
-                ps.setString(3, customerId);
-                ps.setString(4, timestamp);
-                ps.setInt(5, subtotal);
-                ps.setInt(6, tax);
-                ps.setInt(7, discountCents);
-                ps.setInt(8, total);
-                ps.setString(9, paymentMode);
-                ps.executeUpdate();
-            }
+    /**
+     * Record a sale as one unit of work: the sale row, its line items, the stock decrements
+     * and the loyalty points update all share a single transaction and a single commit.
+     */
+    public static String completeSale(List<CartItem> items, String customerId, int discountCents,
+                                      int pointsRedeemed, String paymentMode) throws SQLException {
+        Sale sale = new Sale(items, customerId, discountCents, pointsRedeemed, paymentMode);
+        String saleId;
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            saleId = insertSale(uow.getConnection(), sale);
+            uow.commit();
+        } catch (SQLException e) {
+            throw new SQLException("Sale transaction failed: " + e.getMessage(), e);
+        }
+        notifyCommitted(sale);
+        return saleId;
+    }
 
-            // Insert sale items and update stock
-            String itemSql = """
-                INSERT INTO sale_items(id, sale_id, product_id, product_name, product_variant, 
-                                       qty, unit_price_cents, tax_percent, line_total_cents)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-
-            try (PreparedStatement ps = conn.prepareStatement(itemSql)) {
-                for (CartItem item : items) {
-                    ps.setString(1, UUID.randomUUID().toString());
-                    ps.setString(2, saleId);
-                    ps.setString(3, item.getProduct().getId());
-                    ps.setString(4, item.getProduct().getName());
-                    ps.setString(5, item.getProduct().getVariant() != null ? item.getProduct().getVariant() : "");
-                    ps.setInt(6, item.getQuantity());
-                    ps.setInt(7, item.getProduct().getSellPriceCents());
-                    ps.setInt(8, item.getProduct().getGstPercent());
-                    ps.setInt(9, (int) (item.getLineTotal() * 100));
-                    ps.executeUpdate();
-
-                    // Update stock
-                    ProductDAO.decrementStock(item.getProduct().getId(), item.getQuantity());
-                }
-            }
+    /**
+     * Tell product and customer listeners about the stock and points changed by a sale
+     * written with insertSale. Call only after the commit.
+     */
+    public static void notifyCommitted(Sale sale) {
+        ProductDAO.notifyStockSold(sale.getItems());
+        if (sale.getCustomerId() != null && !sale.getCustomerId().isEmpty()) {
+            CustomerDAO.notifyPointsChanged(sale.getCustomerId(), sale.getPointsEarned() - sale.getPointsRedeemed());
+        }
+    }
 
-            // Award loyalty points (1 point per 100 rupees)
-            if (customerId != null && !customerId.isEmpty()) {
-                int pointsEarned = (total / 100) / 100; // total in rupees / 100
-                if (pointsEarned > 0) {
-                    CustomerDAO.addPoints(customerId, pointsEarned);
-                }
-            }
+    /**
+     * Write every row for one sale on the caller's transaction. Does not commit.
+     * Fills in the sale's id and invoice number.
+     */
+    public static String insertSale(Connection conn, Sale sale) throws SQLException {
+        List<CartItem> items = sale.getItems();
+        String customerId = sale.getCustomerId();
+        int discountCents = sale.getDiscountCents();
+        int pointsRedeemed = sale.getPointsRedeemed();
+        String paymentMode = sale.getPaymentMode();
 
-            conn.commit();
-            return saleId;
+        // Calculate totals with the same integer GST rules as the cart and the receipt
+        CartTotals totals = TOTALS.get();
+        GstCalculator.compute(items, discountCents, totals);
+        int subtotal = (int) totals.getSubtotalCents();
+        int tax = (int) totals.getTaxCents();
+        int total = (int) totals.getTotalCents();
 
-        } catch (Exception e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
-            }
-            throw new SQLException("Sale transaction failed: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) {
-                conn.setAutoCommit(true);
-                conn.close();
+        // Generate invoice number
+        String invoiceNumber = nextInvoiceNumber();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        // Insert sale record
+        String saleSql = """
+            INSERT INTO sales(invoice_number, customer_id, ts, subtotal_cents, tax_cents,
+                              discount_cents, points_redeemed, total_cents, payment_mode, status, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'COMPLETED', datetime('now'))
+            RETURNING id
+        """;
+
+        long saleId;
+        try (PreparedStatement ps = conn.prepareStatement(saleSql)) {
+            ps.setString(1, invoiceNumber);
+            ps.setString(2, customerId);
+            ps.setString(3, timestamp);
+            ps.setInt(4, subtotal);
+            ps.setInt(5, tax);
+            ps.setInt(6, discountCents);
+            ps.setInt(7, pointsRedeemed);
+            ps.setInt(8, total);
+            ps.setString(9, paymentMode);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            saleId = rs.getLong(1);
+        }
+
+        // Insert sale items as one batch
+        String itemSql = """
+            INSERT INTO sale_items(sale_id, product_id, product_name, product_variant,
+                                   qty, unit_price_cents, tax_percent, line_total_cents)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+        try (PreparedStatement ps = conn.prepareStatement(itemSql)) {
+            for (CartItem item : items) {
+                ps.setLong(1, saleId);
+                ps.setString(2, item.getProduct().getId());
+                ps.setString(3, item.getProduct().getName());
+                ps.setString(4, item.getProduct().getVariant() != null ? item.getProduct().getVariant() : "");
+                ps.setInt(5, item.getQuantity());
+                ps.setInt(6, item.getProduct().getSellPriceCents());
+                ps.setInt(7, item.getProduct().getGstPercent());
+                ps.setLong(8, item.getLineTotalCents());
+                ps.addBatch();
             }
+            ps.executeBatch();
         }
+
+        // Update stock, failing the sale if any line would oversell
+        ProductDAO.decrementStock(conn, items);
+
+        // Roll the sale into its day's totals
+        applyDailySummary(conn, timestamp.substring(0, 10), 1, subtotal, total, tax, discountCents, paymentMode);
+
+        // Redeem and award loyalty points (1 point per 100 rupees)
+        if (customerId != null && !customerId.isEmpty()) {
+            int pointsEarned = (total / 100) / 100; // total in rupees / 100
+            CustomerDAO.updatePoints(conn, customerId, pointsRedeemed, pointsEarned);
+            sale.setPointsEarned(pointsEarned);
+        }
+
+        sale.setId(Long.toString(saleId));
+        sale.setInvoiceNumber(invoiceNumber);
+        return sale.getId();
     }
 
-    public static ResultSet getDailySalesReport(String date) throws SQLException {
+    /**
+     * Millisecond-based invoice number that never repeats, even for sales committed together.
+     */
+    private static String nextInvoiceNumber() {
+        long now = System.currentTimeMillis();
+        long n = lastInvoiceMillis.updateAndGet(last -> Math.max(last + 1, now));
+        return "INV-" + n;
+    }
+
+    /**
+     * Add (or, with negative amounts, subtract) a sale's totals to the daily_sales_summary row
+     * for its date, on the caller's transaction. Returns should call this with negative values
+     * and saleCount 0 so the day's numbers stay correct without re-aggregating.
+     */
+    public static void applyDailySummary(Connection conn, String saleDate, int saleCount,
+                                         long subtotalCents, long totalCents, long taxCents,
+                                         long discountCents, String paymentMode) throws SQLException {
         String sql = """
+            INSERT INTO daily_sales_summary(sale_date, num_sales, subtotal_cents, total_cents, tax_cents,
+                                            discount_cents, cash_cents, card_cents, upi_cents, other_cents,
+                                            updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, datetime('now'))
+            ON CONFLICT(sale_date) DO UPDATE SET
+                num_sales = num_sales + excluded.num_sales,
+                subtotal_cents = subtotal_cents + excluded.subtotal_cents,
+                total_cents = total_cents + excluded.total_cents,
+                tax_cents = tax_cents + excluded.tax_cents,
+                discount_cents = discount_cents + excluded.discount_cents,
+                cash_cents = cash_cents + excluded.cash_cents,
+                card_cents = card_cents + excluded.card_cents,
+                upi_cents = upi_cents + excluded.upi_cents,
+                other_cents = other_cents + excluded.other_cents,
+                updated_at = excluded.updated_at
+        """;
+        String mode = paymentMode != null ? paymentMode.toUpperCase() : "OTHER";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, saleDate);
+            ps.setInt(2, saleCount);
+            ps.setLong(3, subtotalCents);
+            ps.setLong(4, totalCents);
+            ps.setLong(5, taxCents);
+            ps.setLong(6, discountCents);
+            ps.setLong(7, mode.equals("CASH") ? totalCents : 0);
+            ps.setLong(8, mode.equals("CARD") ? totalCents : 0);
+            ps.setLong(9, mode.equals("UPI") ? totalCents : 0);
+            ps.setLong(10, !mode.equals("CASH") && !mode.equals("CARD") && !mode.equals("UPI") ? totalCents : 0);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Recompute daily_sales_summary from the raw sales table.
+     */
+    public static void rebuildDailySummary() throws SQLException {
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            rebuildDailySummary(uow.getConnection());
+            uow.commit();
+        }
+    }
+
+    public static void rebuildDailySummary(Connection conn) throws SQLException {
+        try (Statement s = conn.createStatement()) {
+            s.executeUpdate("DELETE FROM daily_sales_summary");
+            s.executeUpdate("""
+                INSERT INTO daily_sales_summary(sale_date, num_sales, subtotal_cents, total_cents, tax_cents,
+                                                discount_cents, cash_cents, card_cents, upi_cents, other_cents,
+                                                updated_at)
+                SELECT sale_date, COUNT(*), SUM(subtotal_cents), SUM(total_cents), SUM(tax_cents),
+                       SUM(discount_cents),
+                       SUM(CASE WHEN UPPER(payment_mode) = 'CASH' THEN total_cents ELSE 0 END),
+                       SUM(CASE WHEN UPPER(payment_mode) = 'CARD' THEN total_cents ELSE 0 END),
+                       SUM(CASE WHEN UPPER(payment_mode) = 'UPI' THEN total_cents ELSE 0 END),
+                       SUM(CASE WHEN UPPER(payment_mode) NOT IN ('CASH', 'CARD', 'UPI') THEN total_cents ELSE 0 END),
+                       datetime('now')
+                FROM sales
+                GROUP BY sale_date
+            """);
+        }
+    }
+
+    // Filter on the indexed sale_date column; wrapping ts in DATE() would force a full scan
+    static final String DAILY_SALES_SQL = """
             SELECT s.*, c.name as customer_name, c.phone as customer_phone
             FROM sales s
             LEFT JOIN customers c ON s.customer_id = c.id
-            WHERE DATE(s.ts) = ?
+            WHERE s.sale_date = ?
             ORDER BY s.ts DESC
         """;
 
-        Connection c = DBUtil.getConnection();
-        PreparedStatement ps = c.prepareStatement(sql);
-        ps.setString(1, date);
-        return ps.executeQuery();
-    }
-
-    public static ResultSet getSalesInRange(String startDate, String endDate) throws SQLException {
-        String sql = """
-            SELECT DATE(ts) as sale_date, 
-                   COUNT(*) as num_sales,
-                   SUM(total_cents) as total_revenue_cents,
-                   SUM(tax_cents) as total_tax_cents,
-                   SUM(discount_cents) as total_discount_cents
-            FROM sales
-            WHERE DATE(ts) BETWEEN ? AND ?
-            GROUP BY DATE(ts)
+    // Range reports read the daily rollup, so they cost O(days) instead of O(sales)
+    static final String SALES_IN_RANGE_SQL = """
+            SELECT sale_date,
+                   num_sales,
+                   total_cents as total_revenue_cents,
+                   tax_cents as total_tax_cents,
+                   discount_cents as total_discount_cents,
+                   cash_cents, card_cents, upi_cents, other_cents
+            FROM daily_sales_summary
+            WHERE sale_date BETWEEN ? AND ?
             ORDER BY sale_date DESC
         """;
 
-        Connection c = DBUtil.getConnection();
-        PreparedStatement ps = c.prepareStatement(sql);
-        ps.setString(1, startDate);
-        ps.setString(2, endDate);
-        return ps.executeQuery();
+    /**
+     * Stream every sale on a date, newest first. The cursor is closed when the handler returns.
+     */
+    public static void getDailySalesReport(String date, RowHandler<ResultSet> handler) throws SQLException {
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(DAILY_SALES_SQL)) {
+            ps.setString(1, date);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream per-day totals between two dates (inclusive), newest first.
+     */
+    public static void getSalesInRange(String startDate, String endDate,
+                                       RowHandler<ResultSet> handler) throws SQLException {
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(SALES_IN_RANGE_SQL)) {
+            ps.setString(1, startDate);
+            ps.setString(2, endDate);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
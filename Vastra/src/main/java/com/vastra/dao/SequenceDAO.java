@@ -0,0 +1,35 @@
+package com.vastra.dao;
+
+import com.vastra.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class SequenceDAO {
+
+    /**
+     * Reserve count consecutive values of a sequence, none below minValue, and return the
+     * first. Reserved values are never handed out again, even if the caller does not use
+     * them all. A new sequence starts at minValue.
+     */
+    public static long reserve(String name, int count, long minValue) throws SQLException {
+        String sql = """
+            INSERT INTO sequences(name, next_value) VALUES (?1, ?2 + ?3)
+            ON CONFLICT(name) DO UPDATE SET next_value = max(next_value, ?2) + ?3
+            RETURNING next_value - ?3
+        """;
+        try (Connection c = DBUtil.getWriteConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, name);
+            ps.setLong(2, minValue);
+            ps.setInt(3, count);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("Could not reserve values of sequence " + name);
+            }
+            return rs.getLong(1);
+        }
+    }
+}
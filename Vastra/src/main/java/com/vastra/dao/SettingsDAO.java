@@ -0,0 +1,61 @@
+package com.vastra.dao;
+
+import com.vastra.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SettingsDAO {
+
+    /**
+     * All store settings as key/value pairs
+     */
+    public static Map<String, String> getAll() throws SQLException {
+        Map<String, String> settings = new HashMap<>();
+        String sql = "SELECT key, value FROM store_settings";
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                settings.put(rs.getString("key"), rs.getString("value"));
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * One setting, or defaultValue if it is not set
+     */
+    public static String get(String key, String defaultValue) throws SQLException {
+        String sql = "SELECT value FROM store_settings WHERE key = ?";
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, key);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next() && rs.getString("value") != null) {
+                return rs.getString("value");
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Insert or replace a setting
+     */
+    public static void set(String key, String value) throws SQLException {
+        String sql = """
+            INSERT INTO store_settings(key, value, updated_at) VALUES (?, ?, datetime('now'))
+            ON CONFLICT(key) DO UPDATE SET value = excluded.value, updated_at = excluded.updated_at
+        """;
+        try (Connection c = DBUtil.getWriteConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, key);
+            ps.setString(2, value);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.vastra.dao;
+
+import com.vastra.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One database transaction on the writer connection.
+ *
+ * Every DAO write that takes a Connection argument can be passed getConnection() so that
+ * all of them share a single transaction and a single commit:
+ *
+ *     try (UnitOfWork uow = UnitOfWork.begin()) {
+ *         ProductDAO.decrementStock(uow.getConnection(), items);
+ *         CustomerDAO.updatePoints(uow.getConnection(), customerId, redeemed, earned);
+ *         uow.commit();
+ *     }
+ *
+ * Closing without commit() rolls everything back. A unit of work begun while the same
+ * thread already has one open joins the outer transaction; only the outer one commits.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private final Connection conn;
+    private final boolean nested;
+    private boolean committed;
+
+    private UnitOfWork(Connection conn, boolean nested) {
+        this.conn = conn;
+        this.nested = nested;
+    }
+
+    public static UnitOfWork begin() throws SQLException {
+        Connection conn = DBUtil.getWriteConnection();
+        try {
+            boolean nested = !conn.getAutoCommit();
+            if (!nested) {
+                conn.setAutoCommit(false);
+            }
+            return new UnitOfWork(conn, nested);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    public Connection getConnection() {
+        return conn;
+    }
+
+    public void commit() throws SQLException {
+        if (!nested) {
+            conn.commit();
+        }
+        committed = true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!nested) {
+                if (!committed) {
+                    conn.rollback();
+                }
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            conn.close();
+        }
+    }
+}
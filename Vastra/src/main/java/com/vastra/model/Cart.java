@@ -0,0 +1,139 @@
+package com.vastra.model;
+
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cart on the billing screen.
+ *
+ * Lines are indexed by product id, so adding a scanned product finds its line in O(1).
+ * Subtotal, tax and discount totals are kept in long cents and adjusted by the change
+ * of a single line whenever that line's quantity or discount changes, instead of being
+ * summed over every line. Use from the FX thread only.
+ */
+public class Cart {
+
+    private final ObservableList<CartItem> items = FXCollections.observableArrayList();
+    private final Map<String, CartItem> byProductId = new HashMap<>();
+
+    private final ReadOnlyLongWrapper subtotalCents = new ReadOnlyLongWrapper(this, "subtotalCents");
+    private final ReadOnlyLongWrapper taxCents = new ReadOnlyLongWrapper(this, "taxCents");
+    private final ReadOnlyLongWrapper lineDiscountCents = new ReadOnlyLongWrapper(this, "lineDiscountCents");
+    private final ReadOnlyLongWrapper billDiscountCents = new ReadOnlyLongWrapper(this, "billDiscountCents");
+    private final ReadOnlyLongWrapper totalCents = new ReadOnlyLongWrapper(this, "totalCents");
+
+    private final ChangeListener<Number> subtotalListener =
+            (obs, old, now) -> adjust(subtotalCents, now.longValue() - old.longValue());
+    private final ChangeListener<Number> taxListener =
+            (obs, old, now) -> adjust(taxCents, now.longValue() - old.longValue());
+    private final ChangeListener<Number> discountListener =
+            (obs, old, now) -> adjust(lineDiscountCents, now.longValue() - old.longValue());
+
+    /** Rows for the cart table */
+    public ObservableList<CartItem> getItems() {
+        return items;
+    }
+
+    public CartItem find(String productId) {
+        return byProductId.get(productId);
+    }
+
+    /**
+     * Add quantity of a product, merging into its existing line if there is one.
+     */
+    public CartItem add(Product product, int quantity) {
+        CartItem item = byProductId.get(product.getId());
+        if (item != null) {
+            item.setQuantity(item.getQuantity() + quantity);
+            return item;
+        }
+
+        item = new CartItem(product, quantity);
+        byProductId.put(product.getId(), item);
+        item.subtotalCentsProperty().addListener(subtotalListener);
+        item.taxCentsProperty().addListener(taxListener);
+        item.discountCentsProperty().addListener(discountListener);
+        adjust(subtotalCents, item.getSubtotalCents());
+        adjust(taxCents, item.getTaxCents());
+        adjust(lineDiscountCents, item.getDiscountCents());
+        items.add(item);
+        return item;
+    }
+
+    public void remove(CartItem item) {
+        if (byProductId.remove(item.getProduct().getId()) == null) return;
+        item.subtotalCentsProperty().removeListener(subtotalListener);
+        item.taxCentsProperty().removeListener(taxListener);
+        item.discountCentsProperty().removeListener(discountListener);
+        adjust(subtotalCents, -item.getSubtotalCents());
+        adjust(taxCents, -item.getTaxCents());
+        adjust(lineDiscountCents, -item.getDiscountCents());
+        items.remove(item);
+    }
+
+    public void clear() {
+        for (CartItem item : items) {
+            item.subtotalCentsProperty().removeListener(subtotalListener);
+            item.taxCentsProperty().removeListener(taxListener);
+            item.discountCentsProperty().removeListener(discountListener);
+        }
+        byProductId.clear();
+        items.clear();
+        subtotalCents.set(0);
+        taxCents.set(0);
+        lineDiscountCents.set(0);
+        billDiscountCents.set(0);
+        updateTotal();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /** Copy of the current lines, e.g. for a Sale */
+    public List<CartItem> snapshot() {
+        return new ArrayList<>(items);
+    }
+
+    public void setBillDiscountCents(long cents) {
+        billDiscountCents.set(cents);
+        updateTotal();
+    }
+
+    public long getSubtotalCents() { return subtotalCents.get(); }
+    public ReadOnlyLongProperty subtotalCentsProperty() { return subtotalCents.getReadOnlyProperty(); }
+
+    public long getTaxCents() { return taxCents.get(); }
+    public ReadOnlyLongProperty taxCentsProperty() { return taxCents.getReadOnlyProperty(); }
+
+    public long getLineDiscountCents() { return lineDiscountCents.get(); }
+
+    public long getBillDiscountCents() { return billDiscountCents.get(); }
+
+    /** Subtotal less line and bill discounts */
+    public long getTotalCents() { return totalCents.get(); }
+    public ReadOnlyLongProperty totalCentsProperty() { return totalCents.getReadOnlyProperty(); }
+
+    private void adjust(ReadOnlyLongWrapper total, long delta) {
+        if (delta != 0) {
+            total.set(total.get() + delta);
+            updateTotal();
+        }
+    }
+
+    private void updateTotal() {
+        totalCents.set(subtotalCents.get() - lineDiscountCents.get() - billDiscountCents.get());
+    }
+}
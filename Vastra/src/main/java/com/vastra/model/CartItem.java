@@ -1,41 +1,75 @@
 package com.vastra.model;
 
+import com.vastra.service.GstCalculator;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * One cart line. Quantity and discount are observable, and the line's subtotal, tax and
+ * total (in cents) are kept up to date from them, so a table row bound to these
+ * properties re-renders on its own when only this line changes.
+ */
 public class CartItem {
-    private Product product;
-    private int quantity;
-    private int discountCents;
+    private final Product product;
+    private final IntegerProperty quantity = new SimpleIntegerProperty(this, "quantity");
+    private final IntegerProperty discountCents = new SimpleIntegerProperty(this, "discountCents");
+
+    private final ReadOnlyLongWrapper subtotalCents = new ReadOnlyLongWrapper(this, "subtotalCents");
+    private final ReadOnlyLongWrapper taxCents = new ReadOnlyLongWrapper(this, "taxCents");
+    private final ReadOnlyLongWrapper lineTotalCents = new ReadOnlyLongWrapper(this, "lineTotalCents");
 
     public CartItem(Product product, int quantity) {
         this.product = product;
-        this.quantity = quantity;
-        this.discountCents = 0;
+        this.quantity.set(quantity);
+        recalculate();
+        this.quantity.addListener((obs, old, qty) -> recalculate());
+        this.discountCents.addListener((obs, old, discount) -> recalculate());
     }
 
     public Product getProduct() { return product; }
-    public void setProduct(Product product) { this.product = product; }
 
-    public int getQuantity() { return quantity; }
-    public void setQuantity(int quantity) { this.quantity = quantity; }
+    public int getQuantity() { return quantity.get(); }
+    public void setQuantity(int quantity) { this.quantity.set(quantity); }
+    public IntegerProperty quantityProperty() { return quantity; }
+
+    public int getDiscountCents() { return discountCents.get(); }
+    public void setDiscountCents(int discountCents) { this.discountCents.set(discountCents); }
+    public IntegerProperty discountCentsProperty() { return discountCents; }
+
+    public long getSubtotalCents() { return subtotalCents.get(); }
+    public ReadOnlyLongProperty subtotalCentsProperty() { return subtotalCents.getReadOnlyProperty(); }
 
-    public int getDiscountCents() { return discountCents; }
-    public void setDiscountCents(int discountCents) { this.discountCents = discountCents; }
+    public long getTaxCents() { return taxCents.get(); }
+    public ReadOnlyLongProperty taxCentsProperty() { return taxCents.getReadOnlyProperty(); }
 
-    public void incrementQuantity() { quantity++; }
-    public void decrementQuantity() { if (quantity > 1) quantity--; }
+    public long getLineTotalCents() { return lineTotalCents.get(); }
+    public ReadOnlyLongProperty lineTotalCentsProperty() { return lineTotalCents.getReadOnlyProperty(); }
+
+    public void incrementQuantity() { setQuantity(getQuantity() + 1); }
+    public void decrementQuantity() { if (getQuantity() > 1) setQuantity(getQuantity() - 1); }
 
     public double getLineTotal() {
-        return ((product.getSellPriceCents() * quantity) - discountCents) / 100.0;
+        return lineTotalCents.get() / 100.0;
     }
 
     public double getTaxAmount() {
-        return product.calculateTaxAmount(quantity);
+        return taxCents.get() / 100.0;
     }
 
     public double getDiscount() {
-        return discountCents / 100.0;
+        return discountCents.get() / 100.0;
     }
 
     public double getSubtotal() {
-        return (product.getSellPriceCents() * quantity) / 100.0;
+        return subtotalCents.get() / 100.0;
+    }
+
+    private void recalculate() {
+        long subtotal = (long) product.getSellPriceCents() * getQuantity();
+        subtotalCents.set(subtotal);
+        taxCents.set(GstCalculator.lineTax(product, getQuantity(), getDiscountCents()));
+        lineTotalCents.set(subtotal - getDiscountCents());
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package com.vastra.model;
 
+import com.vastra.service.GstCalculator;
+
 public class Product {
     private String id;
     private String name;
@@ -22,6 +24,35 @@ public class Product {
     private String createdAt;
     private String updatedAt;
 
+    public Product() {
+    }
+
+    /**
+     * Copy constructor, used to publish updated snapshots without mutating shared instances.
+     */
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.variant = other.variant;
+        this.category = other.category;
+        this.brand = other.brand;
+        this.barcode = other.barcode;
+        this.sku = other.sku;
+        this.mrpCents = other.mrpCents;
+        this.sellPriceCents = other.sellPriceCents;
+        this.purchasePriceCents = other.purchasePriceCents;
+        this.gstPercent = other.gstPercent;
+        this.hsnCode = other.hsnCode;
+        this.stock = other.stock;
+        this.reorderThreshold = other.reorderThreshold;
+        this.unit = other.unit;
+        this.description = other.description;
+        this.imagePath = other.imagePath;
+        this.isActive = other.isActive;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // Complete Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -114,8 +145,12 @@ public class Product {
     }
 
     public double calculateTaxAmount(int quantity) {
-        double base = (sellPriceCents * quantity) / 100.0;
-        return (base * gstPercent) / (100.0 + gstPercent);
+        return calculateTaxCents(quantity) / 100.0;
+    }
+
+    /** GST included in quantity units at the selling price, in paise */
+    public long calculateTaxCents(int quantity) {
+        return GstCalculator.includedTax((long) sellPriceCents * quantity, gstPercent);
     }
 
     public double calculateLineTotal(int quantity) {
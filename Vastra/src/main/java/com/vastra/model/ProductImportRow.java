@@ -0,0 +1,88 @@
+package com.vastra.model;
+
+/**
+ * One row of a product import file. Fields left empty in the file are null: a new
+ * product gets the usual defaults for them and an existing product keeps its values.
+ */
+public class ProductImportRow {
+    private final int rowNumber;
+    private String id;
+    private boolean newProduct;
+
+    private String name;
+    private String variant;
+    private String category;
+    private String brand;
+    private String barcode;
+    private String sku;
+    private Integer mrpCents;
+    private Integer sellPriceCents;
+    private Integer purchasePriceCents;
+    private Integer gstPercent;
+    private String hsnCode;
+    private Integer stock;
+    private Integer reorderThreshold;
+    private String unit;
+
+    private String error;
+
+    public ProductImportRow(int rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
+    /** Row number in the file, counting the header as row 1 */
+    public int getRowNumber() { return rowNumber; }
+
+    /** Id of the product this row creates or updates, once resolved */
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public boolean isNewProduct() { return newProduct; }
+    public void setNewProduct(boolean newProduct) { this.newProduct = newProduct; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getVariant() { return variant; }
+    public void setVariant(String variant) { this.variant = variant; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+
+    public String getBarcode() { return barcode; }
+    public void setBarcode(String barcode) { this.barcode = barcode; }
+
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+
+    public Integer getMrpCents() { return mrpCents; }
+    public void setMrpCents(Integer mrpCents) { this.mrpCents = mrpCents; }
+
+    public Integer getSellPriceCents() { return sellPriceCents; }
+    public void setSellPriceCents(Integer sellPriceCents) { this.sellPriceCents = sellPriceCents; }
+
+    public Integer getPurchasePriceCents() { return purchasePriceCents; }
+    public void setPurchasePriceCents(Integer purchasePriceCents) { this.purchasePriceCents = purchasePriceCents; }
+
+    public Integer getGstPercent() { return gstPercent; }
+    public void setGstPercent(Integer gstPercent) { this.gstPercent = gstPercent; }
+
+    public String getHsnCode() { return hsnCode; }
+    public void setHsnCode(String hsnCode) { this.hsnCode = hsnCode; }
+
+    public Integer getStock() { return stock; }
+    public void setStock(Integer stock) { this.stock = stock; }
+
+    public Integer getReorderThreshold() { return reorderThreshold; }
+    public void setReorderThreshold(Integer reorderThreshold) { this.reorderThreshold = reorderThreshold; }
+
+    public String getUnit() { return unit; }
+    public void setUnit(String unit) { this.unit = unit; }
+
+    /** Why the row cannot be imported, or null if it is valid */
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
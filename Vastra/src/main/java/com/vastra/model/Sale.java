@@ -1,4 +1,50 @@
 package com.vastra.model;
 
+import java.util.List;
+
 public class Sale {
+    private String id;
+    private String invoiceNumber;
+    private String customerId;
+    private List<CartItem> items;
+    private int discountCents;
+    private int pointsRedeemed;
+    private int pointsEarned; // set when the sale is written
+    private String paymentMode;
+
+    public Sale() {
+    }
+
+    public Sale(List<CartItem> items, String customerId, int discountCents,
+                int pointsRedeemed, String paymentMode) {
+        this.items = items;
+        this.customerId = customerId;
+        this.discountCents = discountCents;
+        this.pointsRedeemed = pointsRedeemed;
+        this.paymentMode = paymentMode;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getInvoiceNumber() { return invoiceNumber; }
+    public void setInvoiceNumber(String invoiceNumber) { this.invoiceNumber = invoiceNumber; }
+
+    public String getCustomerId() { return customerId; }
+    public void setCustomerId(String customerId) { this.customerId = customerId; }
+
+    public List<CartItem> getItems() { return items; }
+    public void setItems(List<CartItem> items) { this.items = items; }
+
+    public int getDiscountCents() { return discountCents; }
+    public void setDiscountCents(int discountCents) { this.discountCents = discountCents; }
+
+    public int getPointsRedeemed() { return pointsRedeemed; }
+    public void setPointsRedeemed(int pointsRedeemed) { this.pointsRedeemed = pointsRedeemed; }
+
+    public int getPointsEarned() { return pointsEarned; }
+    public void setPointsEarned(int pointsEarned) { this.pointsEarned = pointsEarned; }
+
+    public String getPaymentMode() { return paymentMode; }
+    public void setPaymentMode(String paymentMode) { this.paymentMode = paymentMode; }
 }
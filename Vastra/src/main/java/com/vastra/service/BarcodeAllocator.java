@@ -0,0 +1,115 @@
+package com.vastra.service;
+
+import com.vastra.dao.ProductDAO;
+import com.vastra.dao.SequenceDAO;
+import com.vastra.util.AppConfig;
+import com.vastra.util.BarcodeUtil;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out barcodes for products that have none: EAN-13 codes made of
+ * barcode.prefix, a running number and a check digit.
+ *
+ * The running number comes from a sequence in the database, reserved barcode.blockSize
+ * numbers at a time, so a code costs one database write per block and never needs a
+ * lookup to check it is unused. Within a block, codes are taken with an atomic
+ * increment, so any number of threads can allocate without locking. Numbers in a block
+ * that are not used before the application exits are skipped.
+ *
+ * The default prefix 200 is in the GS1 range for in-store codes, so it cannot clash
+ * with a manufacturer's barcode. The first block starts above the highest code with
+ * the prefix already on a product.
+ */
+public class BarcodeAllocator {
+
+    private static BarcodeAllocator instance;
+
+    private final String prefix;
+    private final int blockSize;
+    private final long maxNumber;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+    private boolean seeded;
+
+    public static synchronized BarcodeAllocator getInstance() {
+        if (instance == null) {
+            instance = new BarcodeAllocator(AppConfig.getString("barcode.prefix", "200"),
+                    AppConfig.getInt("barcode.blockSize", 100));
+        }
+        return instance;
+    }
+
+    /**
+     * Drop the reserved block, e.g. when switching to another database.
+     */
+    public static synchronized void shutdownInstance() {
+        instance = null;
+    }
+
+    public BarcodeAllocator(String prefix, int blockSize) {
+        if (!prefix.matches("\\d{1,5}")) {
+            throw new IllegalArgumentException("barcode.prefix must be 1 to 5 digits: " + prefix);
+        }
+        this.prefix = prefix;
+        this.blockSize = Math.max(1, blockSize);
+        this.maxNumber = (long) Math.pow(10, 12 - prefix.length()) - 1;
+    }
+
+    /**
+     * The next unused barcode.
+     */
+    public String next() throws SQLException {
+        while (true) {
+            Block current = block.get();
+            long number = current.next.getAndIncrement();
+            if (number < current.end) {
+                return format(number);
+            }
+            refill(current);
+        }
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Reserve a new block, unless another thread already replaced the exhausted one.
+     */
+    private synchronized void refill(Block exhausted) throws SQLException {
+        if (block.get() != exhausted) return;
+        long min = 0;
+        if (!seeded) {
+            // Once per run: skip codes added by hand, by import or by older versions
+            min = ProductDAO.maxBarcodeNumber(prefix) + 1;
+            seeded = true;
+        }
+        long start = SequenceDAO.reserve("barcode:" + prefix, blockSize, min);
+        if (start > maxNumber) {
+            throw new IllegalStateException("All barcodes with prefix " + prefix + " are used");
+        }
+        block.set(new Block(start, Math.min(start + blockSize, maxNumber + 1)));
+    }
+
+    private String format(long number) {
+        StringBuilder code = new StringBuilder(13).append(prefix);
+        String digits = Long.toString(number);
+        for (int i = prefix.length() + digits.length(); i < 12; i++) {
+            code.append('0');
+        }
+        code.append(digits);
+        return code.append(BarcodeUtil.ean13CheckDigit(code)).toString();
+    }
+
+    private static class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.vastra.service;
+
+import com.vastra.util.AppConfig;
+import com.vastra.util.BarcodeUtil;
+import javafx.scene.image.Image;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Barcode images for labels and product screens.
+ *
+ * Rendered images are kept in an LRU cache keyed by text and size, bounded by
+ * barcode.cacheSize entries, so showing or reprinting a label does not run the encoder
+ * again. renderAll() renders a whole label sheet in parallel on a fork-join pool of
+ * barcode.threads workers (default: one per core).
+ *
+ * Returned images are shared and must not be written to.
+ */
+public class BarcodeImageService {
+
+    private static BarcodeImageService instance;
+
+    private final int maxEntries;
+    private final ForkJoinPool pool;
+    private final Map<String, Image> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public static synchronized BarcodeImageService getInstance() {
+        if (instance == null) {
+            instance = new BarcodeImageService(
+                    AppConfig.getInt("barcode.cacheSize", 2048),
+                    AppConfig.getInt("barcode.threads", Runtime.getRuntime().availableProcessors()));
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.pool.shutdown();
+            instance = null;
+        }
+    }
+
+    public BarcodeImageService(int maxEntries, int threads) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.pool = new ForkJoinPool(Math.max(1, threads), pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("barcode-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        // Access order: get() moves an entry to the end, the eldest is evicted
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                return size() > BarcodeImageService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Code 128 image for text, from the cache when it has been rendered at this size before.
+     * Returns null if the text cannot be encoded.
+     */
+    public Image getImage(String text, int width, int height) {
+        String key = width + "x" + height + ":" + text;
+        synchronized (cache) {
+            Image image = cache.get(key);
+            if (image != null) {
+                hits.increment();
+                return image;
+            }
+        }
+        misses.increment();
+        // Rendered outside the lock; two threads may render the same code once each
+        Image image = BarcodeUtil.generateBarcodeImage(text, width, height);
+        if (image != null) {
+            synchronized (cache) {
+                cache.put(key, image);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Images for many codes at once, in the same order (null for codes that cannot be
+     * encoded). Rendering is split across the pool; cached codes are not rendered again.
+     */
+    public List<Image> renderAll(List<String> texts, int width, int height) {
+        try {
+            return pool.submit(() -> texts.parallelStream()
+                            .map(text -> getImage(text, width, height))
+                            .collect(ArrayList<Image>::new, ArrayList::add, ArrayList::addAll))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering barcodes", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Barcode rendering failed", e.getCause());
+        }
+    }
+
+    /** Fork-join pool for other parallel label work (e.g. page rendering) */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    @Override
+    public String toString() {
+        return String.format("BarcodeImageService[%d cached, %d hits, %d misses]", size(), getHits(), getMisses());
+    }
+}
@@ -1,4 +1,171 @@
 package com.vastra.service;
 
+import com.vastra.dao.CustomerDAO;
+import com.vastra.dao.ProductDAO;
+import com.vastra.model.Customer;
+import com.vastra.model.Product;
+import com.vastra.model.Sale;
+import com.vastra.util.AppConfig;
+import com.vastra.util.LatencyHistogram;
+import com.vastra.util.Metrics;
+import javafx.application.Platform;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous front end to the DAOs for the billing screen.
+ *
+ * Database work runs on a small pool of background threads so a slow disk never blocks
+ * the JavaFX application thread. Every method returns a CompletableFuture that completes
+ * on the callback executor (the FX thread in the application), so callers can update
+ * controls directly in whenComplete/thenAccept.
+ *
+ * Scans go through a single-threaded lane: lookups run and complete in the order the
+ * codes were scanned, even when one of them has to fall back to the database.
+ *
+ * Cancelling a returned future skips the task if it has not started yet and interrupts
+ * it if it is waiting for a connection. A sale that has been handed to the SaleWriter
+ * cannot be cancelled.
+ */
 public class BillingService {
+
+    private static final LatencyHistogram SALE_COMMIT = Metrics.histogram("vastra_sale_commit_seconds",
+            "Time from completing a sale until its transaction has committed");
+    private static final Metrics.Counter SALES_COMMITTED = Metrics.counter("vastra_sales_total",
+            "Sales completed on the till, by outcome", "result", "committed");
+    private static final Metrics.Counter SALES_FAILED = Metrics.counter("vastra_sales_total",
+            "Sales completed on the till, by outcome", "result", "failed");
+
+    private static BillingService instance;
+
+    private final ExecutorService workers;
+    private final ExecutorService scanLane;
+    private final Executor callbackExecutor;
+
+    public static synchronized BillingService getInstance() {
+        if (instance == null) {
+            instance = new BillingService(AppConfig.getInt("billing.threads", 4), Platform::runLater);
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    /**
+     * @param threads          background threads for database work
+     * @param callbackExecutor where returned futures are completed, e.g. Platform::runLater
+     */
+    public BillingService(int threads, Executor callbackExecutor) {
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), daemonThreads("billing-worker"));
+        this.scanLane = Executors.newSingleThreadExecutor(daemonThreads("billing-scan"));
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Resolve a scanned code by barcode or SKU. Results arrive in scan order.
+     */
+    public CompletableFuture<Product> lookupProduct(String code) {
+        return run(scanLane, () -> ProductCatalogCache.getInstance().lookup(code));
+    }
+
+    public CompletableFuture<List<Product>> searchProducts(String query) {
+        return run(workers, () -> ProductDAO.searchByName(query));
+    }
+
+    public CompletableFuture<List<Product>> getLowStockProducts() {
+        return run(workers, LowStockTracker.getInstance()::getLowStockProducts);
+    }
+
+    public CompletableFuture<List<Product>> getAllProducts() {
+        return run(workers, ProductDAO::getAllProducts);
+    }
+
+    public CompletableFuture<Customer> findCustomerByPhone(String phone) {
+        return run(workers, () -> CustomerDAO.findByPhone(phone));
+    }
+
+    public CompletableFuture<Customer> findCustomer(String customerId) {
+        return run(workers, () -> CustomerDAO.findById(customerId));
+    }
+
+    public CompletableFuture<Customer> createCustomer(String name, String phone, String email) {
+        return run(workers, () -> CustomerDAO.createCustomer(name, phone, email));
+    }
+
+    /**
+     * Queue a sale with the SaleWriter. Completes with the sale id once it has committed;
+     * the sale's invoice number is set by then.
+     */
+    public CompletableFuture<String> completeSale(Sale sale) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        SaleWriter.getInstance().submit(sale).whenComplete((saleId, error) -> {
+            SALE_COMMIT.recordSince(start);
+            (error != null ? SALES_FAILED : SALES_COMMITTED).increment();
+            callbackExecutor.execute(() -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(saleId);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Stop accepting work. Tasks already running are given a moment to finish.
+     */
+    public void shutdown() {
+        scanLane.shutdown();
+        workers.shutdown();
+        try {
+            scanLane.awaitTermination(2, TimeUnit.SECONDS);
+            workers.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> run(ExecutorService executor, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            if (result.isDone()) return; // cancelled while queued
+            try {
+                T value = task.call();
+                callbackExecutor.execute(() -> result.complete(value));
+            } catch (Throwable e) {
+                callbackExecutor.execute(() -> result.completeExceptionally(e));
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
 }
@@ -0,0 +1,93 @@
+package com.vastra.service;
+
+/**
+ * Reusable result of GstCalculator.compute(): bill totals plus a breakup by GST rate,
+ * as printed on a tax invoice. All amounts in paise. Backed by fixed arrays, so
+ * recomputing into the same instance allocates nothing.
+ */
+public class CartTotals {
+
+    private long subtotalCents;
+    private long lineDiscountCents;
+    private long taxCents;
+    private long billDiscountCents;
+    private int lineCount;
+
+    // Per-rate accumulators indexed by rate percent, and the rates used so far in order
+    private final long[] taxableByRate = new long[GstCalculator.MAX_RATE + 1];
+    private final long[] taxByRate = new long[GstCalculator.MAX_RATE + 1];
+    private final boolean[] rateUsed = new boolean[GstCalculator.MAX_RATE + 1];
+    private final int[] rates = new int[GstCalculator.MAX_RATE + 1];
+    private int rateCount;
+
+    public void reset() {
+        for (int i = 0; i < rateCount; i++) {
+            int rate = rates[i];
+            taxableByRate[rate] = 0;
+            taxByRate[rate] = 0;
+            rateUsed[rate] = false;
+        }
+        rateCount = 0;
+        subtotalCents = 0;
+        lineDiscountCents = 0;
+        taxCents = 0;
+        billDiscountCents = 0;
+        lineCount = 0;
+    }
+
+    void addLine(int rate, long grossCents, long discountCents, long lineTaxCents) {
+        if (!rateUsed[rate]) {
+            rateUsed[rate] = true;
+            rates[rateCount++] = rate;
+        }
+        long amount = grossCents - discountCents;
+        taxableByRate[rate] += amount - lineTaxCents;
+        taxByRate[rate] += lineTaxCents;
+        subtotalCents += grossCents;
+        lineDiscountCents += discountCents;
+        taxCents += lineTaxCents;
+        lineCount++;
+    }
+
+    void setBillDiscount(long cents) {
+        billDiscountCents = cents;
+    }
+
+    /** Sum of price times quantity, tax included */
+    public long getSubtotalCents() { return subtotalCents; }
+    public long getLineDiscountCents() { return lineDiscountCents; }
+    public long getBillDiscountCents() { return billDiscountCents; }
+    public long getTaxCents() { return taxCents; }
+    public long getCgstCents() { return taxCents - getSgstCents(); }
+    public int getLineCount() { return lineCount; }
+
+    /** Sum of the per-rate SGST amounts, so it matches the rate breakup */
+    public long getSgstCents() {
+        long sgst = 0;
+        for (int i = 0; i < rateCount; i++) {
+            sgst += GstCalculator.sgst(taxByRate[rates[i]]);
+        }
+        return sgst;
+    }
+
+    /** Value of the goods before tax */
+    public long getTaxableCents() {
+        return subtotalCents - lineDiscountCents - taxCents;
+    }
+
+    /** Amount payable */
+    public long getTotalCents() {
+        return subtotalCents - lineDiscountCents - billDiscountCents;
+    }
+
+    /** Number of distinct GST rates on the bill */
+    public int getRateCount() { return rateCount; }
+
+    /** i-th distinct rate, in the order first seen on the bill */
+    public int getRate(int i) { return rates[i]; }
+
+    public long getTaxableCentsForRate(int rate) { return taxableByRate[rate]; }
+    public long getTaxCentsForRate(int rate) { return taxByRate[rate]; }
+    public long getCgstCentsForRate(int rate) { return GstCalculator.cgst(taxByRate[rate]); }
+    public long getSgstCentsForRate(int rate) { return GstCalculator.sgst(taxByRate[rate]); }
+}
@@ -0,0 +1,509 @@
+package com.vastra.service;
+
+import com.vastra.dao.CustomerChangeListener;
+import com.vastra.dao.CustomerDAO;
+import com.vastra.model.Customer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory directory of active customers for search-as-you-type: by the first digits of
+ * their phone number or by the start of any word of their name.
+ *
+ * Only what a suggestion shows is kept (id, name, phone and points), in flat arrays
+ * indexed by slot instead of an object per customer: about 80 bytes a customer, so
+ * 500,000 customers take some 40 MB.
+ * <ul>
+ *   <li>Phone numbers are reduced to their digits (without +91 or a leading 0) and
+ *   packed into one long each, in an order where all numbers starting with the same
+ *   digits are contiguous. Slots sorted by that key are a digit trie flattened into an
+ *   array: a prefix is two binary searches from its matches, which come out in phone
+ *   number order.</li>
+ *   <li>Names share one char array. Every word start is an entry (slot and offset)
+ *   sorted by the case-folded text from there, so a name prefix is a range too.</li>
+ * </ul>
+ *
+ * Loaded once at startup and kept current through CustomerDAO notifications: new
+ * customers, addPoints, redeemPoints and the points of committed sales.
+ */
+public class CustomerDirectory implements CustomerChangeListener {
+
+    /**
+     * A suggested customer. Fetch the full record with CustomerDAO.findById.
+     */
+    public static final class Match {
+        private final String id;
+        private final String name;
+        private final String phone;
+        private final int points;
+
+        Match(String id, String name, String phone, int points) {
+            this.id = id;
+            this.name = name;
+            this.phone = phone;
+            this.points = points;
+        }
+
+        public String getId() { return id; }
+        public String getName() { return name; }
+        /** The normalised number, digits only */
+        public String getPhone() { return phone; }
+        public int getPoints() { return points; }
+
+        @Override
+        public String toString() {
+            return name + "  " + phone + "  (" + points + " points)";
+        }
+    }
+
+    private static final int MAX_DIGITS = 15;
+    private static final long[] POW11 = new long[MAX_DIGITS + 1];
+    // Candidates checked against the words after the first before giving up, so a broad
+    // first word does not walk a range of thousands
+    private static final int MAX_SCANNED = 10_000;
+
+    static {
+        POW11[0] = 1;
+        for (int i = 1; i <= MAX_DIGITS; i++) POW11[i] = POW11[i - 1] * 11;
+    }
+
+    private static CustomerDirectory instance;
+
+    private Index index = new Index(); // guarded by this
+    private volatile boolean loaded;
+
+    public static synchronized CustomerDirectory getInstance() {
+        if (instance == null) {
+            instance = new CustomerDirectory();
+            CustomerDAO.addChangeListener(instance);
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            CustomerDAO.removeChangeListener(instance);
+            instance = null;
+        }
+    }
+
+    /**
+     * (Re)load every active customer from the database.
+     */
+    public void load() throws SQLException {
+        Index built = new Index();
+        CustomerDAO.forEachCustomerSummary(built::append);
+        built.sort();
+        built.trim();
+        synchronized (this) {
+            index = built;
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Up to limit customers whose phone number starts with text, if it looks like a
+     * phone number, otherwise whose name has a word starting with each word of text.
+     */
+    public List<Match> suggest(String text, int limit) {
+        String digits = phonePrefix(text);
+        return digits != null ? searchPhone(digits, limit) : searchName(text, limit);
+    }
+
+    /**
+     * Up to limit customers whose normalised phone number starts with digits, in number order.
+     */
+    public synchronized List<Match> searchPhone(String digits, int limit) {
+        List<Match> matches = new ArrayList<>();
+        if (digits.length() > MAX_DIGITS) return matches;
+        long low = encode(digits);
+        long high = low + POW11[MAX_DIGITS - digits.length()];
+        Index ix = index;
+        for (int i = ix.phoneLowerBound(low); i < ix.count && matches.size() < limit; i++) {
+            int slot = (int) ix.byPhone[i];
+            if (ix.phoneKeys[slot] >= high) break;
+            matches.add(ix.match(slot));
+        }
+        return matches;
+    }
+
+    /**
+     * Up to limit customers with a name word starting with the first word of text and,
+     * for every other word of text, a name word starting with it. Names with the words
+     * in the order typed come first; each group is ordered by name from the matching word on.
+     */
+    public synchronized List<Match> searchName(String text, int limit) {
+        List<Match> matches = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        for (String w : fold(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!w.isEmpty()) words.add(w);
+        }
+        if (words.isEmpty()) return matches;
+
+        Index ix = index;
+        List<Integer> seen = new ArrayList<>();
+        List<char[]> query = new ArrayList<>();
+        for (String w : words) query.add(w.toCharArray());
+        if (query.size() > 1) {
+            // "vikram re" is one run of tokens; scanning all of "vikram" could stop short of it
+            collect(ix, String.join(" ", words).toCharArray(), List.of(), limit, matches, seen);
+        }
+        collect(ix, query.get(0), query, limit, matches, seen);
+        return matches;
+    }
+
+    /** Add the customers with a token starting with prefix whose names also have the words after query's first */
+    private static void collect(Index ix, char[] prefix, List<char[]> query, int limit,
+                                List<Match> matches, List<Integer> seen) {
+        int end = ix.tokenUpperBound(prefix);
+        for (int i = ix.tokenLowerBound(prefix), scanned = 0;
+             i < end && matches.size() < limit && scanned < MAX_SCANNED; i++, scanned++) {
+            int slot = (int) (ix.tokens[i] >>> 16);
+            if (seen.contains(slot)) continue; // already matched on another word
+            if (ix.nameHasWords(slot, query)) {
+                seen.add(slot);
+                matches.add(ix.match(slot));
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return index.count;
+    }
+
+    /**
+     * Heap held by the directory's arrays, in bytes.
+     */
+    public synchronized long estimateMemoryBytes() {
+        return index.memoryBytes();
+    }
+
+    @Override
+    public synchronized void customerCreated(Customer customer) {
+        index.insert(customer);
+    }
+
+    @Override
+    public synchronized void pointsChanged(String customerId, int delta) {
+        int slot = index.slotOf(customerId);
+        if (slot >= 0) {
+            index.points[slot] += delta;
+        }
+    }
+
+    /**
+     * Digits of a phone number as stored in the directory: +91 (on a 12 digit number) or
+     * a trunk 0 (on an 11 digit one) is dropped, and at most 15 digits are kept.
+     */
+    public static String normalizePhone(String phone) {
+        if (phone == null) return "";
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        if (sb.length() == 12 && sb.charAt(0) == '9' && sb.charAt(1) == '1') {
+            sb.delete(0, 2);
+        } else if (sb.length() == 11 && sb.charAt(0) == '0') {
+            sb.deleteCharAt(0);
+        }
+        if (sb.length() > MAX_DIGITS) sb.setLength(MAX_DIGITS);
+        return sb.toString();
+    }
+
+    /** The digits to search for if text is (the start of) a phone number, else null */
+    static String phonePrefix(String text) {
+        if (text == null) return null;
+        String t = text.strip();
+        boolean digit = false;
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (c >= '0' && c <= '9') digit = true;
+            else if ("+-() ".indexOf(c) < 0) return null;
+        }
+        if (!digit) return null;
+        // Only part of the number may have been typed, so the length rules of
+        // normalizePhone cannot tell whether it starts with the country code
+        String digits = t.startsWith("+91") ? normalizePhone(t.substring(3)) : normalizePhone(t);
+        int zeros = 0;
+        while (zeros < digits.length() && digits.charAt(zeros) == '0') zeros++;
+        return digits.substring(zeros);
+    }
+
+    /** Each digit d at position i adds (d + 1) * 11^(14 - i), so a prefix is a range of keys */
+    static long encode(String digits) {
+        long key = 0;
+        for (int i = 0; i < digits.length() && i < MAX_DIGITS; i++) {
+            key += (digits.charAt(i) - '0' + 1) * POW11[MAX_DIGITS - 1 - i];
+        }
+        return key;
+    }
+
+    static String decode(long key) {
+        StringBuilder sb = new StringBuilder(MAX_DIGITS);
+        for (int i = MAX_DIGITS - 1; i >= 0; i--) {
+            int d = (int) (key / POW11[i] % 11);
+            if (d == 0) break;
+            sb.append((char) ('0' + d - 1));
+        }
+        return sb.toString();
+    }
+
+    private static String fold(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) sb.append(Character.toLowerCase(s.charAt(i)));
+        return sb.toString();
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    @FunctionalInterface
+    private interface LongOrder {
+        int compare(long a, long b);
+    }
+
+    /**
+     * The arrays. Slots are numbered in id order, which is also the order customers are
+     * created in, so a new customer is appended.
+     */
+    private static final class Index {
+        int count;
+        long[] ids = new long[16];
+        long[] phoneKeys = new long[16];
+        int[] points = new int[16];
+        int[] nameStart = new int[17]; // slot i's name is names[nameStart[i], nameStart[i + 1])
+        char[] names = new char[256];
+        long[] byPhone = new long[16]; // slots by phone key, then slot
+        int tokenCount;
+        long[] tokens = new long[16]; // slot << 16 | offset of a word start, by folded text from there
+
+        /** Add a customer in a free slot without sorting; sort() before searching */
+        void append(Customer c) {
+            long id;
+            try {
+                id = Long.parseLong(c.getId());
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (count > 0 && id <= ids[count - 1]) {
+                // Ids only grow (integer primary keys), so this is a duplicate notification
+                return;
+            }
+            if (count == ids.length) {
+                int capacity = count + (count >> 1) + 16;
+                ids = Arrays.copyOf(ids, capacity);
+                phoneKeys = Arrays.copyOf(phoneKeys, capacity);
+                points = Arrays.copyOf(points, capacity);
+                nameStart = Arrays.copyOf(nameStart, capacity + 1);
+                byPhone = Arrays.copyOf(byPhone, capacity);
+            }
+            String name = c.getName() != null ? c.getName() : "";
+            int start = nameStart[count];
+            if (start + name.length() > names.length) {
+                names = Arrays.copyOf(names, Math.max(start + name.length(), names.length + (names.length >> 1)));
+            }
+            name.getChars(0, name.length(), names, start);
+
+            int slot = count++;
+            ids[slot] = id;
+            phoneKeys[slot] = encode(normalizePhone(c.getPhone()));
+            points[slot] = c.getPoints();
+            nameStart[count] = start + name.length();
+            byPhone[slot] = slot;
+            for (int o = 0; o < name.length() && o <= 0xFFFF; o++) {
+                if (isWordChar(name.charAt(o)) && (o == 0 || !isWordChar(name.charAt(o - 1)))) {
+                    if (tokenCount == tokens.length) {
+                        tokens = Arrays.copyOf(tokens, tokenCount + (tokenCount >> 1) + 16);
+                    }
+                    tokens[tokenCount++] = (long) slot << 16 | o;
+                }
+            }
+        }
+
+        /** Append a customer and move its entries into place in the sorted arrays */
+        void insert(Customer c) {
+            int slot = count;
+            int tokensBefore = tokenCount;
+            append(c);
+            if (count == slot) return; // not added
+
+            int at = phoneUpperBound(phoneKeys[slot]);
+            System.arraycopy(byPhone, at, byPhone, at + 1, slot - at);
+            byPhone[at] = slot;
+
+            for (int t = tokensBefore; t < tokenCount; t++) {
+                long token = tokens[t];
+                int pos = tokenInsertPoint(token, t);
+                System.arraycopy(tokens, pos, tokens, pos + 1, t - pos);
+                tokens[pos] = token;
+            }
+        }
+
+        void sort() {
+            mergeSort(byPhone, count, this::comparePhone);
+            mergeSort(tokens, tokenCount, this::compareTokens);
+        }
+
+        /** Drop most of the growth headroom left by loading */
+        void trim() {
+            int capacity = count + (count >> 3) + 16;
+            ids = Arrays.copyOf(ids, capacity);
+            phoneKeys = Arrays.copyOf(phoneKeys, capacity);
+            points = Arrays.copyOf(points, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity + 1);
+            byPhone = Arrays.copyOf(byPhone, capacity);
+            names = Arrays.copyOf(names, nameStart[count] + (nameStart[count] >> 3) + 256);
+            tokens = Arrays.copyOf(tokens, tokenCount + (tokenCount >> 3) + 16);
+        }
+
+        int slotOf(String customerId) {
+            long id;
+            try {
+                id = Long.parseLong(customerId);
+            } catch (NumberFormatException | NullPointerException e) {
+                return -1;
+            }
+            int slot = Arrays.binarySearch(ids, 0, count, id);
+            return slot >= 0 ? slot : -1;
+        }
+
+        Match match(int slot) {
+            return new Match(Long.toString(ids[slot]),
+                    new String(names, nameStart[slot], nameStart[slot + 1] - nameStart[slot]),
+                    decode(phoneKeys[slot]), points[slot]);
+        }
+
+        /** Whether every word of query after the first starts a word of the slot's name */
+        boolean nameHasWords(int slot, List<char[]> query) {
+            for (int q = 1; q < query.size(); q++) {
+                char[] word = query.get(q);
+                boolean found = false;
+                for (int i = nameStart[slot]; i < nameStart[slot + 1] && !found; i++) {
+                    if (isWordChar(names[i]) && (i == nameStart[slot] || !isWordChar(names[i - 1]))) {
+                        found = comparePrefix(slot, i - nameStart[slot], word) == 0;
+                    }
+                }
+                if (!found) return false;
+            }
+            return true;
+        }
+
+        int phoneLowerBound(long key) {
+            int lo = 0, hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (phoneKeys[(int) byPhone[mid]] < key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private int phoneUpperBound(long key) {
+            int lo = 0, hi = count - 1; // the new slot itself is not in byPhone yet
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (phoneKeys[(int) byPhone[mid]] <= key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        int tokenLowerBound(char[] prefix) {
+            int lo = 0, hi = tokenCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (comparePrefix(tokens[mid], prefix) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        int tokenUpperBound(char[] prefix) {
+            int lo = 0, hi = tokenCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (comparePrefix(tokens[mid], prefix) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /** Where token goes among the first n (sorted) tokens */
+        private int tokenInsertPoint(long token, int n) {
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareTokens(tokens[mid], token) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private int comparePrefix(long token, char[] prefix) {
+            return comparePrefix((int) (token >>> 16), (int) (token & 0xFFFF), prefix);
+        }
+
+        /** The folded name of slot from offset on against prefix: 0 if it starts with it */
+        private int comparePrefix(int slot, int offset, char[] prefix) {
+            int start = nameStart[slot] + offset;
+            int end = nameStart[slot + 1];
+            for (int i = 0; i < prefix.length; i++) {
+                if (start + i >= end) return -1;
+                char c = Character.toLowerCase(names[start + i]);
+                if (c != prefix[i]) return c < prefix[i] ? -1 : 1;
+            }
+            return 0;
+        }
+
+        private int compareTokens(long a, long b) {
+            int slotA = (int) (a >>> 16), slotB = (int) (b >>> 16);
+            int i = nameStart[slotA] + (int) (a & 0xFFFF), endA = nameStart[slotA + 1];
+            int j = nameStart[slotB] + (int) (b & 0xFFFF), endB = nameStart[slotB + 1];
+            for (; i < endA && j < endB; i++, j++) {
+                char x = Character.toLowerCase(names[i]);
+                char y = Character.toLowerCase(names[j]);
+                if (x != y) return x < y ? -1 : 1;
+            }
+            if (i < endA) return 1;
+            if (j < endB) return -1;
+            return Long.compare(a, b);
+        }
+
+        private int comparePhone(long slotA, long slotB) {
+            int c = Long.compare(phoneKeys[(int) slotA], phoneKeys[(int) slotB]);
+            return c != 0 ? c : Long.compare(slotA, slotB);
+        }
+
+        long memoryBytes() {
+            return 8L * ids.length + 8L * phoneKeys.length + 4L * points.length + 4L * nameStart.length
+                    + 2L * names.length + 8L * byPhone.length + 8L * tokens.length;
+        }
+
+        private static void mergeSort(long[] a, int n, LongOrder order) {
+            long[] buffer = new long[n];
+            for (int width = 1; width < n; width *= 2) {
+                for (int lo = 0; lo < n - width; lo += 2 * width) {
+                    int mid = lo + width;
+                    int hi = Math.min(lo + 2 * width, n);
+                    if (order.compare(a[mid - 1], a[mid]) <= 0) continue; // already in order
+                    System.arraycopy(a, lo, buffer, lo, hi - lo);
+                    int i = lo, j = mid, k = lo;
+                    while (i < mid && j < hi) {
+                        a[k++] = order.compare(buffer[i], buffer[j]) <= 0 ? buffer[i++] : buffer[j++];
+                    }
+                    while (i < mid) a[k++] = buffer[i++];
+                    while (j < hi) a[k++] = buffer[j++];
+                }
+            }
+        }
+    }
+}
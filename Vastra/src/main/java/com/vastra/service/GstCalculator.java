@@ -0,0 +1,136 @@
+package com.vastra.service;
+
+import com.vastra.model.CartItem;
+import com.vastra.model.Product;
+import com.vastra.util.AppConfig;
+
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Integer money and GST arithmetic. All amounts are long paise (cents); no double is
+ * used anywhere, so the cart, the receipt and the stored sale agree to the paisa.
+ *
+ * Selling prices are GST-inclusive, so a line's tax is the GST part of its amount:
+ * amount * rate / (100 + rate), rounded once per line with an explicit RoundingMode
+ * (tax.rounding in application.properties, HALF_UP by default).
+ *
+ * Intra-state tax is split into CGST and SGST at half the rate each. The two halves
+ * always add up to the line tax: SGST is rounded down and CGST takes the odd paisa.
+ */
+public final class GstCalculator {
+
+    /** Highest rate accepted; any whole percent up to this works, not just the GST slabs */
+    public static final int MAX_RATE = 100;
+
+    private static final RoundingMode DEFAULT_ROUNDING =
+            RoundingMode.valueOf(AppConfig.getString("tax.rounding", "HALF_UP"));
+
+    private GstCalculator() {
+    }
+
+    public static RoundingMode getDefaultRounding() {
+        return DEFAULT_ROUNDING;
+    }
+
+    /**
+     * GST contained in a tax-inclusive amount.
+     */
+    public static long includedTax(long amountCents, int ratePercent) {
+        return includedTax(amountCents, ratePercent, DEFAULT_ROUNDING);
+    }
+
+    public static long includedTax(long amountCents, int ratePercent, RoundingMode mode) {
+        checkRate(ratePercent);
+        return divide(amountCents * ratePercent, 100 + ratePercent, mode);
+    }
+
+    /**
+     * GST to add on top of a tax-exclusive amount.
+     */
+    public static long addedTax(long amountCents, int ratePercent, RoundingMode mode) {
+        checkRate(ratePercent);
+        return divide(amountCents * ratePercent, 100, mode);
+    }
+
+    /**
+     * Tax for one cart line: price times quantity, less the line discount.
+     */
+    public static long lineTax(Product product, int quantity, long lineDiscountCents) {
+        long amount = (long) product.getSellPriceCents() * quantity - lineDiscountCents;
+        return includedTax(amount, product.getGstPercent());
+    }
+
+    /** CGST half of an intra-state tax amount */
+    public static long cgst(long taxCents) {
+        return taxCents - sgst(taxCents);
+    }
+
+    /** SGST half of an intra-state tax amount */
+    public static long sgst(long taxCents) {
+        return Math.floorDiv(taxCents, 2);
+    }
+
+    /**
+     * Totals for a whole cart, written into the caller's CartTotals. Allocates nothing,
+     * so the same CartTotals can be reused for every recalculation.
+     *
+     * The bill discount (including redeemed points) comes off the total after tax;
+     * it does not change the tax of the lines.
+     */
+    public static void compute(List<CartItem> items, long billDiscountCents, CartTotals out) {
+        out.reset();
+        for (int i = 0, n = items.size(); i < n; i++) {
+            CartItem item = items.get(i);
+            Product product = item.getProduct();
+            long gross = (long) product.getSellPriceCents() * item.getQuantity();
+            long discount = item.getDiscountCents();
+            long tax = includedTax(gross - discount, product.getGstPercent());
+            out.addLine(product.getGstPercent(), gross, discount, tax);
+        }
+        out.setBillDiscount(billDiscountCents);
+    }
+
+    /**
+     * numerator / divisor rounded with the given mode, for a positive divisor.
+     */
+    public static long divide(long numerator, long divisor, RoundingMode mode) {
+        if (divisor <= 0) {
+            throw new IllegalArgumentException("Divisor must be positive: " + divisor);
+        }
+        long q = Math.floorDiv(numerator, divisor);
+        long r = numerator - q * divisor; // 0 <= r < divisor
+        if (r == 0) return q;
+
+        switch (mode) {
+            case FLOOR:
+                return q;
+            case CEILING:
+                return q + 1;
+            case DOWN:
+                return numerator < 0 ? q + 1 : q;
+            case UP:
+                return numerator < 0 ? q : q + 1;
+            case HALF_UP:
+            case HALF_DOWN:
+            case HALF_EVEN: {
+                long twice = 2 * r;
+                if (twice > divisor) return q + 1;
+                if (twice < divisor) return q;
+                // Exactly half way between q and q + 1
+                if (mode == RoundingMode.HALF_EVEN) return (q & 1) == 0 ? q : q + 1;
+                boolean awayFromZeroIsUp = numerator >= 0;
+                return (mode == RoundingMode.HALF_UP) == awayFromZeroIsUp ? q + 1 : q;
+            }
+            case UNNECESSARY:
+            default:
+                throw new ArithmeticException("Rounding necessary: " + numerator + " / " + divisor);
+        }
+    }
+
+    private static void checkRate(int ratePercent) {
+        if (ratePercent < 0 || ratePercent > MAX_RATE) {
+            throw new IllegalArgumentException("Unsupported GST rate: " + ratePercent);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.vastra.service;
+
+/**
+ * Which products to print labels for.
+ */
+public class LabelFilter {
+
+    public enum Selection {
+        ALL("All products"),
+        NEW_STOCK("New stock since last print"),
+        CHANGED("Changed since last print");
+
+        private final String label;
+
+        Selection(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final String category;
+    private final Selection selection;
+
+    /**
+     * @param category only this category, or null for all categories
+     */
+    public LabelFilter(String category, Selection selection) {
+        this.category = category;
+        this.selection = selection;
+    }
+
+    public String getCategory() { return category; }
+    public Selection getSelection() { return selection; }
+}
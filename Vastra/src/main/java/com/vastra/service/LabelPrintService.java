@@ -0,0 +1,170 @@
+package com.vastra.service;
+
+import com.vastra.dao.ProductDAO;
+import com.vastra.dao.SettingsDAO;
+import com.vastra.model.Product;
+import com.vastra.util.AppConfig;
+import com.vastra.util.LabelLayout;
+import com.vastra.util.LabelSheet;
+import javafx.application.Platform;
+
+import javax.print.PrintService;
+import javax.print.PrintServiceLookup;
+import java.awt.print.PrinterJob;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prints barcode label sheets.
+ *
+ * The products matching a LabelFilter are laid out with the configured LabelLayout and
+ * sent as one print job; pages are rendered in parallel on the BarcodeImageService pool
+ * just ahead of the printer. All of it runs off the FX thread. After a successful print
+ * the time is saved in store_settings, which is what "new stock" and "changed" filters
+ * compare against: labels_last_printed_at for a print of every category, and
+ * labels_last_printed_at:<category> for a print of one. A category's labels count as
+ * printed at the later of the two.
+ *
+ * With labels.outputDir set, pages are written there as PNG files instead of printed.
+ */
+public class LabelPrintService {
+
+    static final String LAST_PRINTED_KEY = "labels_last_printed_at";
+
+    // Same format as SQLite datetime('now'), which products' timestamps use
+    private static final DateTimeFormatter SQL_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static LabelPrintService instance;
+
+    private final ExecutorService printThread;
+    private final Executor callbackExecutor;
+
+    public static synchronized LabelPrintService getInstance() {
+        if (instance == null) {
+            instance = new LabelPrintService(Platform::runLater);
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.printThread.shutdownNow();
+            instance = null;
+        }
+    }
+
+    public LabelPrintService(Executor callbackExecutor) {
+        this.printThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "label-printer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * When labels of every category were last printed (UTC, SQLite datetime format), or
+     * null if never.
+     */
+    public CompletableFuture<String> getLastPrintedAt() {
+        return run(() -> SettingsDAO.get(LAST_PRINTED_KEY, null));
+    }
+
+    public CompletableFuture<List<String>> getCategories() {
+        return run(ProductDAO::getCategories);
+    }
+
+    /**
+     * Print labels for the matching products in a single job. Completes with the number
+     * of labels printed (0 if nothing matched).
+     */
+    public CompletableFuture<Integer> print(LabelFilter filter) {
+        return run(() -> printNow(filter));
+    }
+
+    private int printNow(LabelFilter filter) throws Exception {
+        // Taken before the query, so products changed while printing are picked up next time
+        String startedAt = LocalDateTime.now(ZoneOffset.UTC).format(SQL_TIME);
+        String since = lastPrintedAt(filter.getCategory());
+        List<Product> products = ProductDAO.getProductsForLabels(filter.getCategory(),
+                filter.getSelection() == LabelFilter.Selection.NEW_STOCK ? since : null,
+                filter.getSelection() == LabelFilter.Selection.CHANGED ? since : null);
+        if (products.isEmpty()) {
+            return 0;
+        }
+
+        BarcodeImageService barcodes = BarcodeImageService.getInstance();
+        LabelSheet sheet = new LabelSheet(products, LabelLayout.fromConfig(),
+                AppConfig.getInt("labels.dpi", 300), barcodes.getPool(),
+                2 * barcodes.getPool().getParallelism());
+
+        String outputDir = AppConfig.getString("labels.outputDir", null);
+        if (outputDir != null) {
+            sheet.savePages(Paths.get(outputDir));
+        } else {
+            PrinterJob job = PrinterJob.getPrinterJob();
+            PrintService service = findPrinter();
+            if (service == null) {
+                throw new IllegalStateException("No printer available");
+            }
+            job.setPrintService(service);
+            job.setJobName("Barcode labels (" + products.size() + ")");
+            job.setPrintable(sheet, sheet.getPageFormat());
+            job.print();
+        }
+
+        // Only the printed category: the others still have labels waiting
+        SettingsDAO.set(lastPrintedKey(filter.getCategory()), startedAt);
+        return products.size();
+    }
+
+    static String lastPrintedKey(String category) {
+        return category == null ? LAST_PRINTED_KEY : LAST_PRINTED_KEY + ":" + category;
+    }
+
+    /**
+     * When the labels of category (null for every category) were last printed, by a
+     * print of that category or of all of them, whichever was later.
+     */
+    static String lastPrintedAt(String category) throws SQLException {
+        String all = SettingsDAO.get(LAST_PRINTED_KEY, null);
+        if (category == null) return all;
+        String own = SettingsDAO.get(lastPrintedKey(category), null);
+        // Same fixed-width format, so the strings sort by time
+        return own == null || all != null && all.compareTo(own) > 0 ? all : own;
+    }
+
+    private static PrintService findPrinter() {
+        String name = AppConfig.getString("labels.printer", "");
+        if (!name.isEmpty()) {
+            for (PrintService s : PrintServiceLookup.lookupPrintServices(null, null)) {
+                if (s.getName().equalsIgnoreCase(name)) {
+                    return s;
+                }
+            }
+        }
+        return PrintServiceLookup.lookupDefaultPrintService();
+    }
+
+    private <T> CompletableFuture<T> run(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        printThread.execute(() -> {
+            try {
+                T value = task.call();
+                callbackExecutor.execute(() -> result.complete(value));
+            } catch (Throwable e) {
+                callbackExecutor.execute(() -> result.completeExceptionally(e));
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+package com.vastra.service;
+
+import com.vastra.dao.ProductChangeListener;
+import com.vastra.dao.ProductDAO;
+import com.vastra.model.Product;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Live list of active products at or below their reorder threshold.
+ *
+ * load() reads the stock level and threshold of every active product and the low stock
+ * products themselves (through idx_products_low_stock). After that the list is kept
+ * current from ProductDAO change notifications, so sales, imports, stock adjustments and
+ * product edits move products in and out of it without a query, and listeners are told
+ * each time it changes.
+ *
+ * Until load() has run, getLowStockProducts() asks the database.
+ */
+public class LowStockTracker implements ProductChangeListener {
+
+    /**
+     * Told when a product joins or leaves the list, or the stock of one in it changes.
+     * Called on the thread that made the change, e.g. the sale writer.
+     */
+    public interface Listener {
+        /**
+         * @param lowStock the products now low on stock, lowest stock first
+         */
+        void lowStockChanged(List<Product> lowStock);
+    }
+
+    // Same order as ProductDAO.getLowStockProducts
+    private static final Comparator<Product> ORDER = Comparator.comparingInt(Product::getStock)
+            .thenComparing(Product::getName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Product::getId);
+
+    private static LowStockTracker instance;
+
+    // id -> {stock, reorder threshold} of every active product; guarded by this
+    private final Map<String, int[]> levels = new HashMap<>();
+    private final Map<String, Product> lowById = new HashMap<>();
+    private final TreeSet<Product> lowStock = new TreeSet<>(ORDER);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<Product> snapshot = List.of();
+    private volatile boolean loaded;
+
+    public static synchronized LowStockTracker getInstance() {
+        if (instance == null) {
+            instance = new LowStockTracker();
+            ProductDAO.addChangeListener(instance);
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            ProductDAO.removeChangeListener(instance);
+            instance = null;
+        }
+    }
+
+    /**
+     * (Re)load stock levels and the low stock products from the database.
+     */
+    public void load() throws SQLException {
+        Map<String, int[]> loadedLevels = new HashMap<>();
+        ProductDAO.loadStockLevels(loadedLevels);
+        List<Product> products = ProductDAO.getLowStockProducts();
+        synchronized (this) {
+            levels.clear();
+            levels.putAll(loadedLevels);
+            lowById.clear();
+            lowStock.clear();
+            for (Product p : products) {
+                lowById.put(p.getId(), p);
+                lowStock.add(p);
+            }
+            loaded = true;
+            changed();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Products at or below their reorder threshold, lowest stock first. The returned list
+     * and its products must not be modified.
+     */
+    public List<Product> getLowStockProducts() throws SQLException {
+        return loaded ? snapshot : ProductDAO.getLowStockProducts();
+    }
+
+    public int getCount() {
+        return snapshot.size();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public synchronized void productSaved(Product product) {
+        if (!product.isActive()) {
+            productRemoved(product.getId());
+            return;
+        }
+        levels.put(product.getId(), new int[] {product.getStock(), product.getReorderThreshold()});
+        Product old = lowById.get(product.getId());
+        if (product.isLowStock()) {
+            replace(old, new Product(product));
+        } else if (old != null) {
+            replace(old, null);
+        }
+    }
+
+    @Override
+    public synchronized void productRemoved(String productId) {
+        levels.remove(productId);
+        Product old = lowById.get(productId);
+        if (old != null) {
+            replace(old, null);
+        }
+    }
+
+    @Override
+    public synchronized void stockChanged(String productId, int delta) {
+        int[] level = levels.get(productId);
+        if (level == null) return; // not active, or added since load() without a notification
+        level[0] += delta;
+        Product old = lowById.get(productId);
+        if (level[0] > level[1]) {
+            if (old != null) replace(old, null);
+            return;
+        }
+
+        Product updated;
+        if (old != null) {
+            updated = new Product(old);
+        } else {
+            // Just crossed the threshold: details from the catalogue, stock from here
+            Product cached = ProductCatalogCache.getInstance().getById(productId);
+            try {
+                updated = cached != null ? new Product(cached) : ProductDAO.findById(productId);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return;
+            }
+            if (updated == null) return;
+            updated.setReorderThreshold(level[1]);
+        }
+        updated.setStock(level[0]);
+        replace(old, updated);
+    }
+
+    private void replace(Product old, Product updated) {
+        if (old != null) {
+            lowStock.remove(old);
+            lowById.remove(old.getId());
+        }
+        if (updated != null) {
+            lowStock.add(updated);
+            lowById.put(updated.getId(), updated);
+        }
+        changed();
+    }
+
+    // Listeners are called holding the lock, so they see changes in the order they happened
+    private void changed() {
+        snapshot = List.copyOf(lowStock);
+        if (!loaded) return;
+        for (Listener l : listeners) {
+            l.lowStockChanged(snapshot);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.vastra.service;
+
+import com.vastra.util.AppConfig;
+import com.vastra.util.PrintSink;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background print queue for receipts.
+ *
+ * Tills submit a job and carry on with the next customer; one spooler thread renders
+ * each job and writes it to the PrintSink, retrying failed writes (printer offline, out
+ * of paper) up to maxRetries times with a doubling delay. Jobs print in the order they
+ * were submitted. The StatusListener is called from the spooler thread, so UI callers
+ * must marshal to the FX thread themselves.
+ */
+public class PrintSpooler {
+
+    public enum Status { QUEUED, PRINTING, RETRYING, PRINTED, FAILED }
+
+    public interface StatusListener {
+        /**
+         * @param error the last failure for RETRYING and FAILED, otherwise null
+         */
+        void onStatus(String jobName, Status status, int attempt, Throwable error);
+    }
+
+    private static PrintSpooler instance;
+
+    private final PrintSink sink;
+    private final int maxRetries;
+    private final long retryDelayMs;
+    private final BlockingQueue<PrintJob> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong printed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public static synchronized PrintSpooler getInstance() {
+        if (instance == null) {
+            instance = new PrintSpooler(PrintSink.fromConfig(),
+                    AppConfig.getInt("printer.retries", 3),
+                    AppConfig.getLong("printer.retryDelayMs", 500),
+                    AppConfig.getInt("printer.queueCapacity", 64));
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the shared spooler after it has printed (or given up on) everything queued.
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    public PrintSpooler(PrintSink sink, int maxRetries, long retryDelayMs, int queueCapacity) {
+        this.sink = sink;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryDelayMs = Math.max(0, retryDelayMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::run, "print-spooler");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a print job. content is called on the spooler thread to produce the bytes,
+     * so rendering never runs on the caller's thread. The future completes once the
+     * bytes have been written, or exceptionally after the last retry has failed.
+     */
+    public CompletableFuture<Void> submit(String jobName, Callable<byte[]> content, StatusListener listener) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        PrintJob job = new PrintJob(jobName, content, listener, future);
+        // Report QUEUED before the job is visible to the spooler thread, so listeners
+        // never see PRINTING ahead of it
+        if (running) {
+            notify(job, Status.QUEUED, 0, null);
+        }
+        if (!running || !queue.offer(job)) {
+            RejectedExecutionException e = new RejectedExecutionException(
+                    running ? "Print queue is full" : "Print spooler is shut down");
+            notify(job, Status.FAILED, 0, e);
+            failed.incrementAndGet();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return future;
+    }
+
+    /**
+     * Stop accepting jobs, finish the queued ones and stop the spooler thread.
+     * Retries of queued jobs are skipped once shutting down.
+     */
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getPrinted() { return printed.get(); }
+    public long getFailed() { return failed.get(); }
+    public long getRetries() { return retries.get(); }
+    public long getBytesWritten() { return bytesWritten.get(); }
+    public int getQueueDepth() { return queue.size(); }
+
+    @Override
+    public String toString() {
+        return String.format("PrintSpooler[%d printed, %d failed, %d retries, %d queued]",
+                getPrinted(), getFailed(), getRetries(), getQueueDepth());
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            PrintJob job;
+            try {
+                job = running ? queue.take() : queue.poll();
+            } catch (InterruptedException e) {
+                continue; // shutdown() interrupts us; drain what is left
+            }
+            if (job == null) break;
+            print(job);
+        }
+    }
+
+    private void print(PrintJob job) {
+        byte[] data;
+        try {
+            data = job.content.call();
+        } catch (Exception e) {
+            // Nothing to retry if the receipt cannot be rendered
+            fail(job, 1, e);
+            return;
+        }
+
+        long delay = retryDelayMs;
+        for (int attempt = 1; ; attempt++) {
+            notify(job, Status.PRINTING, attempt, null);
+            try {
+                sink.write(job.name, data);
+                printed.incrementAndGet();
+                bytesWritten.addAndGet(data.length);
+                notify(job, Status.PRINTED, attempt, null);
+                job.future.complete(null);
+                return;
+            } catch (Exception e) {
+                if (attempt > maxRetries || !running) {
+                    fail(job, attempt, e);
+                    return;
+                }
+                retries.incrementAndGet();
+                notify(job, Status.RETRYING, attempt, e);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    // shutdown(): make this the last attempt
+                }
+                delay *= 2;
+            }
+        }
+    }
+
+    private void fail(PrintJob job, int attempt, Exception e) {
+        System.err.println("Print job " + job.name + " failed: " + e.getMessage());
+        failed.incrementAndGet();
+        notify(job, Status.FAILED, attempt, e);
+        job.future.completeExceptionally(e);
+    }
+
+    private static void notify(PrintJob job, Status status, int attempt, Throwable error) {
+        if (job.listener == null) return;
+        try {
+            job.listener.onStatus(job.name, status, attempt, error);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final class PrintJob {
+        final String name;
+        final Callable<byte[]> content;
+        final StatusListener listener;
+        final CompletableFuture<Void> future;
+
+        PrintJob(String name, Callable<byte[]> content, StatusListener listener, CompletableFuture<Void> future) {
+            this.name = name;
+            this.content = content;
+            this.listener = listener;
+            this.future = future;
+        }
+    }
+}
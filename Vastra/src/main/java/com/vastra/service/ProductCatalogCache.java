@@ -0,0 +1,180 @@
+package com.vastra.service;
+
+import com.vastra.dao.ProductChangeListener;
+import com.vastra.dao.ProductDAO;
+import com.vastra.model.Product;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory index of active products for the scan path.
+ *
+ * Holds hash indexes from barcode, SKU and id to Product, loaded once at startup and kept
+ * current through ProductDAO change notifications (insert, update, deactivate, stock changes).
+ * A scan resolves with a map lookup and no database round trip; misses fall back to a
+ * single database query and the result is added to the cache.
+ *
+ * Cached Product instances are shared snapshots and must not be modified by callers;
+ * changes replace the snapshot instead.
+ */
+public class ProductCatalogCache implements ProductChangeListener {
+
+    private static ProductCatalogCache instance;
+
+    private final Map<String, Product> byId = new ConcurrentHashMap<>();
+    private final Map<String, Product> byBarcode = new ConcurrentHashMap<>();
+    private final Map<String, Product> bySku = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public static synchronized ProductCatalogCache getInstance() {
+        if (instance == null) {
+            instance = new ProductCatalogCache();
+            ProductDAO.addChangeListener(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * (Re)load every active product from the database.
+     */
+    public void load() throws SQLException {
+        List<Product> products = ProductDAO.getAllProducts();
+        byId.clear();
+        byBarcode.clear();
+        bySku.clear();
+        for (Product p : products) {
+            index(p);
+        }
+    }
+
+    /**
+     * Resolve a scanned or typed code by barcode, then SKU. Never by id: ids are small
+     * integers, so a code like "12" would pick product 12. Falls back to the database
+     * when the code is not cached.
+     */
+    public Product lookup(String code) throws SQLException {
+        if (code == null || code.isBlank()) return null;
+
+        Product p = byBarcode.get(code);
+        if (p == null) p = bySku.get(code);
+        if (p != null) {
+            hits.increment();
+            return p;
+        }
+
+        misses.increment();
+        p = ProductDAO.findByCode(code);
+        if (p != null) {
+            index(p);
+        }
+        return p;
+    }
+
+    public Product getById(String id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Rough heap used by the cached products and the three indexes, in bytes.
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        for (Product p : byId.values()) {
+            bytes += 128; // Product object: header plus 20 fields
+            bytes += stringBytes(p.getId()) + stringBytes(p.getName()) + stringBytes(p.getVariant())
+                    + stringBytes(p.getCategory()) + stringBytes(p.getBrand()) + stringBytes(p.getBarcode())
+                    + stringBytes(p.getSku()) + stringBytes(p.getHsnCode()) + stringBytes(p.getUnit())
+                    + stringBytes(p.getDescription()) + stringBytes(p.getImagePath())
+                    + stringBytes(p.getCreatedAt()) + stringBytes(p.getUpdatedAt());
+        }
+        // ~48 bytes per ConcurrentHashMap node plus table slot
+        bytes += 48L * (byId.size() + byBarcode.size() + bySku.size());
+        return bytes;
+    }
+
+    @Override
+    public void productSaved(Product product) {
+        Product old = byId.get(product.getId());
+        if (old != null) {
+            unindexCodes(old);
+        }
+        if (product.isActive()) {
+            index(new Product(product));
+        } else {
+            byId.remove(product.getId());
+        }
+    }
+
+    @Override
+    public void productRemoved(String productId) {
+        Product old = byId.remove(productId);
+        if (old != null) {
+            unindexCodes(old);
+        }
+    }
+
+    @Override
+    public void stockChanged(String productId, int delta) {
+        Product updated = byId.computeIfPresent(productId, (id, old) -> {
+            Product copy = new Product(old);
+            copy.setStock(old.getStock() + delta);
+            return copy;
+        });
+        if (updated != null) {
+            indexCodes(updated);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ProductCatalogCache[%d products, hit rate %.1f%% (%d/%d), ~%d KB]",
+                size(), getHitRate() * 100, getHits(), getHits() + getMisses(), estimateMemoryBytes() / 1024);
+    }
+
+    private void index(Product p) {
+        byId.put(p.getId(), p);
+        indexCodes(p);
+    }
+
+    private void indexCodes(Product p) {
+        if (p.getBarcode() != null && !p.getBarcode().isEmpty()) {
+            byBarcode.put(p.getBarcode(), p);
+        }
+        if (p.getSku() != null && !p.getSku().isEmpty()) {
+            bySku.put(p.getSku(), p);
+        }
+    }
+
+    private void unindexCodes(Product p) {
+        // Only drop the entry if it still belongs to this product
+        if (p.getBarcode() != null) {
+            byBarcode.computeIfPresent(p.getBarcode(), (code, cur) -> cur.getId().equals(p.getId()) ? null : cur);
+        }
+        if (p.getSku() != null) {
+            bySku.computeIfPresent(p.getSku(), (code, cur) -> cur.getId().equals(p.getId()) ? null : cur);
+        }
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+}
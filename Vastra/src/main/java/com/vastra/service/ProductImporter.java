@@ -0,0 +1,522 @@
+package com.vastra.service;
+
+import com.vastra.dao.ProductDAO;
+import com.vastra.dao.UnitOfWork;
+import com.vastra.model.ProductImportRow;
+import com.vastra.util.AppConfig;
+import com.vastra.util.SpreadsheetReader;
+import com.vastra.util.ValidationUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk product import from a CSV or XLSX file.
+ *
+ * The file is streamed in chunks of chunkSize rows through three stages:
+ * <ol>
+ *   <li>the calling thread reads rows and hands each chunk to the validation pool;</li>
+ *   <li>validation threads parse and check the chunk's rows in parallel;</li>
+ *   <li>one writer thread takes validated chunks in file order, matches each row to an
+ *       existing product by barcode or SKU using in-memory code maps, and upserts the chunk
+ *       as one batched transaction.</li>
+ * </ol>
+ * At most a few chunks are in flight at a time, so memory does not depend on the file
+ * size. A row matching an existing barcode or SKU updates that product (empty cells keep
+ * the stored value); other rows create products. Invalid rows are skipped and reported;
+ * if the database rejects a chunk, it is retried row by row to isolate the bad rows.
+ */
+public class ProductImporter {
+
+    /** Recognised column headings (lower case, letters and digits only) */
+    private static final Map<String, String> HEADINGS = new HashMap<>();
+
+    static {
+        heading("name", "name", "productname", "product", "itemname", "item", "description");
+        heading("variant", "variant", "size");
+        heading("category", "category", "department");
+        heading("brand", "brand", "manufacturer");
+        heading("barcode", "barcode", "ean", "upc", "gtin");
+        heading("sku", "sku", "itemcode", "code", "productcode");
+        heading("mrp", "mrp", "mrprs", "maxretailprice");
+        heading("sell_price", "sellprice", "sellingprice", "saleprice", "price", "rate");
+        heading("purchase_price", "purchaseprice", "costprice", "cost");
+        heading("gst", "gst", "gstpercent", "gstrate", "tax", "taxpercent");
+        heading("hsn", "hsn", "hsncode");
+        heading("stock", "stock", "qty", "quantity", "openingstock");
+        heading("reorder", "reorderthreshold", "reorderlevel", "minstock");
+        heading("unit", "unit", "uom");
+    }
+
+    private static void heading(String field, String... names) {
+        for (String name : names) {
+            HEADINGS.put(name, field);
+        }
+    }
+
+    public interface ProgressListener {
+        /** Called from the writer thread after each committed chunk */
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * Snapshot of an import in progress.
+     */
+    public static class Progress {
+        private final long rowsRead;
+        private final long inserted;
+        private final long updated;
+        private final long failed;
+        private final double fractionRead;
+
+        Progress(long rowsRead, long inserted, long updated, long failed, double fractionRead) {
+            this.rowsRead = rowsRead;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.failed = failed;
+            this.fractionRead = fractionRead;
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getInserted() { return inserted; }
+        public long getUpdated() { return updated; }
+        public long getFailed() { return failed; }
+        public long getRowsDone() { return inserted + updated + failed; }
+
+        /** 0..1 through the file, or -1 when it cannot be told (XLSX) */
+        public double getFractionRead() { return fractionRead; }
+    }
+
+    /**
+     * Outcome of an import. Only the first maxErrors row errors are kept.
+     */
+    public static class Result {
+        private final long inserted;
+        private final long updated;
+        private final long failed;
+        private final List<String> errors;
+        private final long elapsedMillis;
+        private final boolean cancelled;
+
+        Result(long inserted, long updated, long failed, List<String> errors, long elapsedMillis, boolean cancelled) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.failed = failed;
+            this.errors = errors;
+            this.elapsedMillis = elapsedMillis;
+            this.cancelled = cancelled;
+        }
+
+        public long getInserted() { return inserted; }
+        public long getUpdated() { return updated; }
+        public long getFailed() { return failed; }
+        public List<String> getErrors() { return errors; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public boolean isCancelled() { return cancelled; }
+    }
+
+    /** Prefix of the id a new product has until its chunk is written; never a real id */
+    private static final String TEMPORARY_ID = "new:";
+
+    private final int chunkSize;
+    private final int threads;
+    private final int maxErrors;
+    private final ProgressListener listener;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final BarcodeAllocator barcodes = BarcodeAllocator.getInstance();
+
+    // Writer-thread state
+    private final Map<String, String> idByBarcode = new HashMap<>();
+    private final Map<String, String> idBySku = new HashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private long inserted;
+    private long updated;
+    private long failed;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private volatile double fractionRead = -1;
+
+    public ProductImporter(ProgressListener listener) {
+        this(AppConfig.getInt("import.chunkSize", 1000),
+                AppConfig.getInt("import.threads", Runtime.getRuntime().availableProcessors()),
+                AppConfig.getInt("import.maxErrors", 1000), listener);
+    }
+
+    public ProductImporter(int chunkSize, int threads, int maxErrors, ProgressListener listener) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.threads = Math.max(1, threads);
+        this.maxErrors = maxErrors;
+        this.listener = listener;
+    }
+
+    /**
+     * Stop after the chunk being written. Chunks already committed stay imported.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Import the file. Blocks until done; run it off the FX thread.
+     */
+    public Result importFile(Path file) throws Exception {
+        long start = System.currentTimeMillis();
+        long fileSize = Files.size(file);
+        ProductDAO.loadCodes(idByBarcode, idBySku);
+
+        ExecutorService validators = Executors.newFixedThreadPool(threads, daemonThreads("import-validate"));
+        // Chunks in file order; the bound keeps memory flat when the writer falls behind
+        BlockingQueue<Future<List<ProductImportRow>>> chunks = new ArrayBlockingQueue<>(threads * 2);
+        AtomicReference<Exception> writerError = new AtomicReference<>();
+        Thread writer = new Thread(() -> writeChunks(chunks, writerError), "import-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        int[][] columns = new int[1][];
+        List<String[]> chunk = new ArrayList<>(chunkSize);
+        List<Integer> rowNumbers = new ArrayList<>(chunkSize);
+        try {
+            SpreadsheetReader.read(file, (rowNumber, cells) -> {
+                if (cancelled.get() || writerError.get() != null) {
+                    throw new CancellationException();
+                }
+                if (columns[0] == null) {
+                    columns[0] = mapHeadings(cells);
+                    return;
+                }
+                chunk.add(cells);
+                rowNumbers.add(rowNumber);
+                rowsRead.incrementAndGet();
+                if (chunk.size() == chunkSize) {
+                    submit(validators, chunks, columns[0], new ArrayList<>(chunk), new ArrayList<>(rowNumbers));
+                    chunk.clear();
+                    rowNumbers.clear();
+                }
+            }, bytes -> fractionRead = fileSize == 0 ? 1 : (double) bytes / fileSize);
+
+            if (columns[0] == null) {
+                throw new IllegalArgumentException("The file is empty");
+            }
+            if (!chunk.isEmpty()) {
+                submit(validators, chunks, columns[0], chunk, rowNumbers);
+            }
+            fractionRead = 1;
+        } catch (CancellationException e) {
+            // cancel() or a writer failure; finish what was queued
+        } finally {
+            chunks.put(END);
+            writer.join();
+            validators.shutdownNow();
+        }
+
+        Exception error = writerError.get();
+        if (error != null) {
+            throw error;
+        }
+        return new Result(inserted, updated, failed, Collections.unmodifiableList(errors),
+                System.currentTimeMillis() - start, cancelled.get());
+    }
+
+    private void submit(ExecutorService validators, BlockingQueue<Future<List<ProductImportRow>>> chunks,
+                        int[] columns, List<String[]> rows, List<Integer> rowNumbers) throws InterruptedException {
+        chunks.put(validators.submit(() -> {
+            List<ProductImportRow> parsed = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                parsed.add(parseRow(rowNumbers.get(i), rows.get(i), columns));
+            }
+            return parsed;
+        }));
+    }
+
+    // ---- Validation stage (any thread) ----
+
+    private static final String[] FIELDS = {"name", "variant", "category", "brand", "barcode", "sku", "mrp",
+            "sell_price", "purchase_price", "gst", "hsn", "stock", "reorder", "unit"};
+    private static final List<String> FIELD_LIST = Arrays.asList(FIELDS);
+
+    /**
+     * Column index of each of FIELDS in the file, or -1 when the file has no such column.
+     */
+    static int[] mapHeadings(String[] headings) {
+        int[] columns = new int[FIELDS.length];
+        Arrays.fill(columns, -1);
+        for (int col = 0; col < headings.length; col++) {
+            String key = headings[col].toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+            String field = HEADINGS.get(key);
+            if (field == null) continue;
+            int index = FIELD_LIST.indexOf(field);
+            if (columns[index] < 0) {
+                columns[index] = col;
+            }
+        }
+        // Rows are matched by barcode or SKU; a file without either can only add products
+        if (columns[0] < 0 && columns[4] < 0 && columns[5] < 0) {
+            throw new IllegalArgumentException("The file needs a Name, Barcode or SKU column");
+        }
+        return columns;
+    }
+
+    static ProductImportRow parseRow(int rowNumber, String[] cells, int[] columns) {
+        ProductImportRow row = new ProductImportRow(rowNumber);
+        try {
+            row.setName(text(cells, columns[0]));
+            row.setVariant(text(cells, columns[1]));
+            row.setCategory(text(cells, columns[2]));
+            row.setBrand(text(cells, columns[3]));
+            row.setBarcode(text(cells, columns[4]));
+            row.setSku(text(cells, columns[5]));
+            row.setMrpCents(ValidationUtil.parseCents(text(cells, columns[6]), "MRP"));
+            row.setSellPriceCents(ValidationUtil.parseCents(text(cells, columns[7]), "price"));
+            row.setPurchasePriceCents(ValidationUtil.parseCents(text(cells, columns[8]), "purchase price"));
+            row.setGstPercent(ValidationUtil.parseInt(text(cells, columns[9]), "GST"));
+            row.setHsnCode(text(cells, columns[10]));
+            row.setStock(ValidationUtil.parseInt(text(cells, columns[11]), "stock"));
+            row.setReorderThreshold(ValidationUtil.parseInt(text(cells, columns[12]), "reorder threshold"));
+            row.setUnit(text(cells, columns[13]));
+
+            // A price column alone is enough: the other one defaults to it
+            if (columns[7] < 0) row.setSellPriceCents(row.getMrpCents());
+
+            if (row.getSellPriceCents() != null && row.getSellPriceCents() <= 0) {
+                row.setError("Selling price must be greater than 0");
+            } else if (row.getMrpCents() != null && row.getSellPriceCents() != null
+                    && row.getMrpCents() > 0 && row.getSellPriceCents() > row.getMrpCents()) {
+                row.setError("Selling price is above MRP");
+            } else if (row.getGstPercent() != null && !ValidationUtil.isValidGst(row.getGstPercent())) {
+                row.setError("GST must be between 0 and " + ValidationUtil.MAX_GST_PERCENT);
+            } else if (row.getStock() != null && row.getStock() < 0) {
+                row.setError("Stock cannot be negative");
+            } else if (row.getName() != null && row.getName().length() > 200) {
+                row.setError("Name is longer than 200 characters");
+            }
+        } catch (IllegalArgumentException e) {
+            row.setError(e.getMessage());
+        }
+        return row;
+    }
+
+    private static String text(String[] cells, int column) {
+        if (column < 0 || column >= cells.length) return null;
+        String value = cells[column].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // ---- Writer stage (import-writer thread) ----
+
+    private static final Future<List<ProductImportRow>> END = new CompletableFuture<>();
+
+    private void writeChunks(BlockingQueue<Future<List<ProductImportRow>>> chunks, AtomicReference<Exception> error) {
+        // Keeps taking until END even after a failure, so the reader never blocks on a full queue
+        while (true) {
+            Future<List<ProductImportRow>> next;
+            try {
+                next = chunks.take();
+            } catch (InterruptedException e) {
+                error.compareAndSet(null, e);
+                return;
+            }
+            if (next == END) return;
+            if (error.get() != null || cancelled.get()) {
+                next.cancel(true);
+                continue;
+            }
+            try {
+                writeChunk(next.get());
+                if (listener != null) {
+                    listener.onProgress(new Progress(rowsRead.get(), inserted, updated, failed, fractionRead));
+                }
+            } catch (ExecutionException e) {
+                error.compareAndSet(null, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (Exception e) {
+                error.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private void writeChunk(List<ProductImportRow> rows) throws SQLException {
+        List<ProductImportRow> valid = new ArrayList<>(rows.size());
+        List<String[]> addedCodes = new ArrayList<>(rows.size());
+        for (ProductImportRow row : rows) {
+            String[] added = row.getError() == null ? resolve(row) : null;
+            if (row.getError() != null) {
+                reject(row);
+            } else {
+                valid.add(row);
+                addedCodes.add(added);
+            }
+        }
+        if (valid.isEmpty()) return;
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            Connection c = uow.getConnection();
+            assignIds(c, valid);
+            Savepoint batch = c.setSavepoint();
+            try {
+                ProductDAO.upsertImportRows(c, valid);
+                c.releaseSavepoint(batch);
+            } catch (SQLException batchFailure) {
+                // Find the rows at fault; the rest of the chunk still goes in
+                c.rollback(batch);
+                valid = writeRowByRow(c, valid, addedCodes);
+            }
+            uow.commit();
+        }
+        for (ProductImportRow row : valid) {
+            if (row.isNewProduct()) inserted++;
+            else updated++;
+        }
+        List<String> ids = new ArrayList<>(valid.size());
+        for (ProductImportRow row : valid) ids.add(row.getId());
+        ProductDAO.notifyProductsSaved(ids);
+    }
+
+    /**
+     * Number the chunk's new products after the highest product id, replacing their
+     * temporary ids everywhere. Called holding the writer connection, so no other insert
+     * can take these ids first.
+     */
+    private void assignIds(Connection c, List<ProductImportRow> rows) throws SQLException {
+        long nextId = ProductDAO.maxProductId(c) + 1;
+        Map<String, String> realIds = new HashMap<>();
+        for (ProductImportRow row : rows) {
+            String id = row.getId();
+            if (row.isNewProduct()) {
+                String realId = Long.toString(nextId++);
+                realIds.put(id, realId);
+                row.setId(realId);
+                idByBarcode.replace(row.getBarcode(), id, realId);
+                idBySku.replace(row.getSku(), id, realId);
+            } else if (id.startsWith(TEMPORARY_ID)) {
+                // Updates a product added earlier in this chunk
+                row.setId(realIds.get(id));
+            }
+        }
+    }
+
+    private List<ProductImportRow> writeRowByRow(Connection c, List<ProductImportRow> rows,
+                                                 List<String[]> addedCodes) throws SQLException {
+        List<ProductImportRow> written = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ProductImportRow row = rows.get(i);
+            Savepoint sp = c.setSavepoint();
+            try {
+                ProductDAO.upsertImportRow(c, row);
+                c.releaseSavepoint(sp);
+                written.add(row);
+            } catch (SQLException e) {
+                c.rollback(sp);
+                forget(row, addedCodes.get(i));
+                row.setError(e.getMessage());
+                reject(row);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Decide whether the row creates a product or updates the one with the same barcode
+     * or SKU, and fill in the barcode and SKU of a new product. Returns the codes added to
+     * the in-memory maps (so they can be taken out again if the row fails to write).
+     */
+    private String[] resolve(ProductImportRow row) throws SQLException {
+        String barcode = row.getBarcode();
+        String sku = row.getSku();
+        String byBarcode = barcode != null ? idByBarcode.get(barcode) : null;
+        String bySku = sku != null ? idBySku.get(sku) : null;
+
+        if (byBarcode != null && bySku != null && !byBarcode.equals(bySku)) {
+            row.setError("Barcode " + barcode + " and SKU " + sku + " belong to different products");
+            return null;
+        }
+
+        String id = byBarcode != null ? byBarcode : bySku;
+        if (id != null) {
+            row.setId(id);
+            row.setNewProduct(false);
+        } else {
+            if (row.getName() == null || row.getSellPriceCents() == null) {
+                row.setError("A new product needs a name and a price");
+                return null;
+            }
+            // Same defaults as ProductDAO.insertProduct
+            if (barcode == null) {
+                barcode = sku != null && !idByBarcode.containsKey(sku) ? sku : generateBarcode();
+            }
+            if (sku == null) sku = barcode;
+            // The real id is given when the chunk is written (assignIds)
+            row.setId(TEMPORARY_ID + row.getRowNumber());
+            row.setNewProduct(true);
+            row.setBarcode(barcode);
+            row.setSku(sku);
+            if (row.getMrpCents() == null) row.setMrpCents(row.getSellPriceCents());
+            if (row.getVariant() == null) row.setVariant("");
+            if (row.getCategory() == null) row.setCategory("");
+            if (row.getBrand() == null) row.setBrand("");
+            if (row.getPurchasePriceCents() == null) row.setPurchasePriceCents(0);
+            if (row.getGstPercent() == null) row.setGstPercent(0);
+            if (row.getHsnCode() == null) row.setHsnCode("");
+            if (row.getStock() == null) row.setStock(0);
+            if (row.getReorderThreshold() == null) row.setReorderThreshold(5);
+            if (row.getUnit() == null) row.setUnit("PCS");
+        }
+
+        String[] added = new String[2];
+        if (barcode != null && idByBarcode.putIfAbsent(barcode, row.getId()) == null) added[0] = barcode;
+        if (sku != null && idBySku.putIfAbsent(sku, row.getId()) == null) added[1] = sku;
+        return added;
+    }
+
+    private void forget(ProductImportRow row, String[] added) {
+        if (added == null) return;
+        if (added[0] != null) idByBarcode.remove(added[0], row.getId());
+        if (added[1] != null) idBySku.remove(added[1], row.getId());
+    }
+
+    /** Allocated barcode, skipping any already taken as a barcode or SKU (e.g. earlier in this file) */
+    private String generateBarcode() throws SQLException {
+        String barcode;
+        do {
+            barcode = barcodes.next();
+        } while (idByBarcode.containsKey(barcode) || idBySku.containsKey(barcode));
+        return barcode;
+    }
+
+    private void reject(ProductImportRow row) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add("Row " + row.getRowNumber() + ": " + row.getError());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
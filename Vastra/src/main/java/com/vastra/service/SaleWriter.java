@@ -0,0 +1,229 @@
+package com.vastra.service;
+
+import com.vastra.dao.SalesDAO;
+import com.vastra.dao.UnitOfWork;
+import com.vastra.model.Sale;
+import com.vastra.util.AppConfig;
+import com.vastra.util.LatencyHistogram;
+import com.vastra.util.Metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group-commit writer for sales.
+ *
+ * Tills submit sales to a bounded queue; one writer thread takes whatever is waiting
+ * (up to maxBatchSize, lingering at most maxWaitMs for more) and writes them all in a
+ * single SQLite transaction, so concurrent sales share one WAL commit instead of each
+ * paying for its own. Every sale runs inside its own savepoint, so one bad sale (e.g.
+ * insufficient stock) fails only its own future. Futures complete only after the batch
+ * has committed, so a returned sale id is as durable as with completeSale().
+ *
+ * When the queue is full, submit() blocks for up to offerTimeoutMs and then fails the
+ * sale with a RejectedExecutionException. If a batch cannot be written at all (e.g. the
+ * writer connection is not available), every sale in it fails.
+ */
+public class SaleWriter {
+
+    private static final LatencyHistogram BATCH_COMMIT = Metrics.histogram("vastra_sale_batch_seconds",
+            "Time to write and commit one group-commit batch of sales");
+
+    // Queued by shutdown() behind the sales already waiting
+    private static final PendingSale STOP = new PendingSale(null, null);
+
+    private static SaleWriter instance;
+
+    private final int maxBatchSize;
+    private final long maxWaitMs;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<PendingSale> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong salesWritten = new AtomicLong();
+    private final AtomicLong salesFailed = new AtomicLong();
+    private volatile int largestBatch;
+
+    public static synchronized SaleWriter getInstance() {
+        if (instance == null) {
+            instance = new SaleWriter(
+                    AppConfig.getInt("sales.writer.maxBatchSize", 32),
+                    AppConfig.getLong("sales.writer.maxWaitMs", 2),
+                    AppConfig.getInt("sales.writer.queueCapacity", 256),
+                    AppConfig.getLong("sales.writer.offerTimeoutMs", 2000));
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the shared writer after it has committed everything already queued.
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    public SaleWriter(int maxBatchSize, long maxWaitMs, int queueCapacity, long offerTimeoutMs) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::run, "sale-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a sale for the next group commit. The future completes with the sale id once
+     * the transaction containing it has committed.
+     */
+    public CompletableFuture<String> submit(Sale sale) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new RejectedExecutionException("Sale writer is shut down"));
+            return future;
+        }
+        PendingSale pending = new PendingSale(sale, future);
+        try {
+            if (!queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                future.completeExceptionally(new RejectedExecutionException(
+                        "Sale queue is full, try again in a moment"));
+            } else if (!running && queue.remove(pending)) {
+                // Shut down while we were offering: the writer may already have stopped
+                future.completeExceptionally(new RejectedExecutionException("Sale writer is shut down"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stop accepting sales, commit whatever is already queued and stop the writer thread.
+     */
+    public synchronized void shutdown() {
+        if (!running) return;
+        running = false;
+        try {
+            // Not an interrupt: that would also abort a batch waiting for the writer connection
+            queue.put(STOP);
+            thread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getBatchCount() { return batches.get(); }
+    public long getSalesWritten() { return salesWritten.get(); }
+    public long getSalesFailed() { return salesFailed.get(); }
+    public int getLargestBatch() { return largestBatch; }
+    public int getQueueDepth() { return queue.size(); }
+
+    public double getAverageBatchSize() {
+        long b = batches.get();
+        return b == 0 ? 0 : (double) (salesWritten.get() + salesFailed.get()) / b;
+    }
+
+    private void run() {
+        List<PendingSale> batch = new ArrayList<>(maxBatchSize);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+                collect(batch);
+            } catch (InterruptedException e) {
+                // Only STOP ends the writer; write what we have
+            }
+            stopped = batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Add whatever else is already queued, lingering up to maxWaitMs for more.
+     */
+    private void collect(List<PendingSale> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        while (running && batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            PendingSale next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void writeBatch(List<PendingSale> batch) {
+        List<PendingSale> written = new ArrayList<>(batch.size());
+        long start = System.nanoTime();
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            Connection conn = uow.getConnection();
+            for (PendingSale p : batch) {
+                Savepoint sp = conn.setSavepoint();
+                try {
+                    SalesDAO.insertSale(conn, p.sale);
+                    conn.releaseSavepoint(sp);
+                    written.add(p);
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback(sp);
+                    conn.releaseSavepoint(sp);
+                    salesFailed.incrementAndGet();
+                    p.future.completeExceptionally(
+                            new SQLException("Sale transaction failed: " + e.getMessage(), e));
+                }
+            }
+            uow.commit();
+        } catch (Exception e) {
+            // Nothing was committed: fail the written sales and any not reached yet
+            e.printStackTrace();
+            for (PendingSale p : batch) {
+                if (!p.future.isDone()) {
+                    salesFailed.incrementAndGet();
+                    p.future.completeExceptionally(
+                            new SQLException("Sale transaction failed: " + e.getMessage(), e));
+                }
+            }
+            written.clear();
+        }
+
+        BATCH_COMMIT.recordSince(start);
+        batches.incrementAndGet();
+        salesWritten.addAndGet(written.size());
+        if (batch.size() > largestBatch) {
+            largestBatch = batch.size();
+        }
+        for (PendingSale p : written) {
+            SalesDAO.notifyCommitted(p.sale);
+            p.future.complete(p.sale.getId());
+        }
+    }
+
+    private static class PendingSale {
+        final Sale sale;
+        final CompletableFuture<String> future;
+
+        PendingSale(Sale sale, CompletableFuture<String> future) {
+            this.sale = sale;
+            this.future = future;
+        }
+    }
+}
@@ -1,34 +1,67 @@
 package com.vastra.ui.controllers;
 
-import com.vastra.dao.CustomerDAO;
-import com.vastra.dao.ProductDAO;
-import com.vastra.dao.SalesDAO;
+import com.vastra.dao.SettingsDAO;
+import com.vastra.model.Cart;
 import com.vastra.model.CartItem;
 import com.vastra.model.Customer;
 import com.vastra.model.Product;
+import com.vastra.model.Sale;
+import com.vastra.service.BillingService;
+import com.vastra.service.CartTotals;
+import com.vastra.service.CustomerDirectory;
+import com.vastra.service.GstCalculator;
+import com.vastra.service.LabelFilter;
+import com.vastra.service.LabelPrintService;
+import com.vastra.service.LowStockTracker;
+import com.vastra.service.PrintSpooler;
+import com.vastra.service.ProductImporter;
+import com.vastra.util.AppConfig;
 import com.vastra.util.BarcodeScanner;
-import com.vastra.util.ThermalPrinterUtil;
+import com.vastra.util.LabelLayout;
+import com.vastra.util.Metrics;
+import com.vastra.util.ReceiptRenderer;
+import com.vastra.util.ScanEvent;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.input.KeyCode;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.converter.IntegerStringConverter;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class MainController {
+    private static final int CUSTOMER_SUGGESTIONS = 8;
+    private static final String SCANS_HELP = "Scans handled on the billing screen, by outcome";
+    private static final Metrics.Counter SCANS_ADDED =
+            Metrics.counter("vastra_scans_total", SCANS_HELP, "result", "added");
+    private static final Metrics.Counter SCANS_NOT_FOUND =
+            Metrics.counter("vastra_scans_total", SCANS_HELP, "result", "not_found");
+    private static final Metrics.Counter SCANS_INACTIVE =
+            Metrics.counter("vastra_scans_total", SCANS_HELP, "result", "inactive");
+    private static final Metrics.Counter SCANS_OUT_OF_STOCK =
+            Metrics.counter("vastra_scans_total", SCANS_HELP, "result", "out_of_stock");
+    private static final Metrics.Counter SCANS_REJECTED =
+            Metrics.counter("vastra_scans_total", SCANS_HELP, "result", "rejected");
+    private static final Metrics.Counter SCANS_FAILED =
+            Metrics.counter("vastra_scans_total", SCANS_HELP, "result", "error");
+
     @FXML private TableView<CartItem> cartTable;
     @FXML private TableColumn<CartItem, String> nameColumn;
     @FXML private TableColumn<CartItem, Integer> qtyColumn;
@@ -45,38 +78,48 @@ public class MainController {
     @FXML private TextField discountField;
     @FXML private Label lowStockAlertLabel;
 
-    private ObservableList<CartItem> cartItems = FXCollections.observableArrayList();
+    private final Cart cart = new Cart();
     private Customer currentCustomer = null;
     private BarcodeScanner barcodeScanner;
     private Stage primaryStage; // Store reference to main stage for focus handling
+    private final BillingService billing = BillingService.getInstance();
+    private boolean saleInProgress = false;
+    private ReceiptRenderer receiptRenderer;
 
     @FXML
     public void initialize() {
         setupCartTable();
         setupBarcodeScanner();
         setupKeyboardShortcuts();
-        checkLowStockAlerts();
 
         if (discountField != null) {
             discountField.setText("0");
             discountField.textProperty().addListener((obs, old, newVal) -> updateTotals());
         }
 
-        // Setup global key listener for barcode scanner
-        Platform.runLater(() -> {
-            if (cartTable != null && cartTable.getScene() != null) {
-                primaryStage = (Stage) cartTable.getScene().getWindow();
-                setupGlobalBarcodeListener();
-            }
-        });
+        // Totals are maintained incrementally by the cart; labels just follow them
+        cart.subtotalCentsProperty().addListener(obs -> showTotals());
+        cart.taxCentsProperty().addListener(obs -> showTotals());
+        cart.totalCentsProperty().addListener(obs -> showTotals());
+        showTotals();
+    }
+
+    /**
+     * Called by MainApp once the window is shown. The FXML is loaded while the database
+     * is still being migrated, so anything that queries it starts here.
+     */
+    public void onShown(Stage stage) {
+        primaryStage = stage;
+        setupGlobalBarcodeListener();
+        checkLowStockAlerts();
     }
 
     private void setupCartTable() {
         nameColumn.setCellValueFactory(data ->
                 new SimpleStringProperty(data.getValue().getProduct().getFullDisplayName()));
 
-        qtyColumn.setCellValueFactory(data ->
-                new SimpleIntegerProperty(data.getValue().getQuantity()).asObject());
+        // Bound to the line's own properties, so only the changed row re-renders
+        qtyColumn.setCellValueFactory(data -> data.getValue().quantityProperty().asObject());
 
         // Make quantity column editable
         qtyColumn.setCellFactory(TextFieldTableCell.forTableColumn(new IntegerStringConverter()));
@@ -85,7 +128,6 @@ public class MainController {
             int newQty = event.getNewValue();
             if (newQty > 0 && newQty <= item.getProduct().getStock()) {
                 item.setQuantity(newQty);
-                updateTotals();
             } else {
                 showError("Invalid quantity. Available stock: " + item.getProduct().getStock());
                 cartTable.refresh();
@@ -95,11 +137,9 @@ public class MainController {
         priceColumn.setCellValueFactory(data ->
                 new SimpleDoubleProperty(data.getValue().getProduct().getSellPrice()).asObject());
 
-        taxColumn.setCellValueFactory(data ->
-                new SimpleDoubleProperty(data.getValue().getTaxAmount()).asObject());
+        taxColumn.setCellValueFactory(data -> data.getValue().taxCentsProperty().divide(100.0).asObject());
 
-        totalColumn.setCellValueFactory(data ->
-                new SimpleDoubleProperty(data.getValue().getLineTotal()).asObject());
+        totalColumn.setCellValueFactory(data -> data.getValue().lineTotalCentsProperty().divide(100.0).asObject());
 
         // Add action column with remove button
         actionColumn.setCellFactory(param -> new TableCell<>() {
@@ -107,8 +147,7 @@ public class MainController {
             {
                 deleteButton.setOnAction(event -> {
                     CartItem item = getTableView().getItems().get(getIndex());
-                    cartItems.remove(item);
-                    updateTotals();
+                    cart.remove(item);
                 });
                 deleteButton.setStyle("-fx-background-color: #F44336; -fx-text-fill: white;");
             }
@@ -119,13 +158,13 @@ public class MainController {
             }
         });
 
-        cartTable.setItems(cartItems);
+        cartTable.setItems(cart.getItems());
         cartTable.setEditable(true);
     }
 
     private void setupBarcodeScanner() {
-        // Barcode scanner will work globally - no need for specific text field
-        // The scanner acts as keyboard input and we'll capture it at window level
+        // Scans are decoded off the FX thread and delivered in order, repeats merged into one quantity
+        barcodeScanner = new BarcodeScanner(this::handleBarcodeScanned);
     }
 
     /**
@@ -133,35 +172,7 @@ public class MainController {
      */
     private void setupGlobalBarcodeListener() {
         if (primaryStage == null || primaryStage.getScene() == null) return;
-
-        StringBuilder scanBuffer = new StringBuilder();
-        final long[] lastKeyTime = {0};
-
-        primaryStage.getScene().setOnKeyPressed(event -> {
-            long currentTime = System.currentTimeMillis();
-
-            // If more than 100ms between keys, reset buffer (manual typing)
-            if (currentTime - lastKeyTime[0] > 100 && scanBuffer.length() > 0) {
-                scanBuffer.setLength(0);
-            }
-
-            lastKeyTime[0] = currentTime;
-
-            // Capture character keys
-            if (event.getCode().isLetterKey() || event.getCode().isDigitKey()) {
-                scanBuffer.append(event.getText());
-            }
-
-            // Enter key indicates end of barcode scan
-            if (event.getCode() == javafx.scene.input.KeyCode.ENTER) {
-                if (scanBuffer.length() > 0) {
-                    String barcode = scanBuffer.toString();
-                    scanBuffer.setLength(0);
-                    handleBarcodeScanned(barcode);
-                    event.consume();
-                }
-            }
-        });
+        barcodeScanner.attach(primaryStage.getScene());
     }
 
     private void setupKeyboardShortcuts() {
@@ -173,97 +184,103 @@ public class MainController {
     }
 
     /**
-     * Handle barcode scanned from hardware scanner
+     * Handle barcode scanned from hardware scanner.
+     * The lookup runs in the background; scans are added to the cart in the order they arrived.
      */
-    private void handleBarcodeScanned(String barcode) {
-        try {
-            // Try to find product by barcode, SKU, or ID
-            Product product = ProductDAO.findByBarcode(barcode);
-
-            if (product == null) {
-                product = ProductDAO.findBySku(barcode);
+    private void handleBarcodeScanned(ScanEvent scan) {
+        String barcode = scan.getCode();
+        // Find product by barcode or SKU (in-memory, falls back to the database)
+        billing.lookupProduct(barcode).whenComplete((product, error) -> {
+            if (error != null) {
+                SCANS_FAILED.increment();
+                showError("Error scanning product: " + unwrap(error).getMessage());
+                playBeep();
+                error.printStackTrace();
+                return;
             }
 
-            if (product == null) {
-                product = ProductDAO.findById(barcode);
+            if (saleInProgress) {
+                SCANS_REJECTED.increment();
+                showError("Please wait, the current sale is being completed");
+                playBeep();
+                return;
             }
 
             if (product == null) {
+                SCANS_NOT_FOUND.increment();
                 showError("Product not found for barcode: " + barcode);
                 playBeep(); // Error beep
                 return;
             }
 
             if (!product.isActive()) {
+                SCANS_INACTIVE.increment();
                 showError("Product is inactive: " + product.getName());
                 playBeep();
                 return;
             }
 
             if (product.getStock() <= 0) {
+                SCANS_OUT_OF_STOCK.increment();
                 showError("OUT OF STOCK: " + product.getDisplayName());
                 playBeep();
                 return;
             }
 
-            addToCart(product);
-            updateTotals();
+            if (!addToCart(product, scan.getQuantity())) {
+                SCANS_REJECTED.increment();
+                playBeep();
+                return;
+            }
+            barcodeScanner.scanApplied(scan);
+            SCANS_ADDED.increment();
             playSuccessBeep(); // Success beep
 
             // Show quick feedback
-            System.out.println("✓ Added: " + product.getFullDisplayName() +
-                    " | Price: ₹" + product.getSellPrice() +
-                    " | Stock: " + product.getStock());
-
-        } catch (Exception e) {
-            showError("Error scanning product: " + e.getMessage());
-            playBeep();
-            e.printStackTrace();
-        }
+            System.out.printf("✓ Added: %s x%d | Price: ₹%.2f | Stock: %d | %.1f ms%n",
+                    product.getFullDisplayName(), scan.getQuantity(), product.getSellPrice(),
+                    product.getStock(), scan.getLatencyMillis());
+        });
     }
 
-    private void addToCart(Product product) {
+    private boolean addToCart(Product product, int quantity) {
         // Check if product already in cart
-        for (CartItem item : cartItems) {
-            if (item.getProduct().getId().equals(product.getId())) {
-                if (item.getQuantity() < product.getStock()) {
-                    item.incrementQuantity();
-                    cartTable.refresh();
-                    return;
-                } else {
-                    showError("Cannot add more. Only " + product.getStock() + " in stock");
-                    return;
-                }
-            }
+        CartItem existing = cart.find(product.getId());
+        int inCart = existing != null ? existing.getQuantity() : 0;
+        if (inCart + quantity > product.getStock()) {
+            showError(existing != null
+                    ? "Cannot add more. Only " + product.getStock() + " in stock"
+                    : "Cannot add " + quantity + ". Only " + product.getStock() + " in stock");
+            return false;
         }
-        // Add new item
-        cartItems.add(new CartItem(product, 1));
+        cart.add(product, quantity);
+        return true;
     }
 
+    /**
+     * Apply the bill discount typed into the discount field.
+     */
     private void updateTotals() {
-        double subtotal = 0;
-        double tax = 0;
-
-        for (CartItem item : cartItems) {
-            subtotal += item.getSubtotal();
-            tax += item.getTaxAmount();
-        }
-
-        double discount = 0;
+        long discountCents = 0;
         try {
             if (discountField != null && !discountField.getText().isEmpty()) {
-                discount = Double.parseDouble(discountField.getText());
+                discountCents = Math.round(Double.parseDouble(discountField.getText()) * 100);
             }
         } catch (NumberFormatException e) {
-            discount = 0;
+            discountCents = 0;
             discountField.setText("0");
         }
+        cart.setBillDiscountCents(discountCents);
+    }
 
-        double total = subtotal - discount;
+    private void showTotals() {
+        if (subtotalLabel != null) subtotalLabel.setText(formatCents(cart.getSubtotalCents()));
+        if (taxLabel != null) taxLabel.setText(formatCents(cart.getTaxCents()));
+        if (totalLabel != null) totalLabel.setText(formatCents(cart.getTotalCents()));
+    }
 
-        if (subtotalLabel != null) subtotalLabel.setText(String.format("₹%.2f", subtotal));
-        if (taxLabel != null) taxLabel.setText(String.format("₹%.2f", tax));
-        if (totalLabel != null) totalLabel.setText(String.format("₹%.2f", total));
+    private static String formatCents(long cents) {
+        return String.format("₹%.2f", cents / 100.0);
     }
 
     @FXML
@@ -285,54 +302,107 @@ public class MainController {
 
     @FXML
     public void onAddCustomer() {
-        TextInputDialog dialog = new TextInputDialog();
-        dialog.setTitle("Add Customer");
-        dialog.setHeaderText("Enter customer phone number");
-        dialog.setContentText("Phone:");
+        // Suggestions come from the in-memory directory as each digit or letter is typed
+        CustomerDirectory directory = CustomerDirectory.getInstance();
+        TextField input = new TextField();
+        input.setPromptText("Phone or name");
+        ListView<CustomerDirectory.Match> suggestions = new ListView<>();
+        suggestions.setPrefHeight(220);
+        input.textProperty().addListener((obs, old, text) -> {
+            suggestions.getItems().setAll(text.isBlank() ? List.of() : directory.suggest(text, CUSTOMER_SUGGESTIONS));
+            suggestions.getSelectionModel().selectFirst();
+        });
+        input.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.DOWN && !suggestions.getItems().isEmpty()) {
+                suggestions.requestFocus();
+            }
+        });
 
-        Optional<String> result = dialog.showAndWait();
-        result.ifPresent(phone -> {
-            try {
-                Customer customer = CustomerDAO.findByPhone(phone);
-                if (customer == null) {
-                    // Create new customer dialog
-                    Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
-                    confirmDialog.setTitle("New Customer");
-                    confirmDialog.setHeaderText("Customer not found");
-                    confirmDialog.setContentText("Create new customer with phone: " + phone + "?");
-
-                    Optional<ButtonType> confirmResult = confirmDialog.showAndWait();
-                    if (confirmResult.isPresent() && confirmResult.get() == ButtonType.OK) {
-                        TextInputDialog nameDialog = new TextInputDialog();
-                        nameDialog.setTitle("Customer Name");
-                        nameDialog.setHeaderText("Enter customer name");
-                        nameDialog.setContentText("Name:");
-
-                        Optional<String> nameResult = nameDialog.showAndWait();
-                        if (nameResult.isPresent() && !nameResult.get().trim().isEmpty()) {
-                            customer = CustomerDAO.createCustomer(nameResult.get().trim(), phone, "");
-                            showSuccess("Customer created successfully!");
-                        }
-                    }
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Add Customer");
+        dialog.setHeaderText("Enter customer phone number or name");
+        dialog.getDialogPane().setContent(new VBox(10, input, suggestions));
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        suggestions.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2 && suggestions.getSelectionModel().getSelectedItem() != null) {
+                dialog.setResult(ButtonType.OK);
+                dialog.close();
+            }
+        });
+        Platform.runLater(input::requestFocus);
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (result.isEmpty() || result.get() != ButtonType.OK) return;
+        CustomerDirectory.Match match = suggestions.getSelectionModel().getSelectedItem();
+        if (match != null) {
+            billing.findCustomer(match.getId()).whenComplete((customer, error) -> {
+                if (error != null) {
+                    showError("Error loading customer: " + unwrap(error).getMessage());
+                    error.printStackTrace();
+                    return;
                 }
+                setCurrentCustomer(customer);
+            });
+        } else if (!input.getText().isBlank()) {
+            lookupCustomerByPhone(input.getText().trim());
+        }
+    }
 
-                if (customer != null) {
-                    currentCustomer = customer;
-                    if (customerNameLabel != null) {
-                        customerNameLabel.setText(customer.getName() + " (" + customer.getTier() + ")");
-                    }
-                    if (customerPointsLabel != null) {
-                        customerPointsLabel.setText(customer.getPoints() + " points available");
-                    }
-                }
+    /**
+     * Select the customer with this phone number, offering to create one if there is none.
+     */
+    private void lookupCustomerByPhone(String phone) {
+        billing.findCustomerByPhone(phone).whenComplete((customer, error) -> {
+            if (error != null) {
+                showError("Error loading customer: " + unwrap(error).getMessage());
+                error.printStackTrace();
+                return;
+            }
+            if (customer != null) {
+                setCurrentCustomer(customer);
+                return;
+            }
 
-            } catch (Exception e) {
-                showError("Error loading customer: " + e.getMessage());
-                e.printStackTrace();
+            // Create new customer dialog
+            Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
+            confirmDialog.setTitle("New Customer");
+            confirmDialog.setHeaderText("Customer not found");
+            confirmDialog.setContentText("Create new customer with phone: " + phone + "?");
+
+            Optional<ButtonType> confirmResult = confirmDialog.showAndWait();
+            if (confirmResult.isPresent() && confirmResult.get() == ButtonType.OK) {
+                TextInputDialog nameDialog = new TextInputDialog();
+                nameDialog.setTitle("Customer Name");
+                nameDialog.setHeaderText("Enter customer name");
+                nameDialog.setContentText("Name:");
+
+                Optional<String> nameResult = nameDialog.showAndWait();
+                if (nameResult.isPresent() && !nameResult.get().trim().isEmpty()) {
+                    billing.createCustomer(nameResult.get().trim(), phone, "").whenComplete((created, e) -> {
+                        if (e != null) {
+                            showError("Error creating customer: " + unwrap(e).getMessage());
+                            e.printStackTrace();
+                            return;
+                        }
+                        setCurrentCustomer(created);
+                        showSuccess("Customer created successfully!");
+                    });
+                }
             }
         });
     }
 
+    private void setCurrentCustomer(Customer customer) {
+        currentCustomer = customer;
+        if (customer == null) return;
+        if (customerNameLabel != null) {
+            customerNameLabel.setText(customer.getName() + " (" + customer.getTier() + ")");
+        }
+        if (customerPointsLabel != null) {
+            customerPointsLabel.setText(customer.getPoints() + " points available");
+        }
+    }
+
     @FXML
     public void onRedeemPoints() {
         if (currentCustomer == null) {
@@ -365,7 +435,6 @@ public class MainController {
                 if (discountField != null) {
                     double currentDiscount = Double.parseDouble(discountField.getText());
                     discountField.setText(String.valueOf(currentDiscount + points));
-                    updateTotals();
                     showSuccess(points + " points will be redeemed");
                 }
             } catch (NumberFormatException e) {
@@ -376,7 +445,8 @@ public class MainController {
 
     @FXML
     public void onCompleteSale() {
-        if (cartItems.isEmpty()) {
+        if (saleInProgress) return;
+        if (cart.isEmpty()) {
             showError("Cart is empty");
             return;
         }
@@ -400,78 +470,96 @@ public class MainController {
         Optional<String> paymentResult = paymentDialog.showAndWait();
         if (!paymentResult.isPresent()) return;
 
-        try {
-            int discountCents = 0;
-            if (discountField != null && !discountField.getText().isEmpty()) {
-                discountCents = (int) (Double.parseDouble(discountField.getText()) * 100);
-            }
-            String customerId = currentCustomer != null ? currentCustomer.getId() : null;
+        int discountCents = (int) cart.getBillDiscountCents();
+        Customer buyer = currentCustomer;
+        String customerId = buyer != null ? buyer.getId() : null;
 
-            // Redeem points if used
-            if (currentCustomer != null && discountCents > 0) {
-                int pointsToRedeem = discountCents / 100; // 1 rupee = 1 point
-                if (pointsToRedeem <= currentCustomer.getPoints()) {
-                    CustomerDAO.redeemPoints(currentCustomer.getId(), pointsToRedeem);
-                }
+        // Redeem points if used
+        int pointsToRedeem = 0;
+        if (buyer != null && discountCents > 0) {
+            pointsToRedeem = discountCents / 100; // 1 rupee = 1 point
+            if (pointsToRedeem > buyer.getPoints()) {
+                pointsToRedeem = 0;
             }
+        }
 
-            // Complete sale
-            String saleId = SalesDAO.completeSale(
-                    new ArrayList<>(cartItems),
-                    customerId,
-                    discountCents,
-                    paymentResult.get()
-            );
+        // Points are redeemed in the same transaction as the sale
+        Sale sale = new Sale(
+                cart.snapshot(),
+                customerId,
+                discountCents,
+                pointsToRedeem,
+                paymentResult.get()
+        );
+
+        // The cart is locked until the sale has committed
+        setSaleInProgress(true);
+        billing.completeSale(sale).whenComplete((saleId, error) -> {
+            setSaleInProgress(false);
+            if (error != null) {
+                showError("Error completing sale: " + unwrap(error).getMessage());
+                error.printStackTrace();
+                return;
+            }
 
-            showSuccess("Sale completed!\nInvoice: INV-" + System.currentTimeMillis());
+            String message = "Sale completed!\nInvoice: " + sale.getInvoiceNumber();
+            if (buyer != null) {
+                // The bill after this one is a new customer's: show the balance, don't reselect
+                message += "\n" + buyer.getName() + " now has "
+                        + (buyer.getPoints() - sale.getPointsRedeemed() + sale.getPointsEarned()) + " points";
+            }
+            showSuccess(message);
 
             // Print bill
-            printBill(saleId);
+            printBill(sale, buyer);
 
-            // Clear cart and refresh customer points
             clearCart();
-            if (currentCustomer != null) {
-                currentCustomer = CustomerDAO.findById(currentCustomer.getId());
-                if (customerPointsLabel != null && currentCustomer != null) {
-                    customerPointsLabel.setText(currentCustomer.getPoints() + " points available");
-                }
-            }
+        });
+    }
 
-        } catch (Exception e) {
-            showError("Error completing sale: " + e.getMessage());
-            e.printStackTrace();
-        }
+    private void setSaleInProgress(boolean inProgress) {
+        saleInProgress = inProgress;
+        cartTable.setDisable(inProgress);
+        if (discountField != null) discountField.setDisable(inProgress);
     }
 
-    private void printBill(String saleId) {
-        try {
-            double subtotal = Double.parseDouble(subtotalLabel.getText().replace("₹", ""));
-            double tax = Double.parseDouble(taxLabel.getText().replace("₹", ""));
-            double discount = Double.parseDouble(discountField.getText());
-            double total = Double.parseDouble(totalLabel.getText().replace("₹", ""));
-
-            boolean printed = ThermalPrinterUtil.printReceipt(
-                    "INV-" + System.currentTimeMillis(),
-                    new ArrayList<>(cartItems),
-                    currentCustomer,
-                    subtotal,
-                    tax,
-                    discount,
-                    total,
-                    "CASH" // Get from sale
-            );
-
-            if (!printed) {
-                showWarning("Bill could not be printed. Please check printer connection.");
+    /**
+     * @param customer the buyer when the sale was made; currentCustomer may have changed
+     *                 while the sale committed
+     */
+    private void printBill(Sale sale, Customer customer) {
+        LocalDateTime time = LocalDateTime.now();
+
+        // Rendering and printing happen on the spooler thread; the till moves on
+        PrintSpooler.getInstance().submit(sale.getInvoiceNumber(), () -> {
+            // Same calculation the sale was stored with
+            CartTotals totals = new CartTotals();
+            GstCalculator.compute(sale.getItems(), sale.getDiscountCents(), totals);
+            return receiptRenderer().render(sale.getInvoiceNumber(), time, sale.getItems(),
+                    customer, totals, sale.getPaymentMode());
+        }, (job, status, attempt, error) -> {
+            if (status == PrintSpooler.Status.FAILED) {
+                Platform.runLater(() -> showWarning("Bill " + job + " could not be printed: "
+                        + error.getMessage() + "\nPlease check printer connection."));
             }
-        } catch (Exception e) {
-            showWarning("Error printing bill: " + e.getMessage());
+        });
+    }
+
+    /**
+     * Receipt template, compiled from the store settings on first use.
+     * Only called from the print spooler thread.
+     */
+    private ReceiptRenderer receiptRenderer() throws SQLException {
+        if (receiptRenderer == null) {
+            receiptRenderer = new ReceiptRenderer(SettingsDAO.getAll(),
+                    AppConfig.getInt("printer.columns", 48));
         }
+        return receiptRenderer;
     }
 
     @FXML
     public void onClearCart() {
-        if (cartItems.isEmpty()) return;
+        if (cart.isEmpty()) return;
 
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Clear Cart");
@@ -484,12 +572,11 @@ public class MainController {
     }
 
     private void clearCart() {
-        cartItems.clear();
+        cart.clear();
         currentCustomer = null;
         if (customerNameLabel != null) customerNameLabel.setText("Walk-in Customer");
         if (customerPointsLabel != null) customerPointsLabel.setText("0 points");
         if (discountField != null) discountField.setText("0");
-        updateTotals();
     }
 
     @FXML
@@ -501,8 +588,11 @@ public class MainController {
 
     @FXML
     public void onShowLowStock() {
-        try {
-            List<Product> lowStockProducts = ProductDAO.getLowStockProducts();
+        billing.getLowStockProducts().whenComplete((lowStockProducts, error) -> {
+            if (error != null) {
+                showError("Error fetching low stock: " + unwrap(error).getMessage());
+                return;
+            }
             if (lowStockProducts.isEmpty()) {
                 showInfo("No low stock items");
                 return;
@@ -519,22 +609,32 @@ public class MainController {
             alert.setHeaderText("Items need restocking");
             alert.setContentText(sb.toString());
             alert.showAndWait();
-
-        } catch (Exception e) {
-            showError("Error fetching low stock: " + e.getMessage());
-        }
+        });
     }
 
     private void checkLowStockAlerts() {
-        try {
-            List<Product> lowStock = ProductDAO.getLowStockProducts();
-            if (!lowStock.isEmpty() && lowStockAlertLabel != null) {
-                lowStockAlertLabel.setText("⚠ " + lowStock.size() + " items low on stock");
-                lowStockAlertLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+        billing.getLowStockProducts().whenComplete((lowStock, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                return;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            showLowStockCount(lowStock.size());
+        });
+        // Kept up to date as sales, imports and stock edits move products across their threshold
+        LowStockTracker.getInstance().addListener(lowStock -> {
+            int count = lowStock.size();
+            Platform.runLater(() -> showLowStockCount(count));
+        });
+    }
+
+    private void showLowStockCount(int count) {
+        if (lowStockAlertLabel == null) return;
+        if (count == 0) {
+            lowStockAlertLabel.setText("");
+            return;
         }
+        lowStockAlertLabel.setText("⚠ " + count + " items low on stock");
+        lowStockAlertLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
     }
 
     private void playSuccessBeep() {
@@ -548,7 +648,6 @@ public class MainController {
     }
 
     // Stub methods for future implementation
-    @FXML public void onBulkImport() { showInfo("Bulk Import - Coming Soon!"); }
     @FXML public void onShowReports() { showInfo("Reports - Coming Soon!"); }
     @FXML public void onShowReturns() { showInfo("Returns - Coming Soon!"); }
     @FXML public void onShowSettings() { showInfo("Settings - Coming Soon!"); }
@@ -557,44 +656,147 @@ public class MainController {
     @FXML public void onEmailBill() { showInfo("Email Bill - Coming Soon!"); }
 
     @FXML
-    public void onPrintBarcodes() {
-        List<Product> products;
-        try {
-            products = ProductDAO.getAllProducts();
-        } catch (Exception e) {
-            e.printStackTrace();
-            showError("Failed to load products for barcode print: " + e.getMessage());
-            return;
-        }
+    public void onBulkImport() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Products");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Spreadsheets (*.csv, *.xlsx)", "*.csv", "*.xlsx"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = chooser.showOpenDialog(primaryStage);
+        if (file == null) return;
+
+        ProgressBar bar = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+        bar.setPrefWidth(360);
+        Label status = new Label("Reading " + file.getName() + "...");
+        Button cancel = new Button("Cancel");
+        VBox box = new VBox(10, status, bar, cancel);
+        box.setPadding(new Insets(15));
+
+        Stage progressStage = new Stage();
+        progressStage.initOwner(primaryStage);
+        progressStage.initModality(Modality.WINDOW_MODAL);
+        progressStage.setTitle("Importing Products");
+        progressStage.setScene(new Scene(box));
+        progressStage.setOnCloseRequest(e -> e.consume());
+
+        ProductImporter importer = new ProductImporter(progress -> Platform.runLater(() -> {
+            if (progress.getFractionRead() >= 0) bar.setProgress(progress.getFractionRead());
+            status.setText(String.format("%,d rows: %,d added, %,d updated, %,d skipped",
+                    progress.getRowsDone(), progress.getInserted(), progress.getUpdated(), progress.getFailed()));
+        }));
+        cancel.setOnAction(e -> {
+            importer.cancel();
+            cancel.setDisable(true);
+            status.setText("Cancelling...");
+        });
+        progressStage.show();
+
+        Thread worker = new Thread(() -> {
+            try {
+                ProductImporter.Result result = importer.importFile(file.toPath());
+                Platform.runLater(() -> {
+                    progressStage.close();
+                    showImportResult(result);
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                Platform.runLater(() -> {
+                    progressStage.close();
+                    showError("Import failed: " + e.getMessage());
+                });
+            }
+        }, "product-import");
+        worker.setDaemon(true);
+        worker.start();
+    }
 
-        if (products == null || products.isEmpty()) {
-            showInfo("No products found. Please add products first.");
+    private void showImportResult(ProductImporter.Result result) {
+        StringBuilder msg = new StringBuilder();
+        msg.append(result.isCancelled() ? "Import cancelled.\n" : "Import finished.\n")
+                .append(String.format("Added: %,d%nUpdated: %,d%nSkipped: %,d%nTime: %.1f s",
+                        result.getInserted(), result.getUpdated(), result.getFailed(),
+                        result.getElapsedMillis() / 1000.0));
+        List<String> errors = result.getErrors();
+        if (errors.isEmpty()) {
+            showSuccess(msg.toString());
             return;
         }
+        msg.append("\n\nSkipped rows:\n");
+        for (int i = 0; i < Math.min(errors.size(), 10); i++) {
+            msg.append(errors.get(i)).append('\n');
+        }
+        if (result.getFailed() > 10) {
+            msg.append("... and ").append(result.getFailed() - 10).append(" more");
+        }
+        showWarning(msg.toString());
+    }
 
-        try {
-            // Print barcode labels for all products
-            int labelsPrinted = 0;
-            for (Product p : products) {
-                boolean success = ThermalPrinterUtil.printBarcodeLabel(
-                        p.getFullDisplayName(),
-                        p.getSku() != null && !p.getSku().isEmpty() ? p.getSku() : p.getId(),
-                        p.getSellPrice()
-                );
-                if (success) labelsPrinted++;
+    @FXML
+    public void onPrintBarcodes() {
+        LabelPrintService labels = LabelPrintService.getInstance();
+        labels.getCategories().thenCombine(labels.getLastPrintedAt(), (categories, lastPrinted) -> {
+            showLabelDialog(categories, lastPrinted).ifPresent(this::printBarcodeLabels);
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                showError("Failed to load products for barcode print: " + unwrap(error).getMessage());
             }
+        });
+    }
 
-            if (labelsPrinted > 0) {
+    private Optional<LabelFilter> showLabelDialog(List<String> categories, String lastPrinted) {
+        String allCategories = "All categories";
+        ComboBox<String> categoryBox = new ComboBox<>();
+        categoryBox.getItems().add(allCategories);
+        categoryBox.getItems().addAll(categories);
+        categoryBox.getSelectionModel().selectFirst();
+
+        ComboBox<LabelFilter.Selection> selectionBox = new ComboBox<>();
+        selectionBox.getItems().addAll(LabelFilter.Selection.values());
+        selectionBox.getSelectionModel().selectFirst();
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Category:"), categoryBox);
+        grid.addRow(1, new Label("Products:"), selectionBox);
+        grid.addRow(2, new Label("Layout:"), new Label(LabelLayout.fromConfig().getName()));
+        grid.addRow(3, new Label("Last printed (all):"), new Label(lastPrinted != null ? lastPrinted + " UTC" : "Never"));
+
+        Dialog<LabelFilter> dialog = new Dialog<>();
+        dialog.setTitle("Print Barcode Labels");
+        dialog.setHeaderText("Choose which labels to print");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        dialog.setResultConverter(button -> {
+            if (button != ButtonType.OK) return null;
+            String category = categoryBox.getValue();
+            return new LabelFilter(allCategories.equals(category) ? null : category, selectionBox.getValue());
+        });
+        return dialog.showAndWait();
+    }
+
+    private void printBarcodeLabels(LabelFilter filter) {
+        // Rendering and printing run in the background as one print job
+        LabelPrintService.getInstance().print(filter).whenComplete((labelsPrinted, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                showError("Error printing barcodes: " + unwrap(error).getMessage());
+            } else if (labelsPrinted == 0) {
+                showInfo("No products match. Nothing to print.");
+            } else {
                 showSuccess("Successfully printed " + labelsPrinted + " barcode labels!\n" +
                         "Cut the labels and stick them on products.");
-            } else {
-                showWarning("No labels were printed. Check printer connection.");
             }
+        });
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            showError("Error printing barcodes: " + e.getMessage());
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
         }
+        return e;
     }
 
     private void showError(String msg) {
@@ -109,7 +109,8 @@ public class ProductFormController {
 
             // Generate barcode image for printing
             try {
-                String barcode = sku.isEmpty() ? productId : sku;
+                // The allocated EAN-13 when the SKU was left blank, so the label scans back
+                String barcode = ProductDAO.findById(productId).getBarcode();
                 BarcodeUtil.generateCode128(barcode, "labels/" + productId + ".png");
             } catch (Exception e) {
                 System.err.println("Could not generate barcode image: " + e.getMessage());
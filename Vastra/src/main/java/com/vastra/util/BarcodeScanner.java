@@ -1,87 +1,162 @@
 package com.vastra.util;
 
 import javafx.application.Platform;
-import javafx.scene.control.TextField;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 /**
  * Utility class to handle hardware barcode scanner input.
  * Most barcode scanners work as keyboard wedge devices - they simulate keyboard input.
- * This class accumulates rapid key inputs and detects when a complete barcode has been scanned.
+ *
+ * Keystrokes are captured on the FX thread into a KeystrokeRingBuffer and nothing else
+ * happens there, so a burst of scans is never lost while the UI is busy. A decoder thread
+ * frames them into barcodes (ScanDecoder), and the ScanCoalescer delivers the scans back
+ * on the FX thread in order, merging repeats of the same code within its window into one
+ * quantity.
+ *
+ * Call scanApplied() once a scan has reached the cart to record its latency
+ * from first keystroke to cart update (also exported as vastra_scan_to_cart_seconds).
  */
 public class BarcodeScanner {
 
-    private static final long SCAN_TIMEOUT_MS = 100; // Time between characters for a scan
-    private StringBuilder scanBuffer = new StringBuilder();
-    private long lastScanTime = 0;
-    private Consumer<String> onBarcodeScanned;
-    private TextField scanField;
+    private static final LatencyHistogram SCAN_TO_CART = Metrics.histogram("vastra_scan_to_cart_seconds",
+            "Time from the first keystroke of a scan until the product is in the cart");
 
-    public BarcodeScanner(TextField scanField, Consumer<String> onBarcodeScanned) {
-        this.scanField = scanField;
-        this.onBarcodeScanned = onBarcodeScanned;
-        setupScannerListener();
-    }
+    private final KeystrokeRingBuffer buffer;
+    private final ScanDecoder decoder;
+    private final ScanCoalescer coalescer;
+    private final long maxKeyGapNanos;
+    private final Thread decoderThread;
+    private volatile boolean running = true;
 
-    /**
-     * Setup listener on the text field to detect rapid input from barcode scanner
-     */
-    private void setupScannerListener() {
-        scanField.textProperty().addListener((obs, oldVal, newVal) -> {
-            long currentTime = System.currentTimeMillis();
+    // Written by the FX thread only
+    private long lastKeyNanos;
 
-            // If too much time has passed, this is manual typing, not a scan
-            if (currentTime - lastScanTime > SCAN_TIMEOUT_MS && scanBuffer.length() > 0) {
-                scanBuffer.setLength(0);
-            }
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
 
-            lastScanTime = currentTime;
+    public BarcodeScanner(Consumer<ScanEvent> onScan) {
+        this(onScan, Platform::runLater,
+                AppConfig.getLong("scanner.maxKeyGapMs", 100),
+                AppConfig.getInt("scanner.minLength", 3),
+                AppConfig.getBoolean("scanner.flushOnGap", false),
+                AppConfig.getLong("scanner.coalesceWindowMs", 300),
+                AppConfig.getInt("scanner.bufferSize", 1024));
+    }
 
-            // Barcode scanners typically send Enter/Return at the end
-            if (newVal.contains("\n") || newVal.contains("\r")) {
-                String barcode = newVal.replace("\n", "").replace("\r", "").trim();
-                if (!barcode.isEmpty()) {
-                    processScan(barcode);
-                }
-                Platform.runLater(() -> scanField.clear());
-                scanBuffer.setLength(0);
+    public BarcodeScanner(Consumer<ScanEvent> onScan, Executor deliveryExecutor, long maxKeyGapMs,
+                          int minLength, boolean flushOnGap, long coalesceWindowMs, int bufferSize) {
+        this.buffer = new KeystrokeRingBuffer(bufferSize);
+        this.decoder = new ScanDecoder(maxKeyGapMs, minLength, flushOnGap);
+        this.coalescer = new ScanCoalescer(onScan, deliveryExecutor, coalesceWindowMs);
+        this.maxKeyGapNanos = maxKeyGapMs * 1_000_000L;
+        this.decoderThread = new Thread(this::decodeLoop, "scanner-decoder");
+        this.decoderThread.setDaemon(true);
+        this.decoderThread.start();
+    }
+
+    /**
+     * Listen for scanner input anywhere in the scene.
+     */
+    public void attach(Scene scene) {
+        scene.addEventFilter(KeyEvent.KEY_TYPED, event -> {
+            String text = event.getCharacter();
+            if (text.length() == 1 && !Character.isISOControl(text.charAt(0))) {
+                keyTyped(text.charAt(0));
             }
         });
-
-        // Alternative: Listen for Enter key on the field
-        scanField.setOnAction(e -> {
-            String barcode = scanField.getText().trim();
-            if (!barcode.isEmpty()) {
-                processScan(barcode);
-                scanField.clear();
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                // Enter ending a scan must not also trigger the focused button
+                if (isScanning()) {
+                    event.consume();
+                }
+                keyTyped('\n');
             }
         });
     }
 
     /**
-     * Process the scanned barcode
+     * Capture one keystroke. Called on the FX thread; never blocks.
      */
-    private void processScan(String barcode) {
-        if (onBarcodeScanned != null) {
-            Platform.runLater(() -> onBarcodeScanned.accept(barcode));
+    public void keyTyped(char key) {
+        long now = System.nanoTime();
+        if (key != '\n') {
+            lastKeyNanos = now;
         }
+        buffer.offer(key, now);
+        LockSupport.unpark(decoderThread);
     }
 
     /**
-     * Enable/disable the scanner
+     * True while keys are arriving at scanner speed.
      */
-    public void setEnabled(boolean enabled) {
-        scanField.setDisable(!enabled);
-        if (enabled) {
-            Platform.runLater(() -> scanField.requestFocus());
-        }
+    public boolean isScanning() {
+        return lastKeyNanos != 0 && System.nanoTime() - lastKeyNanos <= maxKeyGapNanos;
     }
 
     /**
-     * Request focus on scan field
+     * Record that a scan has been applied to the cart.
      */
-    public void requestFocus() {
-        Platform.runLater(() -> scanField.requestFocus());
+    public void scanApplied(ScanEvent scan) {
+        long now = System.nanoTime();
+        scan.markApplied(now);
+        long latency = now - scan.getFirstKeyNanos();
+        SCAN_TO_CART.record(latency);
+        scans.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(decoderThread);
+    }
+
+    public long getScanCount() { return scans.get(); }
+    public long getCoalescedCount() { return coalescer.getCoalesced(); }
+    public long getDroppedKeystrokes() { return buffer.getDropped(); }
+    public double getMaxLatencyMillis() { return maxLatencyNanos.get() / 1_000_000.0; }
+
+    public double getAverageLatencyMillis() {
+        long n = scans.get();
+        return n == 0 ? 0 : totalLatencyNanos.get() / 1_000_000.0 / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BarcodeScanner[%d scans, %d merged, %d keys dropped, latency avg %.1f ms, max %.1f ms]",
+                getScanCount(), getCoalescedCount(), getDroppedKeystrokes(),
+                getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+
+    private void decodeLoop() {
+        KeystrokeRingBuffer.KeyHandler onKey = (key, nanos) -> emit(decoder.onKey(key, nanos));
+        while (running) {
+            boolean idle = buffer.drainTo(onKey) == 0;
+            long now = System.nanoTime();
+            if (idle) {
+                emit(decoder.onIdle(now));
+            }
+            long deliveryDue = coalescer.flush(now);
+            if (idle) {
+                // Wake up for the next key, when an open frame's gap runs out or when held scans are due
+                long park = decoder.hasOpenFrame() ? maxKeyGapNanos : 1_000_000_000L;
+                LockSupport.parkNanos(deliveryDue > 0 ? Math.min(park, deliveryDue) : park);
+            }
+        }
+    }
+
+    private void emit(ScanEvent scan) {
+        if (scan != null) {
+            coalescer.submit(scan);
+        }
     }
-}
\ No newline at end of file
+}
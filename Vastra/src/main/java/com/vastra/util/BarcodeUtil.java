@@ -3,20 +3,33 @@ package com.vastra.util;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.MultiFormatWriter;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
-
-import java.nio.file.Paths;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Code 128 rendering.
+ *
+ * A 1D barcode is the same on every row, so ZXing is asked for a single row at the
+ * requested width and that row is copied down the image height. Images are written
+ * pixel by pixel without going through AWT. For cached and batch rendering use
+ * BarcodeImageService.
+ */
 public class BarcodeUtil {
 
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
     public static void generateCode128(String text, String outputPath) throws Exception {
         // Create labels directory if it doesn't exist
         File outputFile = new File(outputPath);
@@ -25,25 +38,90 @@ public class BarcodeUtil {
             parentDir.mkdirs();
         }
 
-        BitMatrix matrix = new MultiFormatWriter().encode(text, BarcodeFormat.CODE_128, 400, 120);
-        MatrixToImageWriter.writeToPath(matrix, "PNG", Paths.get(outputPath));
+        BitMatrix row = encodeRow(text, 400, 10);
+        if (!ImageIO.write(toBufferedImage(row, 120), "PNG", outputFile)) {
+            throw new IOException("No PNG writer available");
+        }
     }
 
     public static Image generateBarcodeImage(String text, int width, int height) {
         try {
-            Map<EncodeHintType, Object> hints = new HashMap<>();
             // small margin so barcode fits label
-            hints.put(EncodeHintType.MARGIN, 1);
-
-            BitMatrix matrix = new MultiFormatWriter()
-                    .encode(text, BarcodeFormat.CODE_128, width, height, hints);
-
-            BufferedImage bufferedImage = MatrixToImageWriter.toBufferedImage(matrix);
-            return SwingFXUtils.toFXImage(bufferedImage, null);
+            return toImage(encodeRow(text, width, 1), height);
         } catch (Exception e) {
             // log and return null so the caller can handle it
             e.printStackTrace();
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * EAN-13 check digit for the first 12 digits of code: digits in odd positions
+     * (from the left, 1-based) weigh 1, even positions 3.
+     */
+    public static int ean13CheckDigit(CharSequence code) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = code.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Not a digit at position " + (i + 1) + ": " + code);
+            }
+            sum += (i % 2 == 0) ? digit : 3 * digit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * True if code is 13 digits ending in the right check digit.
+     */
+    public static boolean isValidEan13(String code) {
+        if (code == null || code.length() != 13) return false;
+        for (int i = 0; i < 13; i++) {
+            if (code.charAt(i) < '0' || code.charAt(i) > '9') return false;
+        }
+        return ean13CheckDigit(code) == code.charAt(12) - '0';
+    }
+
+    /**
+     * One row of a Code 128 barcode, width pixels wide (wider if the code needs it)
+     * with a quiet zone of margin modules on each side.
+     */
+    public static BitMatrix encodeRow(String text, int width, int margin) throws WriterException {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.MARGIN, margin);
+        return new MultiFormatWriter().encode(text, BarcodeFormat.CODE_128, width, 1, hints);
+    }
+
+    /**
+     * Paint a barcode row height pixels tall. Every scanline reuses the same pixel row.
+     */
+    public static WritableImage toImage(BitMatrix row, int height) {
+        int[] pixels = toPixels(row);
+        WritableImage image = new WritableImage(pixels.length, height);
+        PixelWriter writer = image.getPixelWriter();
+        for (int y = 0; y < height; y++) {
+            writer.setPixels(0, y, pixels.length, 1, PixelFormat.getIntArgbInstance(), pixels, 0, pixels.length);
+        }
+        return image;
+    }
+
+    /**
+     * Same as toImage for AWT printing (label sheets).
+     */
+    public static BufferedImage toBufferedImage(BitMatrix row, int height) {
+        int[] pixels = toPixels(row);
+        BufferedImage image = new BufferedImage(pixels.length, height, BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < height; y++) {
+            image.setRGB(0, y, pixels.length, 1, pixels, 0, pixels.length);
+        }
+        return image;
+    }
+
+    private static int[] toPixels(BitMatrix row) {
+        int[] pixels = new int[row.getWidth()];
+        for (int x = 0; x < pixels.length; x++) {
+            pixels[x] = row.get(x, 0) ? BLACK : WHITE;
+        }
+        return pixels;
+    }
+}
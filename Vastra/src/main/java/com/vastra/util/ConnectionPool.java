@@ -0,0 +1,599 @@
+package com.vastra.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of long-lived SQLite connections.
+ *
+ * SQLite allows any number of readers but only one writer at a time, so the pool keeps
+ * a single dedicated writer connection (handed out under a re-entrant lock, so DAO calls
+ * made while a transaction is open join it) plus a bounded set of read-only readers.
+ * PRAGMAs are applied once when a connection is opened, and idle connections are
+ * health-checked before being handed out again.
+ *
+ * Each physical connection also keeps an LRU cache of prepared statements keyed by SQL text,
+ * so hot lookups reuse the compiled statement instead of having SQLite parse them again.
+ *
+ * Callers use the returned Connection exactly like a normal one: close() returns it to the pool.
+ *
+ * Every statement, cached or not, is traced (see StatementTrace): executions are timed
+ * into vastra_db_query_seconds and slow ones go to the SlowQueryLog. Time spent waiting
+ * for a connection is recorded in vastra_db_pool_wait_seconds.
+ */
+public class ConnectionPool {
+
+    private static final LatencyHistogram READER_WAIT = Metrics.histogram("vastra_db_pool_wait_seconds",
+            "Time spent waiting for a busy database connection", "connection", "reader");
+    private static final LatencyHistogram WRITER_WAIT = Metrics.histogram("vastra_db_pool_wait_seconds",
+            "Time spent waiting for a busy database connection", "connection", "writer");
+
+    private final String url;
+    private final int maxReaders;
+    private final long acquireTimeoutMs;
+    private final long validateAfterIdleMs;
+    private final int statementCacheSize;
+
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private PooledConnection writer;
+    private volatile boolean closed;
+
+    // Metrics
+    private final LongAdder readerBorrows = new LongAdder();
+    private final LongAdder writerBorrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ConnectionPool(String url, int maxReaders, long acquireTimeoutMs,
+                          long validateAfterIdleMs, int statementCacheSize) {
+        this.url = url;
+        this.maxReaders = Math.max(1, maxReaders);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.validateAfterIdleMs = validateAfterIdleMs;
+        this.statementCacheSize = statementCacheSize;
+        this.idleReaders = new ArrayBlockingQueue<>(this.maxReaders);
+    }
+
+    /**
+     * Borrow a read-only connection. Blocks up to the acquire timeout if all readers are busy.
+     */
+    public Connection getReader() throws SQLException {
+        ensureOpen();
+        readerBorrows.increment();
+
+        PooledConnection pc = idleReaders.poll();
+        if (pc == null) {
+            pc = tryOpenReader();
+        }
+        if (pc == null) {
+            waits.increment();
+            long start = System.nanoTime();
+            try {
+                pc = idleReaders.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            waitNanos.add(System.nanoTime() - start);
+            READER_WAIT.recordSince(start);
+            if (pc == null) {
+                timeouts.increment();
+                throw new SQLException("Timed out waiting for a database connection after " + acquireTimeoutMs + " ms");
+            }
+        }
+
+        pc = checkHealth(pc);
+        return pc.lease();
+    }
+
+    /**
+     * Borrow the writer connection. Only one thread holds it at a time; a thread that already
+     * holds it gets the same connection back, so nested DAO calls share the open transaction.
+     */
+    public Connection getWriter() throws SQLException {
+        ensureOpen();
+        writerBorrows.increment();
+
+        if (writerLock.isHeldByCurrentThread()) {
+            writerLock.lock(); // re-entrant: bump the hold count
+        } else if (!writerLock.tryLock()) {
+            waits.increment();
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = writerLock.tryLock(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the writer connection", e);
+            }
+            waitNanos.add(System.nanoTime() - start);
+            WRITER_WAIT.recordSince(start);
+            if (!acquired) {
+                timeouts.increment();
+                throw new SQLException("Timed out waiting for the writer connection after " + acquireTimeoutMs + " ms");
+            }
+        }
+
+        try {
+            if (writer == null) {
+                writer = open(true);
+            } else if (writerLock.getHoldCount() == 1) {
+                writer = checkHealth(writer);
+            }
+            return writer.lease();
+        } catch (SQLException | RuntimeException e) {
+            writerLock.unlock();
+            throw e;
+        }
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(
+                maxReaders,
+                openReaders.get(),
+                idleReaders.size(),
+                writerLock.isLocked(),
+                readerBorrows.sum(),
+                writerBorrows.sum(),
+                waits.sum(),
+                timeouts.sum(),
+                created.sum(),
+                discarded.sum(),
+                TimeUnit.NANOSECONDS.toMillis(waitNanos.sum()),
+                statementHits.sum(),
+                statementMisses.sum(),
+                evictions.sum()
+        );
+    }
+
+    /**
+     * Close every idle connection and refuse new borrows.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pc;
+        while ((pc = idleReaders.poll()) != null) {
+            pc.closeQuietly();
+            openReaders.decrementAndGet();
+        }
+        writerLock.lock();
+        try {
+            if (writer != null) {
+                writer.closeQuietly();
+                writer = null;
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    private PooledConnection tryOpenReader() throws SQLException {
+        while (true) {
+            int current = openReaders.get();
+            if (current >= maxReaders) {
+                return null;
+            }
+            if (openReaders.compareAndSet(current, current + 1)) {
+                try {
+                    return open(false);
+                } catch (SQLException e) {
+                    openReaders.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private PooledConnection open(boolean isWriter) throws SQLException {
+        Connection raw = DriverManager.getConnection(url);
+        try (Statement s = raw.createStatement()) {
+            if (isWriter) {
+                s.execute("PRAGMA journal_mode=WAL");
+            }
+            s.execute("PRAGMA synchronous=NORMAL");
+            s.execute("PRAGMA busy_timeout=5000");
+            s.execute("PRAGMA cache_size=-8000"); // 8 MB page cache per connection
+            s.execute("PRAGMA temp_store=MEMORY");
+            if (!isWriter) {
+                s.execute("PRAGMA query_only=1");
+            }
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+        created.increment();
+        return new PooledConnection(raw, isWriter);
+    }
+
+    /**
+     * Validate a connection that has been idle for a while, replacing it if it is broken.
+     */
+    private PooledConnection checkHealth(PooledConnection pc) throws SQLException {
+        if (System.currentTimeMillis() - pc.lastUsed < validateAfterIdleMs) {
+            return pc;
+        }
+        try (Statement s = pc.raw.createStatement()) {
+            s.execute("SELECT 1");
+            return pc;
+        } catch (SQLException e) {
+            System.err.println("Discarding broken database connection: " + e.getMessage());
+            discarded.increment();
+            pc.closeQuietly();
+            return open(pc.isWriter);
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        pc.lastUsed = System.currentTimeMillis();
+        if (pc.isWriter) {
+            try {
+                if (writerLock.getHoldCount() == 1) {
+                    reset(pc);
+                }
+            } finally {
+                writerLock.unlock();
+            }
+            return;
+        }
+
+        if (!reset(pc) || closed || !idleReaders.offer(pc)) {
+            discarded.increment();
+            pc.closeQuietly();
+            openReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Roll back anything left open so the next borrower starts clean.
+     */
+    private boolean reset(PooledConnection pc) {
+        try {
+            if (!pc.raw.getAutoCommit()) {
+                pc.raw.rollback();
+                pc.raw.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Could not reset pooled connection: " + e.getMessage());
+            if (pc.isWriter) {
+                discarded.increment();
+                pc.closeQuietly();
+                writer = null;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool, with its own prepared-statement cache.
+     */
+    private class PooledConnection {
+        final Connection raw;
+        final boolean isWriter;
+        long lastUsed = System.currentTimeMillis();
+
+        // LRU cache of compiled statements keyed by SQL text. Only the thread that
+        // currently holds this connection touches it, so no locking is needed.
+        private final LinkedHashMap<String, CachedStatement> statements =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                        if (size() <= statementCacheSize || eldest.getValue().inUse) {
+                            return false;
+                        }
+                        evictions.increment();
+                        eldest.getValue().closeQuietly();
+                        return true;
+                    }
+                };
+
+        PooledConnection(Connection raw, boolean isWriter) {
+            this.raw = raw;
+            this.isWriter = isWriter;
+        }
+
+        /**
+         * Hand out a proxy for one borrow. Each borrow gets its own proxy so a caller that
+         * holds on to a closed connection can't use it after someone else borrowed it.
+         */
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && !cached.inUse) {
+                statementHits.increment();
+            } else if (cached != null) {
+                // Same SQL already open further up the call stack: use a one-off statement
+                statementMisses.increment();
+                return traced(PreparedStatement.class, raw.prepareStatement(sql), new StatementTrace(raw, sql));
+            } else {
+                statementMisses.increment();
+                cached = new CachedStatement(raw.prepareStatement(sql), new StatementTrace(raw, sql));
+                statements.put(sql, cached);
+            }
+            cached.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new StatementLease(cached));
+        }
+
+        void closeQuietly() {
+            for (CachedStatement cached : statements.values()) {
+                cached.closeQuietly();
+            }
+            statements.clear();
+            try {
+                raw.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean released;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + (pc.isWriter ? "Writer" : "Reader") + "[" + pc.raw + "]";
+                default:
+                    if (released) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (method.getName().equals("prepareStatement") && args.length == 1) {
+                        return pc.prepare((String) args[0]);
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(pc.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    switch (method.getName()) {
+                        case "createStatement":
+                            return traced(Statement.class, (Statement) result, new StatementTrace(pc.raw, null));
+                        case "prepareStatement":
+                            return traced(PreparedStatement.class, (PreparedStatement) result,
+                                    new StatementTrace(pc.raw, (String) args[0]));
+                        default:
+                            return result;
+                    }
+            }
+        }
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement ps;
+        final StatementTrace trace;
+        boolean inUse;
+
+        CachedStatement(PreparedStatement ps, StatementTrace trace) {
+            this.ps = ps;
+            this.trace = trace;
+        }
+
+        void closeQuietly() {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * One use of a cached statement. close() resets the statement and hands it back to the
+     * cache instead of finalizing it, so SQLite never has to re-parse the SQL.
+     */
+    private static class StatementLease implements InvocationHandler {
+        private final CachedStatement cached;
+        private ResultSet openResultSet;
+        private boolean returned;
+
+        StatementLease(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        try {
+                            // An unfinished result set keeps the read snapshot open
+                            if (openResultSet != null) openResultSet.close();
+                            cached.ps.clearParameters();
+                            cached.ps.clearBatch();
+                        } finally {
+                            cached.trace.reset();
+                            cached.inUse = false;
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || cached.ps.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + cached.ps + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    Object result = cached.trace.invoke(cached.ps, method, args);
+                    if (result instanceof ResultSet) {
+                        openResultSet = (ResultSet) result;
+                    }
+                    return result;
+            }
+        }
+    }
+
+    private static <T extends Statement> T traced(Class<T> type, T statement, StatementTrace trace) {
+        return type.cast(Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                new TracedStatement(statement, trace)));
+    }
+
+    /**
+     * A statement outside the cache: a plain Statement, or a one-off PreparedStatement.
+     * close() really closes it.
+     */
+    private static class TracedStatement implements InvocationHandler {
+        private final Statement target;
+        private final StatementTrace trace;
+
+        TracedStatement(Statement target, StatementTrace trace) {
+            this.target = target;
+            this.trace = trace;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    try {
+                        target.close();
+                    } finally {
+                        trace.reset();
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return trace.invoke(target, method, args);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of pool counters.
+     */
+    public static class PoolStats {
+        private final int maxReaders;
+        private final int openReaders;
+        private final int idleReaders;
+        private final boolean writerBusy;
+        private final long readerBorrows;
+        private final long writerBorrows;
+        private final long waits;
+        private final long timeouts;
+        private final long created;
+        private final long discarded;
+        private final long totalWaitMs;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+
+        PoolStats(int maxReaders, int openReaders, int idleReaders, boolean writerBusy,
+                  long readerBorrows, long writerBorrows, long waits, long timeouts,
+                  long created, long discarded, long totalWaitMs,
+                  long statementHits, long statementMisses, long statementEvictions) {
+            this.maxReaders = maxReaders;
+            this.openReaders = openReaders;
+            this.idleReaders = idleReaders;
+            this.writerBusy = writerBusy;
+            this.readerBorrows = readerBorrows;
+            this.writerBorrows = writerBorrows;
+            this.waits = waits;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.discarded = discarded;
+            this.totalWaitMs = totalWaitMs;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public int getMaxReaders() { return maxReaders; }
+        public int getOpenReaders() { return openReaders; }
+        public int getIdleReaders() { return idleReaders; }
+        public boolean isWriterBusy() { return writerBusy; }
+        public long getReaderBorrows() { return readerBorrows; }
+        public long getWriterBorrows() { return writerBorrows; }
+        public long getWaits() { return waits; }
+        public long getTimeouts() { return timeouts; }
+        public long getCreated() { return created; }
+        public long getDiscarded() { return discarded; }
+        public long getTotalWaitMs() { return totalWaitMs; }
+        public long getStatementHits() { return statementHits; }
+        public long getStatementMisses() { return statementMisses; }
+        public long getStatementEvictions() { return statementEvictions; }
+
+        public double getStatementHitRate() {
+            long total = statementHits + statementMisses;
+            return total == 0 ? 0 : (double) statementHits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("readers %d/%d open (%d idle), writer %s, borrows r=%d w=%d, " +
+                            "waits=%d (%d ms), timeouts=%d, created=%d, discarded=%d, " +
+                            "statements hit=%d miss=%d evicted=%d",
+                    openReaders, maxReaders, idleReaders, writerBusy ? "busy" : "free",
+                    readerBorrows, writerBorrows, waits, totalWaitMs, timeouts, created, discarded,
+                    statementHits, statementMisses, statementEvictions);
+        }
+    }
+}
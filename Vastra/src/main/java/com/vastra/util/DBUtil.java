@@ -1,189 +1,612 @@
 package com.vastra.util;
 
+import com.vastra.dao.SalesDAO;
+import com.vastra.service.BarcodeAllocator;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public class DBUtil {
 
-    private static final String DB_URL = "jdbc:sqlite:db/vastra.db";
+    private static final String DEFAULT_DB_URL = "jdbc:sqlite:db/vastra.db";
+
+    private static volatile ConnectionPool pool;
+
+    /**
+     * Borrow a pooled read-only connection. Closing it returns it to the pool.
+     */
+    public static Connection getConnection() throws SQLException {
+        return pool().getReader();
+    }
+
+    /**
+     * Borrow the single writer connection. Use this for every INSERT/UPDATE/DELETE.
+     */
+    public static Connection getWriteConnection() throws SQLException {
+        return pool().getWriter();
+    }
 
-    public static Connection getConnection() throws java.sql.SQLException {
-        return DriverManager.getConnection(DB_URL);
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return pool().getStats();
     }
 
+    /**
+     * Close all pooled connections. The pool is re-created on the next getConnection().
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        // Its reserved block of barcodes belongs to this database
+        BarcodeAllocator.shutdownInstance();
+        SlowQueryLog.shutdownInstance();
+    }
+
+    private static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p != null) return p;
+        synchronized (DBUtil.class) {
+            if (pool == null) {
+                pool = new ConnectionPool(
+                        AppConfig.getString("vastra.db.url", DEFAULT_DB_URL),
+                        AppConfig.getInt("db.pool.readers", 4),
+                        AppConfig.getLong("db.pool.acquireTimeoutMs", 10_000),
+                        AppConfig.getLong("db.pool.validateAfterIdleMs", 30_000),
+                        AppConfig.getInt("db.pool.statementCacheSize", 64));
+            }
+            return pool;
+        }
+    }
+
+    /*
+     * Products, customers, sales and sale items are keyed by INTEGER PRIMARY KEY (the
+     * rowid), numbered in insert order. New rows go at the end of the table B-tree
+     * instead of at a random page, and the keys and the indexes and foreign keys that
+     * repeat them take 1-8 bytes instead of 36. Java code still passes ids as strings;
+     * SQLite's integer affinity converts them when they are bound.
+     *
+     * %s is the table name, so the migration can build a copy under another name.
+     */
+
+    private static final String PRODUCTS_TABLE = """
+        CREATE TABLE IF NOT EXISTS %s (
+          id INTEGER PRIMARY KEY,
+          name TEXT NOT NULL,
+          variant TEXT,
+          category TEXT,
+          brand TEXT,
+          barcode TEXT UNIQUE,
+          sku TEXT,
+          mrp_cents INTEGER NOT NULL,
+          sell_price_cents INTEGER NOT NULL,
+          purchase_price_cents INTEGER DEFAULT 0,
+          gst_percent INTEGER DEFAULT 0,
+          hsn_code TEXT,
+          stock INTEGER DEFAULT 0,
+          reorder_threshold INTEGER DEFAULT 5,
+          unit TEXT DEFAULT 'PCS',
+          description TEXT,
+          image_path TEXT,
+          is_active INTEGER DEFAULT 1,
+          created_at TEXT,
+          updated_at TEXT,
+          label_changed_at TEXT,
+          restocked_at TEXT
+        );
+    """;
+
+    private static final String CUSTOMERS_TABLE = """
+        CREATE TABLE IF NOT EXISTS %s (
+          id INTEGER PRIMARY KEY,
+          name TEXT NOT NULL,
+          phone TEXT UNIQUE NOT NULL,
+          email TEXT,
+          address TEXT,
+          city TEXT,
+          pincode TEXT,
+          birthday TEXT,
+          anniversary TEXT,
+          points INTEGER DEFAULT 0,
+          total_purchases_cents INTEGER DEFAULT 0,
+          visit_count INTEGER DEFAULT 0,
+          tier TEXT DEFAULT 'BRONZE',
+          notes TEXT,
+          is_active INTEGER DEFAULT 1,
+          created_at TEXT,
+          last_visit TEXT
+        );
+    """;
+
+    private static final String SALES_TABLE = """
+        CREATE TABLE IF NOT EXISTS %s (
+          id INTEGER PRIMARY KEY,
+          invoice_number TEXT UNIQUE,
+          customer_id INTEGER,
+          cashier_name TEXT,
+          ts TEXT NOT NULL,
+          subtotal_cents INTEGER NOT NULL,
+          tax_cents INTEGER NOT NULL,
+          discount_cents INTEGER DEFAULT 0,
+          points_redeemed INTEGER DEFAULT 0,
+          total_cents INTEGER NOT NULL,
+          payment_mode TEXT NOT NULL,
+          amount_received_cents INTEGER,
+          change_returned_cents INTEGER,
+          status TEXT DEFAULT 'COMPLETED',
+          notes TEXT,
+          created_at TEXT,
+          sale_date TEXT GENERATED ALWAYS AS (substr(ts, 1, 10)) VIRTUAL,
+          FOREIGN KEY(customer_id) REFERENCES customers(id)
+        );
+    """;
+
+    private static final String SALE_ITEMS_TABLE = """
+        CREATE TABLE IF NOT EXISTS %s (
+          id INTEGER PRIMARY KEY,
+          sale_id INTEGER NOT NULL,
+          product_id INTEGER NOT NULL,
+          product_name TEXT NOT NULL,
+          product_variant TEXT,
+          qty INTEGER NOT NULL,
+          unit_price_cents INTEGER NOT NULL,
+          discount_cents INTEGER DEFAULT 0,
+          tax_percent INTEGER DEFAULT 0,
+          line_total_cents INTEGER NOT NULL,
+          FOREIGN KEY(sale_id) REFERENCES sales(id),
+          FOREIGN KEY(product_id) REFERENCES products(id)
+        );
+    """;
+
+    // The search index triggers as migration 6 created them; migration 10 replaces them
+    private static final String PRODUCTS_FTS_INSERT_TRIGGER = """
+        CREATE TRIGGER IF NOT EXISTS products_fts_ai AFTER INSERT ON products BEGIN
+          INSERT INTO products_fts(rowid, name, variant, brand, category, sku)
+          VALUES (new.rowid, new.name, new.variant, new.brand, new.category, new.sku);
+        END;
+    """;
+
+    /*
+     * Full-text index over product name, variant, brand, category and SKU. It is an
+     * external-content FTS5 table (it stores only the index, not a second copy of the text)
+     * kept in sync with products by triggers. Prefix indexes make 2-3 character
+     * search-as-you-type queries cheap.
+     */
+    private static final String PRODUCTS_FTS_TABLE = """
+        CREATE VIRTUAL TABLE IF NOT EXISTS products_fts USING fts5(
+          name, variant, brand, category, sku,
+          content='products', content_rowid='rowid',
+          tokenize='unicode61 remove_diacritics 2', prefix='2 3'
+        );
+    """;
+
+    private static final String PRODUCTS_FTS_DELETE_TRIGGER = """
+        CREATE TRIGGER IF NOT EXISTS products_fts_ad AFTER DELETE ON products BEGIN
+          INSERT INTO products_fts(products_fts, rowid, name, variant, brand, category, sku)
+          VALUES ('delete', old.rowid, old.name, old.variant, old.brand, old.category, old.sku);
+        END;
+    """;
+
+    // Only fires when a searchable column actually changes, not on stock or price updates
+    // (or imports that rewrite the same name)
+    private static final String PRODUCTS_FTS_UPDATE_TRIGGER = """
+        CREATE TRIGGER IF NOT EXISTS products_fts_au
+        AFTER UPDATE OF name, variant, brand, category, sku ON products
+        WHEN new.name IS NOT old.name OR new.variant IS NOT old.variant OR new.brand IS NOT old.brand
+          OR new.category IS NOT old.category OR new.sku IS NOT old.sku
+        BEGIN
+          INSERT INTO products_fts(products_fts, rowid, name, variant, brand, category, sku)
+          VALUES ('delete', old.rowid, old.name, old.variant, old.brand, old.category, old.sku);
+          INSERT INTO products_fts(rowid, name, variant, brand, category, sku)
+          VALUES (new.rowid, new.name, new.variant, new.brand, new.category, new.sku);
+        END;
+    """;
+
+    /*
+     * Only active products are in the search index, so deactivated ones cannot crowd active
+     * matches out of ProductDAO.search's candidate window. Deactivating a product takes it
+     * out of the index and reactivating puts it back. An FTS 'rebuild' would index every
+     * row again; re-index with INDEX_ACTIVE_PRODUCTS instead.
+     */
+    private static final String ACTIVE_PRODUCTS_FTS_INSERT_TRIGGER = """
+        CREATE TRIGGER IF NOT EXISTS products_fts_ai AFTER INSERT ON products
+        WHEN new.is_active = 1
+        BEGIN
+          INSERT INTO products_fts(rowid, name, variant, brand, category, sku)
+          VALUES (new.rowid, new.name, new.variant, new.brand, new.category, new.sku);
+        END;
+    """;
+
+    private static final String ACTIVE_PRODUCTS_FTS_DELETE_TRIGGER = """
+        CREATE TRIGGER IF NOT EXISTS products_fts_ad AFTER DELETE ON products
+        WHEN old.is_active = 1
+        BEGIN
+          INSERT INTO products_fts(products_fts, rowid, name, variant, brand, category, sku)
+          VALUES ('delete', old.rowid, old.name, old.variant, old.brand, old.category, old.sku);
+        END;
+    """;
+
+    // An FTS 'delete' must pass exactly what was indexed, hence the is_active checks
+    private static final String ACTIVE_PRODUCTS_FTS_UPDATE_TRIGGER = """
+        CREATE TRIGGER IF NOT EXISTS products_fts_au
+        AFTER UPDATE OF name, variant, brand, category, sku, is_active ON products
+        WHEN new.name IS NOT old.name OR new.variant IS NOT old.variant OR new.brand IS NOT old.brand
+          OR new.category IS NOT old.category OR new.sku IS NOT old.sku OR new.is_active IS NOT old.is_active
+        BEGIN
+          INSERT INTO products_fts(products_fts, rowid, name, variant, brand, category, sku)
+          SELECT 'delete', old.rowid, old.name, old.variant, old.brand, old.category, old.sku
+          WHERE old.is_active = 1;
+          INSERT INTO products_fts(rowid, name, variant, brand, category, sku)
+          SELECT new.rowid, new.name, new.variant, new.brand, new.category, new.sku
+          WHERE new.is_active = 1;
+        END;
+    """;
+
+    private static final String INDEX_ACTIVE_PRODUCTS = """
+        INSERT INTO products_fts(rowid, name, variant, brand, category, sku)
+        SELECT rowid, name, variant, brand, category, sku FROM products WHERE is_active = 1
+    """;
+
+    /*
+     * The schema, as migrations in version order. Versions 1-8 are the schema as it was
+     * before it was versioned: every database from then is at user_version 0 and runs
+     * all of them, so they also upgrade older layouts and must stay idempotent. Later
+     * migrations only run on databases at the version before them.
+     */
+    private static final SchemaMigrator MIGRATOR = new SchemaMigrator(List.of(
+            new SchemaMigrator.Migration(1, "Core tables", c -> {
+                // Columns added to existing tables since they were first created
+                migrateLabelTrackingColumns(c);
+                migrateSaleDateColumn(c);
+            },
+                    PRODUCTS_TABLE.formatted("products"),
+                    CUSTOMERS_TABLE.formatted("customers"),
+                    SALES_TABLE.formatted("sales"),
+                    SALE_ITEMS_TABLE.formatted("sale_items"),
+                    """
+                    CREATE TABLE IF NOT EXISTS store_settings(
+                      key TEXT PRIMARY KEY,
+                      value TEXT,
+                      updated_at TEXT
+                    );
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS activity_log(
+                      id TEXT PRIMARY KEY,
+                      user_name TEXT,
+                      action TEXT,
+                      entity_type TEXT,
+                      entity_id TEXT,
+                      details TEXT,
+                      timestamp TEXT
+                    );
+                    """,
+                    // Returns/Exchange
+                    """
+                    CREATE TABLE IF NOT EXISTS returns(
+                      id TEXT PRIMARY KEY,
+                      sale_id TEXT NOT NULL,
+                      customer_id TEXT,
+                      return_date TEXT,
+                      reason TEXT,
+                      refund_amount_cents INTEGER,
+                      status TEXT DEFAULT 'PENDING',
+                      processed_by TEXT,
+                      notes TEXT,
+                      FOREIGN KEY(sale_id) REFERENCES sales(id)
+                    );
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS return_items(
+                      id TEXT PRIMARY KEY,
+                      return_id TEXT NOT NULL,
+                      sale_item_id TEXT NOT NULL,
+                      product_id TEXT NOT NULL,
+                      qty INTEGER NOT NULL,
+                      refund_amount_cents INTEGER,
+                      FOREIGN KEY(return_id) REFERENCES returns(id)
+                    );
+                    """),
+
+            // Existing databases: move from UUID text keys to integer keys
+            new SchemaMigrator.Migration(2, "Integer primary keys", DBUtil::migrateToIntegerKeys),
+
+            new SchemaMigrator.Migration(3, "Indexes",
+                    "CREATE INDEX IF NOT EXISTS idx_products_name ON products(name)",
+                    "CREATE INDEX IF NOT EXISTS idx_products_barcode ON products(barcode)",
+                    "CREATE INDEX IF NOT EXISTS idx_products_category ON products(category)",
+                    "CREATE INDEX IF NOT EXISTS idx_products_sku ON products(sku)",
+                    "CREATE INDEX IF NOT EXISTS idx_customers_phone ON customers(phone)",
+                    "CREATE INDEX IF NOT EXISTS idx_sales_ts ON sales(ts)",
+                    "CREATE INDEX IF NOT EXISTS idx_sales_date ON sales(sale_date)",
+                    "CREATE INDEX IF NOT EXISTS idx_sales_customer ON sales(customer_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_sales_invoice ON sales(invoice_number)",
+                    "CREATE INDEX IF NOT EXISTS idx_sale_items_sale ON sale_items(sale_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_sale_items_product ON sale_items(product_id)"),
+
+            // Per-day sales rollup, maintained in the same transaction as each sale. Existing
+            // databases get it built from the sales recorded before it existed.
+            new SchemaMigrator.Migration(4, "Daily sales summary", DBUtil::migrateDailySummary, """
+                    CREATE TABLE IF NOT EXISTS daily_sales_summary(
+                      sale_date TEXT PRIMARY KEY,
+                      num_sales INTEGER NOT NULL DEFAULT 0,
+                      subtotal_cents INTEGER NOT NULL DEFAULT 0,
+                      total_cents INTEGER NOT NULL DEFAULT 0,
+                      tax_cents INTEGER NOT NULL DEFAULT 0,
+                      discount_cents INTEGER NOT NULL DEFAULT 0,
+                      cash_cents INTEGER NOT NULL DEFAULT 0,
+                      card_cents INTEGER NOT NULL DEFAULT 0,
+                      upi_cents INTEGER NOT NULL DEFAULT 0,
+                      other_cents INTEGER NOT NULL DEFAULT 0,
+                      updated_at TEXT
+                    ) WITHOUT ROWID;
+                    """),
+
+            // Next unused value per name, e.g. for generated barcodes
+            new SchemaMigrator.Migration(5, "Number sequences", """
+                    CREATE TABLE IF NOT EXISTS sequences(
+                      name TEXT PRIMARY KEY,
+                      next_value INTEGER NOT NULL
+                    ) WITHOUT ROWID;
+                    """),
+
+            // Older databases have products_fts_au without its WHEN clause, and the index
+            // may be missing products added before it existed (or have been dropped by
+            // migration 2), so it is rebuilt once here.
+            new SchemaMigrator.Migration(6, "Product search index",
+                    "DROP TRIGGER IF EXISTS products_fts_au",
+                    PRODUCTS_FTS_TABLE,
+                    PRODUCTS_FTS_INSERT_TRIGGER,
+                    PRODUCTS_FTS_DELETE_TRIGGER,
+                    PRODUCTS_FTS_UPDATE_TRIGGER,
+                    "INSERT INTO products_fts(products_fts) VALUES ('rebuild')"),
+
+            // Timestamps for label reprints: label_changed_at when anything printed on a label
+            // changes, restocked_at when stock goes up. Sales only lower stock, so they touch
+            // neither (unlike updated_at).
+            new SchemaMigrator.Migration(7, "Label tracking", """
+                    CREATE TRIGGER IF NOT EXISTS products_label_au
+                    AFTER UPDATE OF name, variant, barcode, sku, mrp_cents, sell_price_cents ON products
+                    WHEN new.name IS NOT old.name OR new.variant IS NOT old.variant
+                      OR new.barcode IS NOT old.barcode OR new.sku IS NOT old.sku
+                      OR new.mrp_cents IS NOT old.mrp_cents OR new.sell_price_cents IS NOT old.sell_price_cents
+                    BEGIN
+                      UPDATE products SET label_changed_at = datetime('now') WHERE rowid = new.rowid;
+                    END;
+                    """, """
+                    CREATE TRIGGER IF NOT EXISTS products_restock_au
+                    AFTER UPDATE OF stock ON products WHEN new.stock > old.stock
+                    BEGIN
+                      UPDATE products SET restocked_at = datetime('now') WHERE rowid = new.rowid;
+                    END;
+                    """,
+                    "CREATE INDEX IF NOT EXISTS idx_products_label_changed ON products(label_changed_at)",
+                    "CREATE INDEX IF NOT EXISTS idx_products_restocked ON products(restocked_at)"),
+
+            new SchemaMigrator.Migration(8, "Default store settings", """
+                    INSERT OR IGNORE INTO store_settings(key, value, updated_at) VALUES
+                    ('store_name', 'Vastra Store', datetime('now')),
+                    ('store_address', '', datetime('now')),
+                    ('store_phone', '', datetime('now')),
+                    ('store_email', '', datetime('now')),
+                    ('store_gstin', '', datetime('now')),
+                    ('tax_enabled', '1', datetime('now')),
+                    ('loyalty_enabled', '1', datetime('now')),
+                    ('points_per_100_rupees', '1', datetime('now')),
+                    ('min_points_redemption', '100', datetime('now')),
+                    ('receipt_footer', 'Thank you for shopping with us!', datetime('now')),
+                    ('currency_symbol', '₹', datetime('now')),
+                    ('low_stock_alert_enabled', '1', datetime('now'));
+                    """),
+
+            // Only the products at or below their reorder threshold, which is what
+            // ProductDAO.getLowStockProducts asks for; no index on a single column can
+            // answer stock <= reorder_threshold
+            new SchemaMigrator.Migration(9, "Low stock index", """
+                    CREATE INDEX idx_products_low_stock ON products(stock, name)
+                    WHERE is_active = 1 AND stock <= reorder_threshold
+                    """),
+
+            // bm25 weights for name, variant, brand, category and sku, so ORDER BY rank
+            // ranks names highest
+            new SchemaMigrator.Migration(10, "Search active products only",
+                    "DROP TRIGGER IF EXISTS products_fts_ai",
+                    "DROP TRIGGER IF EXISTS products_fts_ad",
+                    "DROP TRIGGER IF EXISTS products_fts_au",
+                    ACTIVE_PRODUCTS_FTS_INSERT_TRIGGER,
+                    ACTIVE_PRODUCTS_FTS_DELETE_TRIGGER,
+                    ACTIVE_PRODUCTS_FTS_UPDATE_TRIGGER,
+                    "INSERT INTO products_fts(products_fts) VALUES ('delete-all')",
+                    INDEX_ACTIVE_PRODUCTS,
+                    "INSERT INTO products_fts(products_fts, rank) VALUES ('rank', 'bm25(10.0, 2.0, 4.0, 1.0, 3.0)')")
+    ));
+
+    /**
+     * Bring the database up to the current schema version. A database that is already
+     * there costs one PRAGMA and a read of schema_migrations; no DDL runs.
+     */
     public static void init() throws Exception {
-        try (Connection c = getConnection();
-             Statement s = c.createStatement()) {
-            s.execute("PRAGMA journal_mode=WAL");
-            s.execute("PRAGMA synchronous=NORMAL");
+        try (Connection c = getWriteConnection()) {
+            MIGRATOR.migrate(c);
+        }
+    }
 
-            // Products table with enhanced fields
-            s.execute("""
-                     CREATE TABLE IF NOT EXISTS products (
-                     id TEXT PRIMARY KEY,
-                     name TEXT NOT NULL,
-                     variant TEXT,
-                     category TEXT,
-                     brand TEXT,
-                     barcode TEXT UNIQUE,
-                     sku TEXT,
-                     mrp_cents INTEGER NOT NULL,
-                     sell_price_cents INTEGER NOT NULL,
-                     purchase_price_cents INTEGER DEFAULT 0,
-                     gst_percent INTEGER DEFAULT 0,
-                     hsn_code TEXT,
-                     stock INTEGER DEFAULT 0,
-                     reorder_threshold INTEGER DEFAULT 5,
-                     unit TEXT DEFAULT 'PCS',
-                     description TEXT,
-                     image_path TEXT,
-                     is_active INTEGER DEFAULT 1,
-                     created_at TEXT,
-                     updated_at TEXT);""");
-
-            // Customers table with enhanced fields
-            s.execute("""
-                CREATE TABLE IF NOT EXISTS customers(
-                  id TEXT PRIMARY KEY,
-                  name TEXT NOT NULL,
-                  phone TEXT UNIQUE NOT NULL,
-                  email TEXT,
-                  address TEXT,
-                  city TEXT,
-                  pincode TEXT,
-                  birthday TEXT,
-                  anniversary TEXT,
-                  points INTEGER DEFAULT 0,
-                  total_purchases_cents INTEGER DEFAULT 0,
-                  visit_count INTEGER DEFAULT 0,
-                  tier TEXT DEFAULT 'BRONZE',
-                  notes TEXT,
-                  is_active INTEGER DEFAULT 1,
-                  created_at TEXT,
-                  last_visit TEXT
-                );
-            """);
+    /** The schema version init() brings a database to */
+    public static int getSchemaVersion() {
+        return MIGRATOR.getLatestVersion();
+    }
 
-            // Sales table with enhanced fields
-            s.execute("""
-                CREATE TABLE IF NOT EXISTS sales(
-                  id TEXT PRIMARY KEY,
-                  invoice_number TEXT UNIQUE,
-                  customer_id TEXT,
-                  cashier_name TEXT,
-                  ts TEXT NOT NULL,
-                  subtotal_cents INTEGER NOT NULL,
-                  tax_cents INTEGER NOT NULL,
-                  discount_cents INTEGER DEFAULT 0,
-                  points_redeemed INTEGER DEFAULT 0,
-                  total_cents INTEGER NOT NULL,
-                  payment_mode TEXT NOT NULL,
-                  amount_received_cents INTEGER,
-                  change_returned_cents INTEGER,
-                  status TEXT DEFAULT 'COMPLETED',
-                  notes TEXT,
-                  created_at TEXT,
-                  FOREIGN KEY(customer_id) REFERENCES customers(id)
-                );
-            """);
+    /**
+     * Databases created before sale_date existed get the generated column added in place.
+     * Date-filtered report queries compare sale_date directly so idx_sales_date can be used.
+     */
+    private static void migrateSaleDateColumn(Connection c) throws SQLException {
+        if (hasColumn(c, "sales", "sale_date")) return;
+        try (Statement s = c.createStatement()) {
+            s.execute("ALTER TABLE sales ADD COLUMN sale_date TEXT " +
+                    "GENERATED ALWAYS AS (substr(ts, 1, 10)) VIRTUAL");
+        }
+    }
 
-            // Sale items table
-            s.execute("""
-                CREATE TABLE IF NOT EXISTS sale_items(
-                  id TEXT PRIMARY KEY,
-                  sale_id TEXT NOT NULL,
-                  product_id TEXT NOT NULL,
-                  product_name TEXT NOT NULL,
-                  product_variant TEXT,
-                  qty INTEGER NOT NULL,
-                  unit_price_cents INTEGER NOT NULL,
-                  discount_cents INTEGER DEFAULT 0,
-                  tax_percent INTEGER DEFAULT 0,
-                  line_total_cents INTEGER NOT NULL,
-                  FOREIGN KEY(sale_id) REFERENCES sales(id),
-                  FOREIGN KEY(product_id) REFERENCES products(id)
-                );
-            """);
+    private static void migrateLabelTrackingColumns(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            if (!hasColumn(c, "products", "label_changed_at")) {
+                s.execute("ALTER TABLE products ADD COLUMN label_changed_at TEXT");
+            }
+            if (!hasColumn(c, "products", "restocked_at")) {
+                s.execute("ALTER TABLE products ADD COLUMN restocked_at TEXT");
+            }
+        }
+    }
 
-            // Store settings table
-            s.execute("""
-                CREATE TABLE IF NOT EXISTS store_settings(
-                  key TEXT PRIMARY KEY,
-                  value TEXT,
-                  updated_at TEXT
-                );
-            """);
+    private static void migrateDailySummary(Connection c) throws SQLException {
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT EXISTS(SELECT 1 FROM daily_sales_summary), " +
+                     "EXISTS(SELECT 1 FROM sales)")) {
+            if (rs.next() && !rs.getBoolean(1) && rs.getBoolean(2)) {
+                SalesDAO.rebuildDailySummary(c);
+            }
+        }
+    }
 
-            // Activity log table
+    /**
+     * Rebuild products, customers, sales and sale_items with integer keys if they still
+     * have the UUID text keys of earlier versions. New ids follow the order rows were
+     * created in, and every reference to an old id (sales.customer_id, sale_items.sale_id
+     * and product_id, returns and return_items) is rewritten in the same transaction.
+     * The product search index is dropped here and rebuilt by the next migrations. Runs
+     * on the migration's transaction.
+     */
+    private static void migrateToIntegerKeys(Connection c) throws SQLException {
+        if (!hasTextKey(c, "products") && !hasTextKey(c, "customers")
+                && !hasTextKey(c, "sales") && !hasTextKey(c, "sale_items")) {
+            return;
+        }
+        System.out.println("Migrating database to integer keys...");
+        long start = System.currentTimeMillis();
+        try (Statement s = c.createStatement()) {
+            // Old id -> new id, numbered in creation order
+            s.execute("CREATE TEMP TABLE product_ids AS SELECT id AS old_id, " +
+                    "row_number() OVER (ORDER BY created_at, rowid) AS new_id FROM products");
+            s.execute("CREATE TEMP TABLE customer_ids AS SELECT id AS old_id, " +
+                    "row_number() OVER (ORDER BY created_at, rowid) AS new_id FROM customers");
+            s.execute("CREATE TEMP TABLE sale_ids AS SELECT id AS old_id, " +
+                    "row_number() OVER (ORDER BY ts, rowid) AS new_id FROM sales");
             s.execute("""
-                CREATE TABLE IF NOT EXISTS activity_log(
-                  id TEXT PRIMARY KEY,
-                  user_name TEXT,
-                  action TEXT,
-                  entity_type TEXT,
-                  entity_id TEXT,
-                  details TEXT,
-                  timestamp TEXT
-                );
+                CREATE TEMP TABLE sale_item_ids AS
+                SELECT i.id AS old_id, row_number() OVER (ORDER BY m.new_id, i.rowid) AS new_id
+                FROM sale_items i LEFT JOIN temp.sale_ids m ON m.old_id = i.sale_id
             """);
+            for (String map : new String[]{"product_ids", "customer_ids", "sale_ids", "sale_item_ids"}) {
+                s.execute("CREATE UNIQUE INDEX temp." + map + "_old ON " + map + "(old_id)");
+            }
 
-            // Returns/Exchange table
-            s.execute("""
-                CREATE TABLE IF NOT EXISTS returns(
-                  id TEXT PRIMARY KEY,
-                  sale_id TEXT NOT NULL,
-                  customer_id TEXT,
-                  return_date TEXT,
-                  reason TEXT,
-                  refund_amount_cents INTEGER,
-                  status TEXT DEFAULT 'PENDING',
-                  processed_by TEXT,
-                  notes TEXT,
-                  FOREIGN KEY(sale_id) REFERENCES sales(id)
-                );
-            """);
+            s.execute("DROP TABLE IF EXISTS products_fts");
+            rebuild(c, "products", PRODUCTS_TABLE, "product_ids", Map.of());
+            rebuild(c, "customers", CUSTOMERS_TABLE, "customer_ids", Map.of());
+            rebuild(c, "sales", SALES_TABLE, "sale_ids", Map.of("customer_id", "customer_ids"));
+            rebuild(c, "sale_items", SALE_ITEMS_TABLE, "sale_item_ids",
+                    Map.of("sale_id", "sale_ids", "product_id", "product_ids"));
 
-            // Return items table
-            s.execute("""
-                CREATE TABLE IF NOT EXISTS return_items(
-                  id TEXT PRIMARY KEY,
-                  return_id TEXT NOT NULL,
-                  sale_item_id TEXT NOT NULL,
-                  product_id TEXT NOT NULL,
-                  qty INTEGER NOT NULL,
-                  refund_amount_cents INTEGER,
-                  FOREIGN KEY(return_id) REFERENCES returns(id)
-                );
-            """);
+            remap(s, "returns", "sale_id", "sale_ids");
+            remap(s, "returns", "customer_id", "customer_ids");
+            remap(s, "return_items", "sale_item_id", "sale_item_ids");
+            remap(s, "return_items", "product_id", "product_ids");
 
-            // Create indexes
-            s.execute("CREATE INDEX IF NOT EXISTS idx_products_name ON products(name);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_products_barcode ON products(barcode);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_products_category ON products(category);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_customers_phone ON customers(phone);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_sales_ts ON sales(ts);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_sales_customer ON sales(customer_id);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_sales_invoice ON sales(invoice_number);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_sale_items_sale ON sale_items(sale_id);");
-            s.execute("CREATE INDEX IF NOT EXISTS idx_sale_items_product ON sale_items(product_id);");
-
-            // Insert default store settings
-            s.execute("""
-                INSERT OR IGNORE INTO store_settings(key, value, updated_at) VALUES
-                ('store_name', 'Vastra Store', datetime('now')),
-                ('store_address', '', datetime('now')),
-                ('store_phone', '', datetime('now')),
-                ('store_email', '', datetime('now')),
-                ('store_gstin', '', datetime('now')),
-                ('tax_enabled', '1', datetime('now')),
-                ('loyalty_enabled', '1', datetime('now')),
-                ('points_per_100_rupees', '1', datetime('now')),
-                ('min_points_redemption', '100', datetime('now')),
-                ('receipt_footer', 'Thank you for shopping with us!', datetime('now')),
-                ('currency_symbol', '₹', datetime('now')),
-                ('low_stock_alert_enabled', '1', datetime('now'));
-            """);
+            for (String map : new String[]{"product_ids", "customer_ids", "sale_ids", "sale_item_ids"}) {
+                s.execute("DROP TABLE temp." + map);
+            }
+        }
+        System.out.println("Database migrated to integer keys in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Copy table into a new table with integer keys, replacing its id from idMap and each
+     * foreign key column in references with its mapped id, then swap the two tables.
+     * Values with no mapping (dangling references) are kept as they are.
+     */
+    private static void rebuild(Connection c, String table, String ddl, String idMap,
+                                Map<String, String> references) throws SQLException {
+        String copy = table + "_new";
+        try (Statement s = c.createStatement()) {
+            s.execute(ddl.formatted(copy));
+            List<String> columns = storedColumns(c, copy);
+            columns.retainAll(storedColumns(c, table));
+
+            StringBuilder select = new StringBuilder("SELECT ");
+            StringBuilder joins = new StringBuilder();
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i);
+                if (i > 0) select.append(", ");
+                if (column.equals("id")) {
+                    select.append("k.new_id");
+                } else if (references.containsKey(column)) {
+                    String alias = "r" + i;
+                    select.append("coalesce(").append(alias).append(".new_id, t.").append(column).append(')');
+                    joins.append(" LEFT JOIN temp.").append(references.get(column)).append(' ').append(alias)
+                            .append(" ON ").append(alias).append(".old_id = t.").append(column);
+                } else {
+                    select.append("t.").append(column);
+                }
+            }
+            select.append(" FROM ").append(table).append(" t JOIN temp.").append(idMap)
+                    .append(" k ON k.old_id = t.id").append(joins).append(" ORDER BY k.new_id");
+
+            s.execute("INSERT INTO " + copy + "(" + String.join(", ", columns) + ") " + select);
+            s.execute("DROP TABLE " + table);
+            s.execute("ALTER TABLE " + copy + " RENAME TO " + table);
+        }
+    }
+
+    private static void remap(Statement s, String table, String column, String idMap) throws SQLException {
+        s.execute("UPDATE " + table + " SET " + column + " = (SELECT new_id FROM temp." + idMap +
+                " WHERE old_id = " + table + "." + column + ") WHERE " + column +
+                " IN (SELECT old_id FROM temp." + idMap + ")");
+    }
+
+    private static boolean hasTextKey(Connection c, String table) throws SQLException {
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if ("id".equalsIgnoreCase(rs.getString("name"))) {
+                    return !"INTEGER".equalsIgnoreCase(rs.getString("type"));
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Columns that hold data (not generated columns), in table order */
+    private static List<String> storedColumns(Connection c, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("PRAGMA table_xinfo(" + table + ")")) {
+            while (rs.next()) {
+                // hidden: 0 normal, 2 and 3 generated
+                if (rs.getInt("hidden") == 0) {
+                    columns.add(rs.getString("name"));
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static boolean hasColumn(Connection c, String table, String column) throws SQLException {
+        // table_xinfo (unlike table_info) also lists generated columns
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("PRAGMA table_xinfo(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.vastra.util;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Writes jobs to a printer device file (/dev/usb/lp0, COM3, a shared printer path).
+ * Pointed at an ordinary file it appends every job to it, which is handy for testing.
+ */
+public class DevicePrintSink implements PrintSink {
+
+    private final Path device;
+
+    public DevicePrintSink(Path device) {
+        this.device = device;
+    }
+
+    @Override
+    public void write(String jobName, byte[] data) throws IOException {
+        try (OutputStream out = new FileOutputStream(device.toFile(), true)) {
+            out.write(data);
+            out.flush();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "device " + device;
+    }
+}
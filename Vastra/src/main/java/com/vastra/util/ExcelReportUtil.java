@@ -2,191 +2,256 @@ package com.vastra.util;
 
 import com.vastra.dao.ProductDAO;
 import com.vastra.dao.SalesDAO;
-import com.vastra.model.Product;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import java.io.FileOutputStream;
-import java.sql.ResultSet;
-import java.time.LocalDate;
-import java.util.List;
 
+/**
+ * Excel exports. Workbooks are streamed: only a small window of rows is kept on the heap
+ * and the rest is flushed to a temp file, so memory stays flat whatever the row count.
+ * Column widths are computed from a sample of the first rows instead of autoSizeColumn,
+ * which would have to measure every cell. Each export's running time is recorded in
+ * vastra_report_export_seconds.
+ */
 public class ExcelReportUtil {
 
-    public static void generateDailySalesReport(String date, String filepath) throws Exception {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Daily Sales - " + date);
-
-        // Create header style
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        // Header row
-        Row headerRow = sheet.createRow(0);
-        String[] headers = {"Sale ID", "Time", "Customer", "Phone", "Subtotal", "Tax", "Discount", "Total", "Payment"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
-
-        // Data rows
-        ResultSet rs = SalesDAO.getDailySalesReport(date);
-        int rowNum = 1;
-        double totalRevenue = 0;
-
-        while (rs.next()) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(rs.getString("id"));
-            row.createCell(1).setCellValue(rs.getString("ts"));
-            row.createCell(2).setCellValue(rs.getString("customer_name"));
-            row.createCell(3).setCellValue(rs.getString("customer_phone"));
-            row.createCell(4).setCellValue(rs.getInt("subtotal_cents") / 100.0);
-            row.createCell(5).setCellValue(rs.getInt("tax_cents") / 100.0);
-            row.createCell(6).setCellValue(rs.getInt("discount_cents") / 100.0);
-            row.createCell(7).setCellValue(rs.getInt("total_cents") / 100.0);
-            row.createCell(8).setCellValue(rs.getString("payment_mode"));
-
-            totalRevenue += rs.getInt("total_cents") / 100.0;
-        }
+    private static final String EXPORT_HELP = "Time to build and save an Excel report";
+    private static final LatencyHistogram DAILY_SALES_EXPORT =
+            Metrics.histogram("vastra_report_export_seconds", EXPORT_HELP, "report", "daily_sales");
+    private static final LatencyHistogram INVENTORY_EXPORT =
+            Metrics.histogram("vastra_report_export_seconds", EXPORT_HELP, "report", "inventory");
+    private static final LatencyHistogram MONTHLY_EXPORT =
+            Metrics.histogram("vastra_report_export_seconds", EXPORT_HELP, "report", "monthly");
 
-        // Summary row
-        Row summaryRow = sheet.createRow(rowNum + 1);
-        Cell summaryLabel = summaryRow.createCell(6);
-        summaryLabel.setCellValue("TOTAL REVENUE:");
-        summaryLabel.setCellStyle(headerStyle);
+    private static final int ROW_WINDOW = 100;
+    private static final int WIDTH_SAMPLE_ROWS = 500;
 
-        Cell summaryValue = summaryRow.createCell(7);
-        summaryValue.setCellValue(totalRevenue);
-        CellStyle currencyStyle = workbook.createCellStyle();
-        currencyStyle.setFont(headerFont);
-        summaryValue.setCellStyle(currencyStyle);
+    public static void generateDailySalesReport(String date, String filepath) throws Exception {
+        long start = System.nanoTime();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("Daily Sales - " + date);
+
+            // Create header style
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            // Header row
+            String[] headers = {"Sale ID", "Time", "Customer", "Phone", "Subtotal", "Tax", "Discount", "Total", "Payment"};
+            ColumnWidths widths = new ColumnWidths(headers);
+            writeHeader(sheet, headers, headerStyle);
+
+            // Data rows
+            int[] rowNum = {1};
+            long[] totalRevenueCents = {0};
+
+            SalesDAO.getDailySalesReport(date, rs -> {
+                Row row = sheet.createRow(rowNum[0]++);
+                widths.set(row, 0, rs.getString("id"));
+                widths.set(row, 1, rs.getString("ts"));
+                widths.set(row, 2, rs.getString("customer_name"));
+                widths.set(row, 3, rs.getString("customer_phone"));
+                widths.set(row, 4, rs.getInt("subtotal_cents") / 100.0);
+                widths.set(row, 5, rs.getInt("tax_cents") / 100.0);
+                widths.set(row, 6, rs.getInt("discount_cents") / 100.0);
+                widths.set(row, 7, rs.getInt("total_cents") / 100.0);
+                widths.set(row, 8, rs.getString("payment_mode"));
+
+                totalRevenueCents[0] += rs.getInt("total_cents");
+            });
+
+            // Summary row
+            Row summaryRow = sheet.createRow(rowNum[0] + 1);
+            Cell summaryLabel = summaryRow.createCell(6);
+            summaryLabel.setCellValue("TOTAL REVENUE:");
+            summaryLabel.setCellStyle(headerStyle);
+
+            Cell summaryValue = summaryRow.createCell(7);
+            summaryValue.setCellValue(totalRevenueCents[0] / 100.0);
+            CellStyle currencyStyle = workbook.createCellStyle();
+            currencyStyle.setFont(headerFont);
+            summaryValue.setCellStyle(currencyStyle);
+
+            widths.apply(sheet);
+            write(workbook, filepath);
+            DAILY_SALES_EXPORT.recordSince(start);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
 
-        // Auto-size columns
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+    public static void generateInventoryReport(String filepath) throws Exception {
+        long start = System.nanoTime();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("Inventory Report");
+
+            // Header style
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            // Header
+            String[] headers = {"Product ID", "Name", "Variant", "MRP", "Sell Price", "GST%", "Stock", "Status"};
+            ColumnWidths widths = new ColumnWidths(headers);
+            writeHeader(sheet, headers, headerStyle);
+
+            // Data
+            int[] rowNum = {1};
+
+            CellStyle lowStockStyle = workbook.createCellStyle();
+            lowStockStyle.setFillForegroundColor(IndexedColors.ROSE.getIndex());
+            lowStockStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            ProductDAO.forEachProduct(p -> {
+                Row row = sheet.createRow(rowNum[0]++);
+                widths.set(row, 0, p.getId());
+                widths.set(row, 1, p.getName());
+                widths.set(row, 2, p.getVariant());
+                widths.set(row, 3, p.getMrpCents());
+                widths.set(row, 4, p.getSellPrice());
+                widths.set(row, 5, p.getGstPercent());
+
+                Cell stockCell = widths.set(row, 6, p.getStock());
+
+                Cell statusCell;
+                if (p.getStock() <= p.getReorderThreshold()) {
+                    statusCell = widths.set(row, 7, "LOW STOCK");
+                    stockCell.setCellStyle(lowStockStyle);
+                    statusCell.setCellStyle(lowStockStyle);
+                } else if (p.getStock() == 0) {
+                    statusCell = widths.set(row, 7, "OUT OF STOCK");
+                    stockCell.setCellStyle(lowStockStyle);
+                    statusCell.setCellStyle(lowStockStyle);
+                } else {
+                    widths.set(row, 7, "OK");
+                }
+            });
+
+            widths.apply(sheet);
+            write(workbook, filepath);
+            INVENTORY_EXPORT.recordSince(start);
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
+    }
 
-        // Write to file
-        try (FileOutputStream fos = new FileOutputStream(filepath)) {
-            workbook.write(fos);
+    public static void generateMonthlyReport(String startDate, String endDate, String filepath) throws Exception {
+        long start = System.nanoTime();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("Monthly Report");
+
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+
+            String[] headers = {"Date", "Number of Sales", "Total Revenue", "Total Tax", "Total Discount",
+                    "Cash", "Card", "UPI", "Other"};
+            ColumnWidths widths = new ColumnWidths(headers);
+            writeHeader(sheet, headers, headerStyle);
+
+            int[] rowNum = {1};
+            long[] grandTotalCents = {0};
+
+            SalesDAO.getSalesInRange(startDate, endDate, rs -> {
+                Row row = sheet.createRow(rowNum[0]++);
+                widths.set(row, 0, rs.getString("sale_date"));
+                widths.set(row, 1, rs.getInt("num_sales"));
+                widths.set(row, 2, rs.getLong("total_revenue_cents") / 100.0);
+                widths.set(row, 3, rs.getLong("total_tax_cents") / 100.0);
+                widths.set(row, 4, rs.getLong("total_discount_cents") / 100.0);
+                widths.set(row, 5, rs.getLong("cash_cents") / 100.0);
+                widths.set(row, 6, rs.getLong("card_cents") / 100.0);
+                widths.set(row, 7, rs.getLong("upi_cents") / 100.0);
+                widths.set(row, 8, rs.getLong("other_cents") / 100.0);
+
+                grandTotalCents[0] += rs.getLong("total_revenue_cents");
+            });
+
+            Row summaryRow = sheet.createRow(rowNum[0] + 1);
+            summaryRow.createCell(1).setCellValue("GRAND TOTAL:");
+            summaryRow.createCell(2).setCellValue(grandTotalCents[0] / 100.0);
+
+            widths.apply(sheet);
+            write(workbook, filepath);
+            MONTHLY_EXPORT.recordSince(start);
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
-        workbook.close();
     }
 
-    public static void generateInventoryReport(String filepath) throws Exception {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Inventory Report");
-
-        // Header style
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        // Header
+    private static void writeHeader(Sheet sheet, String[] headers, CellStyle headerStyle) {
         Row headerRow = sheet.createRow(0);
-        String[] headers = {"Product ID", "Name", "Variant", "MRP", "Sell Price", "GST%", "Stock", "Status"};
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
             cell.setCellStyle(headerStyle);
         }
+    }
 
-        // Data
-        List<Product> products = ProductDAO.getAllProducts();
-        int rowNum = 1;
-
-        CellStyle lowStockStyle = workbook.createCellStyle();
-        lowStockStyle.setFillForegroundColor(IndexedColors.ROSE.getIndex());
-        lowStockStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        for (Product p : products) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(p.getId());
-            row.createCell(1).setCellValue(p.getName());
-            row.createCell(2).setCellValue(p.getVariant());
-            row.createCell(3).setCellValue(p.getMrpCents());
-            row.createCell(4).setCellValue(p.getSellPrice());
-            row.createCell(5).setCellValue(p.getGstPercent());
-
-            Cell stockCell = row.createCell(6);
-            stockCell.setCellValue(p.getStock());
-
-            Cell statusCell = row.createCell(7);
-            if (p.getStock() <= p.getReorderThreshold()) {
-                statusCell.setCellValue("LOW STOCK");
-                stockCell.setCellStyle(lowStockStyle);
-                statusCell.setCellStyle(lowStockStyle);
-            } else if (p.getStock() == 0) {
-                statusCell.setCellValue("OUT OF STOCK");
-                stockCell.setCellStyle(lowStockStyle);
-                statusCell.setCellStyle(lowStockStyle);
-            } else {
-                statusCell.setCellValue("OK");
-            }
-        }
-
-        // Auto-size
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
+    private static void write(Workbook workbook, String filepath) throws Exception {
         try (FileOutputStream fos = new FileOutputStream(filepath)) {
             workbook.write(fos);
         }
-        workbook.close();
     }
 
-    public static void generateMonthlyReport(String startDate, String endDate, String filepath) throws Exception {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Monthly Report");
-
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerStyle.setFont(headerFont);
-
-        Row headerRow = sheet.createRow(0);
-        String[] headers = {"Date", "Number of Sales", "Total Revenue", "Total Tax", "Total Discount"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
+    /**
+     * Writes cells and tracks the widest value per column over the first
+     * WIDTH_SAMPLE_ROWS rows, then sizes the columns from that sample.
+     */
+    private static class ColumnWidths {
+        private final int[] maxChars;
+
+        ColumnWidths(String[] headers) {
+            maxChars = new int[headers.length];
+            for (int i = 0; i < headers.length; i++) {
+                maxChars[i] = headers[i].length();
+            }
         }
 
-        ResultSet rs = SalesDAO.getSalesInRange(startDate, endDate);
-        int rowNum = 1;
-        double grandTotal = 0;
-
-        while (rs.next()) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(rs.getString("sale_date"));
-            row.createCell(1).setCellValue(rs.getInt("num_sales"));
-            row.createCell(2).setCellValue(rs.getInt("total_revenue_cents") / 100.0);
-            row.createCell(3).setCellValue(rs.getInt("total_tax_cents") / 100.0);
-            row.createCell(4).setCellValue(rs.getInt("total_discount_cents") / 100.0);
-
-            grandTotal += rs.getInt("total_revenue_cents") / 100.0;
+        Cell set(Row row, int col, String value) {
+            Cell cell = row.createCell(col);
+            cell.setCellValue(value);
+            sample(row, col, value != null ? value.length() : 0);
+            return cell;
         }
 
-        Row summaryRow = sheet.createRow(rowNum + 1);
-        summaryRow.createCell(1).setCellValue("GRAND TOTAL:");
-        summaryRow.createCell(2).setCellValue(grandTotal);
+        Cell set(Row row, int col, double value) {
+            Cell cell = row.createCell(col);
+            cell.setCellValue(value);
+            sample(row, col, value == Math.rint(value) ? Long.toString((long) value).length() : 12);
+            return cell;
+        }
 
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+        private void sample(Row row, int col, int chars) {
+            if (row.getRowNum() > WIDTH_SAMPLE_ROWS) return;
+            if (chars > maxChars[col]) {
+                maxChars[col] = chars;
+            }
         }
 
-        try (FileOutputStream fos = new FileOutputStream(filepath)) {
-            workbook.write(fos);
+        void apply(Sheet sheet) {
+            for (int i = 0; i < maxChars.length; i++) {
+                // Width is in 1/256ths of a character; Excel caps it at 255 characters
+                int chars = Math.min(maxChars[i] + 2, 255);
+                sheet.setColumnWidth(i, chars * 256);
+            }
         }
-        workbook.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.vastra.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size, lock-free ring buffer of keystrokes for exactly one producer thread
+ * (the FX thread delivering key events) and one consumer thread (the scan decoder).
+ *
+ * Each slot holds the character and the System.nanoTime() it was captured at.
+ * The producer never blocks: when the buffer is full the keystroke is dropped and counted.
+ */
+public class KeystrokeRingBuffer {
+
+    /** Receives keystrokes drained from the buffer */
+    public interface KeyHandler {
+        void onKey(char key, long nanos);
+    }
+
+    private final char[] keys;
+    private final long[] times;
+    private final int mask;
+
+    // head: next slot to read (written by the consumer only)
+    // tail: next slot to write (written by the producer only)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public KeystrokeRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        keys = new char[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Producer side. Returns false (and counts a drop) if the buffer is full.
+     */
+    public boolean offer(char key, long nanos) {
+        long t = tail.get();
+        if (t - head.get() >= keys.length) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int i = (int) t & mask;
+        keys[i] = key;
+        times[i] = nanos;
+        // Ordered store publishes the slot contents before the new tail
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Hands every buffered keystroke to the handler, oldest first.
+     * Returns the number drained.
+     */
+    public int drainTo(KeyHandler handler) {
+        long h = head.get();
+        long t = tail.get();
+        for (long n = h; n < t; n++) {
+            int i = (int) n & mask;
+            handler.onKey(keys[i], times[i]);
+        }
+        if (t != h) {
+            head.lazySet(t);
+        }
+        return (int) (t - h);
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
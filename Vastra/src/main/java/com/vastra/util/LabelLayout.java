@@ -0,0 +1,116 @@
+package com.vastra.util;
+
+/**
+ * Where labels sit on a printed page. All sizes are in millimetres.
+ *
+ * A4_65 is the common 65-up A4 sheet (38.1 x 21.2 mm labels, 5 across, 13 down).
+ * A roll layout is one label per page, for label printers fed from a roll.
+ */
+public class LabelLayout {
+
+    public static final LabelLayout A4_65 =
+            new LabelLayout("A4 65-up", 210, 297, 5, 13, 38.1, 21.2, 4.7, 10.7, 2.5, 0);
+
+    private final String name;
+    private final double pageWidth;
+    private final double pageHeight;
+    private final int columns;
+    private final int rows;
+    private final double labelWidth;
+    private final double labelHeight;
+    private final double marginLeft;
+    private final double marginTop;
+    private final double gapX;
+    private final double gapY;
+
+    public LabelLayout(String name, double pageWidth, double pageHeight, int columns, int rows,
+                       double labelWidth, double labelHeight, double marginLeft, double marginTop,
+                       double gapX, double gapY) {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("A label layout needs at least one row and column");
+        }
+        if (marginLeft + columns * labelWidth + (columns - 1) * gapX > pageWidth + 0.01
+                || marginTop + rows * labelHeight + (rows - 1) * gapY > pageHeight + 0.01) {
+            throw new IllegalArgumentException("Labels do not fit on the page: " + name);
+        }
+        this.name = name;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.columns = columns;
+        this.rows = rows;
+        this.labelWidth = labelWidth;
+        this.labelHeight = labelHeight;
+        this.marginLeft = marginLeft;
+        this.marginTop = marginTop;
+        this.gapX = gapX;
+        this.gapY = gapY;
+    }
+
+    /**
+     * One label per page, page the size of the label.
+     */
+    public static LabelLayout roll(double labelWidth, double labelHeight) {
+        return new LabelLayout("Roll " + labelWidth + " x " + labelHeight + " mm",
+                labelWidth, labelHeight, 1, 1, labelWidth, labelHeight, 0, 0, 0, 0);
+    }
+
+    /**
+     * Layout selected by labels.layout in application.properties: a4-65 (default),
+     * roll (labels.roll.widthMm x labels.roll.heightMm) or custom (labels.page*, labels.label*,
+     * labels.columns, labels.rows, labels.margin*, labels.gap*).
+     */
+    public static LabelLayout fromConfig() {
+        String type = AppConfig.getString("labels.layout", "a4-65");
+        switch (type) {
+            case "a4-65":
+                return A4_65;
+            case "roll":
+                return roll(AppConfig.getDouble("labels.roll.widthMm", 50),
+                        AppConfig.getDouble("labels.roll.heightMm", 25));
+            case "custom":
+                return new LabelLayout("Custom",
+                        AppConfig.getDouble("labels.pageWidthMm", 210),
+                        AppConfig.getDouble("labels.pageHeightMm", 297),
+                        AppConfig.getInt("labels.columns", 1),
+                        AppConfig.getInt("labels.rows", 1),
+                        AppConfig.getDouble("labels.labelWidthMm", 50),
+                        AppConfig.getDouble("labels.labelHeightMm", 25),
+                        AppConfig.getDouble("labels.marginLeftMm", 0),
+                        AppConfig.getDouble("labels.marginTopMm", 0),
+                        AppConfig.getDouble("labels.gapXMm", 0),
+                        AppConfig.getDouble("labels.gapYMm", 0));
+            default:
+                throw new IllegalArgumentException("Unknown labels.layout: " + type);
+        }
+    }
+
+    public int getLabelsPerPage() {
+        return columns * rows;
+    }
+
+    public int getPageCount(int labels) {
+        return (labels + getLabelsPerPage() - 1) / getLabelsPerPage();
+    }
+
+    /** Left edge of the label at slot (0 .. labelsPerPage-1), filled across then down */
+    public double getLabelX(int slot) {
+        return marginLeft + (slot % columns) * (labelWidth + gapX);
+    }
+
+    public double getLabelY(int slot) {
+        return marginTop + (slot / columns) * (labelHeight + gapY);
+    }
+
+    public String getName() { return name; }
+    public double getPageWidth() { return pageWidth; }
+    public double getPageHeight() { return pageHeight; }
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+    public double getLabelWidth() { return labelWidth; }
+    public double getLabelHeight() { return labelHeight; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,257 @@
+package com.vastra.util;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.vastra.model.Product;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Paper;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A run of product labels laid out on pages, printable as a single print job.
+ *
+ * Each page is drawn into an image at the printer resolution on a background pool. While
+ * the printer takes page n, the next few pages are already being rendered, and pages
+ * already sent are dropped, so a 5,000 label sheet never holds more than a handful of
+ * page images in memory.
+ */
+public class LabelSheet implements Printable {
+
+    private static final double MM_PER_INCH = 25.4;
+    private static final double POINTS_PER_INCH = 72;
+
+    private final List<Product> products;
+    private final LabelLayout layout;
+    private final int dpi;
+    private final ExecutorService renderPool;
+    private final int lookAhead;
+    private final Map<Integer, Future<BufferedImage>> pages = new ConcurrentHashMap<>();
+
+    /**
+     * @param renderPool pages are rendered here, up to lookAhead pages ahead of the printer
+     */
+    public LabelSheet(List<Product> products, LabelLayout layout, int dpi,
+                      ExecutorService renderPool, int lookAhead) {
+        this.products = products;
+        this.layout = layout;
+        this.dpi = dpi;
+        this.renderPool = renderPool;
+        this.lookAhead = Math.max(1, lookAhead);
+    }
+
+    public int getLabelCount() {
+        return products.size();
+    }
+
+    public int getPageCount() {
+        return layout.getPageCount(products.size());
+    }
+
+    public LabelLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Page size and printable area for the print job: the whole page, no printer margins.
+     */
+    public PageFormat getPageFormat() {
+        Paper paper = new Paper();
+        double width = toPoints(layout.getPageWidth());
+        double height = toPoints(layout.getPageHeight());
+        paper.setSize(width, height);
+        paper.setImageableArea(0, 0, width, height);
+        PageFormat format = new PageFormat();
+        format.setPaper(paper);
+        return format;
+    }
+
+    @Override
+    public int print(Graphics g, PageFormat format, int pageIndex) throws PrinterException {
+        if (pageIndex >= getPageCount()) {
+            return NO_SUCH_PAGE;
+        }
+        BufferedImage page;
+        try {
+            page = page(pageIndex);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PrinterException("Interrupted while rendering labels");
+        } catch (ExecutionException e) {
+            PrinterException pe = new PrinterException("Could not render label page " + (pageIndex + 1));
+            pe.initCause(e.getCause());
+            throw pe;
+        }
+        double scale = POINTS_PER_INCH / dpi;
+        ((Graphics2D) g).drawImage(page, AffineTransform.getScaleInstance(scale, scale), null);
+        return PAGE_EXISTS;
+    }
+
+    /**
+     * Rendered page, waiting for it if it is still being drawn. Starts rendering the
+     * following pages and forgets the earlier ones.
+     */
+    public BufferedImage page(int pageIndex) throws InterruptedException, ExecutionException {
+        // The print system may ask for a page more than once, but never goes back
+        pages.keySet().removeIf(i -> i < pageIndex);
+        int last = Math.min(getPageCount() - 1, pageIndex + lookAhead);
+        for (int i = pageIndex; i <= last; i++) {
+            int index = i;
+            pages.computeIfAbsent(index, k -> renderPool.submit(() -> renderPage(index)));
+        }
+        return pages.get(pageIndex).get();
+    }
+
+    /**
+     * Write every page as a PNG (label-page-001.png, ...) instead of printing.
+     */
+    public void savePages(Path dir) throws IOException, InterruptedException, ExecutionException {
+        Files.createDirectories(dir);
+        for (int i = 0; i < getPageCount(); i++) {
+            File file = dir.resolve(String.format("label-page-%03d.png", i + 1)).toFile();
+            if (!ImageIO.write(page(i), "PNG", file)) {
+                throw new IOException("No PNG writer available");
+            }
+        }
+        pages.clear();
+    }
+
+    /**
+     * Draw one page of labels. Safe to call from several threads at once.
+     */
+    public BufferedImage renderPage(int pageIndex) throws WriterException {
+        BufferedImage image = new BufferedImage(toPixels(layout.getPageWidth()), toPixels(layout.getPageHeight()),
+                BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setColor(Color.BLACK);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+            int first = pageIndex * layout.getLabelsPerPage();
+            int end = Math.min(products.size(), first + layout.getLabelsPerPage());
+            for (int i = first; i < end; i++) {
+                int slot = i - first;
+                drawLabel(g, products.get(i), toPixels(layout.getLabelX(slot)), toPixels(layout.getLabelY(slot)),
+                        toPixels(layout.getLabelWidth()), toPixels(layout.getLabelHeight()));
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Name at the top, barcode in the middle, code and price underneath.
+     */
+    private void drawLabel(Graphics2D g, Product p, int x, int y, int width, int height) throws WriterException {
+        int pad = Math.max(1, width / 30);
+        int innerWidth = width - 2 * pad;
+        int textHeight = Math.max(6, height * 16 / 100);
+        int smallHeight = Math.max(5, height * 12 / 100);
+
+        Font nameFont = new Font(Font.SANS_SERIF, Font.BOLD, textHeight);
+        Font codeFont = new Font(Font.MONOSPACED, Font.PLAIN, smallHeight);
+        Font priceFont = new Font(Font.SANS_SERIF, Font.BOLD, textHeight);
+
+        int top = y + pad;
+        g.setFont(nameFont);
+        FontMetrics fm = g.getFontMetrics();
+        drawCentered(g, fit(p.getFullDisplayName(), fm, innerWidth), x, top + fm.getAscent(), width);
+        top += fm.getHeight();
+
+        int bottom = y + height - pad;
+        g.setFont(priceFont);
+        fm = g.getFontMetrics();
+        drawCentered(g, "Rs. " + formatPrice(p.getSellPriceCents()), x, bottom - fm.getDescent(), width);
+        bottom -= fm.getHeight();
+
+        String code = labelCode(p);
+        g.setFont(codeFont);
+        fm = g.getFontMetrics();
+        drawCentered(g, code, x, bottom - fm.getDescent(), width);
+        bottom -= fm.getHeight();
+
+        if (bottom - top > 2) {
+            drawBars(g, BarcodeUtil.encodeRow(code, innerWidth, 1), x + pad, top, innerWidth, bottom - top);
+        }
+    }
+
+    /**
+     * Bars straight from the encoded row: one rectangle per bar, scaled down if the code
+     * needs more pixels than the label has.
+     */
+    private static void drawBars(Graphics2D g, BitMatrix row, int x, int y, int width, int height) {
+        int modules = row.getWidth();
+        double scale = Math.min(1.0, (double) width / modules);
+        int offset = (int) ((width - modules * scale) / 2);
+        int start = -1;
+        for (int i = 0; i <= modules; i++) {
+            boolean black = i < modules && row.get(i, 0);
+            if (black && start < 0) {
+                start = i;
+            } else if (!black && start >= 0) {
+                int left = x + offset + (int) Math.round(start * scale);
+                int right = x + offset + (int) Math.round(i * scale);
+                g.fillRect(left, y, Math.max(1, right - left), height);
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * The code printed and encoded on a label: the product's barcode (its SKU, or one from
+     * BarcodeAllocator). Never the id, which scans do not resolve.
+     */
+    public static String labelCode(Product p) {
+        return p.getBarcode() != null && !p.getBarcode().isEmpty() ? p.getBarcode() : p.getSku();
+    }
+
+    private static void drawCentered(Graphics2D g, String text, int x, int baseline, int width) {
+        int textWidth = g.getFontMetrics().stringWidth(text);
+        g.drawString(text, x + Math.max(0, (width - textWidth) / 2), baseline);
+    }
+
+    private static String fit(String text, FontMetrics fm, int width) {
+        if (fm.stringWidth(text) <= width) return text;
+        int end = text.length();
+        while (end > 1 && fm.stringWidth(text.substring(0, end) + "..") > width) {
+            end--;
+        }
+        return text.substring(0, end) + "..";
+    }
+
+    private static String formatPrice(int cents) {
+        int paise = cents % 100;
+        return cents / 100 + "." + (paise < 10 ? "0" : "") + paise;
+    }
+
+    private int toPixels(double mm) {
+        return (int) Math.round(mm / MM_PER_INCH * dpi);
+    }
+
+    private static double toPoints(double mm) {
+        return mm / MM_PER_INCH * POINTS_PER_INCH;
+    }
+}
@@ -0,0 +1,240 @@
+package com.vastra.util;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application metrics: counters and latency histograms, registered by name and labels.
+ *
+ * Look a metric up once and keep it in a field; updating it is then a LongAdder or
+ * atomic increment. Every metric is also published as an MBean under com.vastra
+ * (metrics.jmx=false turns that off), and writePrometheus() renders all of them in the
+ * Prometheus text format for the MetricsServer. Histograms are exported as summaries in
+ * seconds with p50, p90, p99 and p99.9 quantiles, plus a _max gauge.
+ */
+public class Metrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final Map<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+    private static final boolean JMX = AppConfig.getBoolean("metrics.jmx", true);
+
+    /**
+     * @param labels label names and values, alternating: "result", "added"
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").get(labels);
+    }
+
+    /**
+     * @param labels label names and values, alternating: "report", "inventory"
+     */
+    public static LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, "summary").get(labels);
+    }
+
+    /**
+     * Write every metric in the Prometheus text exposition format (version 0.0.4).
+     */
+    public static void writePrometheus(Appendable out) throws IOException {
+        for (Family family : FAMILIES.values()) {
+            family.write(out);
+        }
+    }
+
+    public static String toPrometheusText() {
+        StringBuilder sb = new StringBuilder(4096);
+        try {
+            writePrometheus(sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder does not throw
+        }
+        return sb.toString();
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    /**
+     * Monotonic count, e.g. scans or failed sales.
+     */
+    public static class Counter implements CounterMXBean {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() { value.increment(); }
+        public void add(long n) { value.add(n); }
+
+        @Override
+        public long getCount() { return value.sum(); }
+    }
+
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    public interface HistogramMXBean {
+        long getCount();
+        double getMeanMillis();
+        double get50thPercentileMillis();
+        double get90thPercentileMillis();
+        double get99thPercentileMillis();
+        double get999thPercentileMillis();
+        double getMaxMillis();
+    }
+
+    private static class HistogramView implements HistogramMXBean {
+        private final LatencyHistogram histogram;
+
+        HistogramView(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override public long getCount() { return histogram.snapshot().getCount(); }
+        @Override public double getMeanMillis() { return histogram.snapshot().getMeanNanos() / 1e6; }
+        @Override public double get50thPercentileMillis() { return percentile(0.5); }
+        @Override public double get90thPercentileMillis() { return percentile(0.9); }
+        @Override public double get99thPercentileMillis() { return percentile(0.99); }
+        @Override public double get999thPercentileMillis() { return percentile(0.999); }
+        @Override public double getMaxMillis() { return histogram.snapshot().getMaxNanos() / 1e6; }
+
+        private double percentile(double fraction) {
+            return histogram.snapshot().getPercentileNanos(fraction) / 1e6;
+        }
+    }
+
+    /**
+     * All metrics with one name, keyed by their rendered label set.
+     */
+    private static class Family {
+        final String name;
+        final String help;
+        final String type;
+        final Map<String, Object> children = new ConcurrentSkipListMap<>();
+        final Map<String, Object> byLabels = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Object get(String[] labels) {
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Labels must be name/value pairs: " + name);
+            }
+            String key = labelText(labels);
+            return byLabels.computeIfAbsent(key, k -> {
+                Object metric = type.equals("counter") ? new Counter() : new LatencyHistogram();
+                children.put(k, metric);
+                register(metric, labels);
+                return metric;
+            });
+        }
+
+        void register(Object metric, String[] labels) {
+            if (!JMX) return;
+            StringBuilder objectName = new StringBuilder("com.vastra:type=Metrics,name=").append(name);
+            for (int i = 0; i < labels.length; i += 2) {
+                objectName.append(',').append(labels[i]).append('=').append(quoteIfNeeded(labels[i + 1]));
+            }
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName on = new ObjectName(objectName.toString());
+                if (server.isRegistered(on)) return;
+                if (metric instanceof Counter) {
+                    server.registerMBean(new StandardMBean((Counter) metric, CounterMXBean.class, true), on);
+                } else {
+                    server.registerMBean(new StandardMBean(
+                            new HistogramView((LatencyHistogram) metric), HistogramMXBean.class, true), on);
+                }
+            } catch (Exception e) {
+                System.err.println("Could not publish " + objectName + " over JMX: " + e.getMessage());
+            }
+        }
+
+        void write(Appendable out) throws IOException {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<String, Object> child : children.entrySet()) {
+                String labels = child.getKey();
+                if (child.getValue() instanceof Counter) {
+                    sample(out, name, labels, null, ((Counter) child.getValue()).getCount());
+                } else {
+                    LatencyHistogram.Snapshot s = ((LatencyHistogram) child.getValue()).snapshot();
+                    for (double q : QUANTILES) {
+                        sample(out, name, labels, "quantile=\"" + q + "\"", s.getPercentileNanos(q) / 1e9);
+                    }
+                    sample(out, name + "_sum", labels, null, s.getSumNanos() / 1e9);
+                    sample(out, name + "_count", labels, null, s.getCount());
+                }
+            }
+            if (type.equals("summary")) {
+                out.append("# HELP ").append(name).append("_max Largest value of ").append(name).append('\n');
+                out.append("# TYPE ").append(name).append("_max gauge\n");
+                for (Map.Entry<String, Object> child : children.entrySet()) {
+                    LatencyHistogram.Snapshot s = ((LatencyHistogram) child.getValue()).snapshot();
+                    sample(out, name + "_max", child.getKey(), null, s.getMaxNanos() / 1e9);
+                }
+            }
+        }
+
+        private static void sample(Appendable out, String name, String labels, String extra, double value)
+                throws IOException {
+            out.append(name);
+            if (!labels.isEmpty() || extra != null) {
+                out.append('{').append(labels);
+                if (extra != null) {
+                    if (!labels.isEmpty()) out.append(',');
+                    out.append(extra);
+                }
+                out.append('}');
+            }
+            out.append(' ');
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                out.append(Long.toString((long) value));
+            } else {
+                out.append(Double.toString(value));
+            }
+            out.append('\n');
+        }
+    }
+
+    private static String labelText(String[] labels) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1] != null ? labels[i + 1] : "";
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') sb.append('\\').append(c);
+                else if (c == '\n') sb.append("\\n");
+                else sb.append(c);
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String quoteIfNeeded(String value) {
+        String v = value != null ? value : "";
+        for (int i = 0; i < v.length(); i++) {
+            if (",=:\"*?\n\\".indexOf(v.charAt(i)) >= 0) {
+                return ObjectName.quote(v);
+            }
+        }
+        return v.isEmpty() ? ObjectName.quote(v) : v;
+    }
+}
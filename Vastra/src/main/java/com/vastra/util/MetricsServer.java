@@ -0,0 +1,94 @@
+package com.vastra.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves Metrics on http://127.0.0.1:{metrics.port}/metrics in the Prometheus text format.
+ *
+ * The server binds to the loopback interface only, so the figures can be scraped by a
+ * Prometheus agent or read with curl on the till itself but are never reachable from
+ * the shop network. metrics.port=0 turns it off.
+ */
+public class MetricsServer {
+
+    private static MetricsServer instance;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Start the shared server unless metrics.port is 0. A port that is already in use is
+     * reported and otherwise ignored; metrics are still available over JMX.
+     */
+    public static synchronized void startInstance() {
+        int port = AppConfig.getInt("metrics.port", 9464);
+        if (instance != null || port <= 0) return;
+        try {
+            instance = new MetricsServer(port);
+            System.out.println("Metrics at http://127.0.0.1:" + instance.getPort() + "/metrics");
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint not started on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    /**
+     * @param port port on 127.0.0.1, or 0 for any free port
+     */
+    public MetricsServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
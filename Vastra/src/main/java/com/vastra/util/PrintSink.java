@@ -0,0 +1,32 @@
+package com.vastra.util;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Destination for raw printer bytes (ESC/POS). Implementations must be safe to call
+ * repeatedly for retries; a failed write throws IOException.
+ */
+public interface PrintSink {
+
+    void write(String jobName, byte[] data) throws IOException;
+
+    /**
+     * Sink selected by printer.sink in application.properties:
+     * system (default printer, raw bytes), device (printer.device, e.g. /dev/usb/lp0 or COM3,
+     * or a plain file for testing) or spool (one file per job in printer.spoolDir).
+     */
+    static PrintSink fromConfig() {
+        String type = AppConfig.getString("printer.sink", "system");
+        switch (type) {
+            case "device":
+                return new DevicePrintSink(Paths.get(AppConfig.getString("printer.device", "/dev/usb/lp0")));
+            case "spool":
+                return new SpoolDirectoryPrintSink(Paths.get(AppConfig.getString("printer.spoolDir", "receipts")));
+            case "system":
+                return new SystemPrintSink();
+            default:
+                throw new IllegalArgumentException("Unknown printer.sink: " + type);
+        }
+    }
+}
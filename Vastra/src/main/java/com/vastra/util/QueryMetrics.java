@@ -0,0 +1,72 @@
+package com.vastra.util;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names SQL statements for metrics and the slow-query log.
+ *
+ * Queries are labelled with the DAO method that runs them (e.g. ProductDAO.findByBarcode),
+ * found by walking the stack the first time a statement's SQL is seen. After that it is a
+ * map lookup, and cached prepared statements keep their Query, so it is not repeated.
+ */
+class QueryMetrics {
+
+    private static final String HELP = "Time spent executing SQL statements and reading their rows, "
+            + "by the method that ran them";
+    // Guards against SQL built per call (e.g. IN lists) filling the map
+    private static final int MAX_CACHED_SQL = 1024;
+
+    private static final Map<String, Query> BY_SQL = new ConcurrentHashMap<>();
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    /**
+     * A statement's label and its vastra_db_query_seconds histogram.
+     */
+    static class Query {
+        final String label;
+        final LatencyHistogram histogram;
+
+        Query(String label) {
+            this.label = label;
+            this.histogram = Metrics.histogram("vastra_db_query_seconds", HELP, "query", label);
+        }
+    }
+
+    static Query forSql(String sql) {
+        Query query = BY_SQL.get(sql);
+        if (query == null) {
+            query = new Query(caller());
+            if (BY_SQL.size() < MAX_CACHED_SQL) {
+                BY_SQL.putIfAbsent(sql, query);
+            }
+        }
+        return query;
+    }
+
+    /** Class.method of the first application frame outside the connection pool */
+    private static String caller() {
+        Optional<StackWalker.StackFrame> frame = WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("com.vastra.")
+                        && !f.getClassName().startsWith(ConnectionPool.class.getName())
+                        && !f.getClassName().startsWith(StatementTrace.class.getName())
+                        && !f.getClassName().startsWith(QueryMetrics.class.getName()))
+                .findFirst());
+        if (frame.isEmpty()) {
+            return "other";
+        }
+        String className = frame.get().getClassName();
+        className = className.substring(className.lastIndexOf('.') + 1);
+        int inner = className.indexOf('$');
+        if (inner > 0) className = className.substring(0, inner);
+
+        // lambda$findById$3 -> findById
+        String method = frame.get().getMethodName();
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', 7);
+            method = method.substring(7, end > 7 ? end : method.length());
+        }
+        return className + "." + method;
+    }
+}
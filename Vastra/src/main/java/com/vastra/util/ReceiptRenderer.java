@@ -0,0 +1,319 @@
+package com.vastra.util;
+
+import com.vastra.model.CartItem;
+import com.vastra.model.Customer;
+import com.vastra.service.CartTotals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders receipts as ESC/POS byte streams for 58mm (32 column) and 80mm (48 column)
+ * thermal printers.
+ *
+ * The parts that are the same on every receipt (store header, rules, column headings,
+ * footer and cut) are compiled to bytes once in the constructor. Rendering a receipt
+ * only writes the variable lines, with amounts formatted straight into the output
+ * buffer. Text is sent as ASCII; anything else (such as ₹) is printed as "Rs." or '?',
+ * which every printer code page can show.
+ *
+ * Not thread-safe: keep one instance per thread (the print spooler uses one).
+ */
+public class ReceiptRenderer {
+
+    // ESC/POS commands
+    private static final byte[] INIT = {0x1B, 0x40};
+    private static final byte[] ALIGN_LEFT = {0x1B, 0x61, 0};
+    private static final byte[] ALIGN_CENTER = {0x1B, 0x61, 1};
+    private static final byte[] BOLD_ON = {0x1B, 0x45, 1};
+    private static final byte[] BOLD_OFF = {0x1B, 0x45, 0};
+    private static final byte[] SIZE_DOUBLE = {0x1D, 0x21, 0x11};
+    private static final byte[] SIZE_NORMAL = {0x1D, 0x21, 0};
+    private static final byte[] FEED_AND_CUT = {0x1D, 0x56, 66, 3};
+    private static final byte NEWLINE = '\n';
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    private final int columns;
+    private final boolean twoLineItems;
+    private final int nameWidth;
+
+    private final byte[] header;
+    private final byte[] itemsHeading;
+    private final byte[] rule;
+    private final byte[] footer;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+    private final byte[] digits = new byte[24];
+
+    /**
+     * @param settings store_settings values (store_name, store_address, store_phone,
+     *                 store_gstin, receipt_footer)
+     * @param columns  characters per line: 32 for 58mm paper, 48 for 80mm
+     */
+    public ReceiptRenderer(Map<String, String> settings, int columns) {
+        this.columns = columns;
+        // Below 40 columns a line does not fit name, qty, price and total side by side
+        this.twoLineItems = columns < 40;
+        this.nameWidth = twoLineItems ? columns : columns - 24;
+
+        rule = compile(b -> {
+            pad(b, '-', columns);
+            b.write(NEWLINE);
+        });
+
+        header = compile(b -> {
+            b.writeBytes(INIT);
+            b.writeBytes(ALIGN_CENTER);
+            b.writeBytes(SIZE_DOUBLE);
+            b.writeBytes(BOLD_ON);
+            text(b, setting(settings, "store_name", "Vastra Store").toUpperCase(), columns / 2);
+            b.write(NEWLINE);
+            b.writeBytes(BOLD_OFF);
+            b.writeBytes(SIZE_NORMAL);
+            for (String line : setting(settings, "store_address", "").split("\\R|,\\s*")) {
+                if (!line.isBlank()) {
+                    line(b, line.trim());
+                }
+            }
+            String phone = setting(settings, "store_phone", "");
+            if (!phone.isEmpty()) line(b, "Phone: " + phone);
+            String gstin = setting(settings, "store_gstin", "");
+            if (!gstin.isEmpty()) line(b, "GSTIN: " + gstin);
+            b.writeBytes(ALIGN_LEFT);
+        });
+
+        itemsHeading = compile(b -> {
+            b.writeBytes(BOLD_ON);
+            if (twoLineItems) {
+                text(b, "Item", columns);
+                b.write(NEWLINE);
+                pad(b, ' ', 2);
+                left(b, "Qty x Price", columns - 12);
+                right(b, "Total", 10);
+            } else {
+                left(b, "Item", nameWidth);
+                right(b, "Qty", 5);
+                right(b, "Price", 9);
+                right(b, "Total", 10);
+            }
+            b.write(NEWLINE);
+            b.writeBytes(BOLD_OFF);
+        });
+
+        footer = compile(b -> {
+            b.writeBytes(ALIGN_CENTER);
+            for (String line : setting(settings, "receipt_footer", "Thank you for shopping with us!").split("\\R")) {
+                line(b, line);
+            }
+            line(b, "Visit us again!");
+            line(b, "Goods once sold cannot be returned");
+            b.writeBytes(ALIGN_LEFT);
+            b.writeBytes(FEED_AND_CUT);
+        });
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public byte[] render(String invoiceNumber, LocalDateTime time, List<CartItem> items,
+                         Customer customer, CartTotals totals, String paymentMode) {
+        ByteArrayOutputStream b = out;
+        b.reset();
+        b.writeBytes(header);
+        b.writeBytes(rule);
+
+        line(b, "Invoice: " + invoiceNumber);
+        line(b, "Date: " + time.format(DATE_FORMAT));
+        line(b, "Customer: " + (customer != null ? customer.getName() : "Walk-in"));
+        if (customer != null && customer.getPhone() != null) {
+            line(b, "Phone: " + customer.getPhone());
+        }
+        b.writeBytes(rule);
+        b.writeBytes(itemsHeading);
+        b.writeBytes(rule);
+
+        for (int i = 0, n = items.size(); i < n; i++) {
+            CartItem item = items.get(i);
+            String name = item.getProduct().getDisplayName();
+            if (twoLineItems) {
+                left(b, name, columns);
+                b.write(NEWLINE);
+                pad(b, ' ', 2);
+                int start = b.size();
+                number(b, item.getQuantity());
+                text(b, " x ", 3);
+                money(b, item.getProduct().getSellPriceCents());
+                pad(b, ' ', columns - 12 - (b.size() - start));
+                moneyRight(b, item.getLineTotalCents(), 10);
+            } else {
+                left(b, name, nameWidth);
+                moneyRight(b, item.getQuantity() * 100L, 5, false);
+                moneyRight(b, item.getProduct().getSellPriceCents(), 9);
+                moneyRight(b, item.getLineTotalCents(), 10);
+            }
+            b.write(NEWLINE);
+        }
+        b.writeBytes(rule);
+
+        amountLine(b, "Subtotal:", totals.getSubtotalCents());
+        for (int i = 0; i < totals.getRateCount(); i++) {
+            int rate = totals.getRate(i);
+            if (rate == 0) continue;
+            String half = rate % 2 == 0 ? Integer.toString(rate / 2) : (rate / 2) + ".5";
+            amountLine(b, "CGST @" + half + "%:", totals.getCgstCentsForRate(rate));
+            amountLine(b, "SGST @" + half + "%:", totals.getSgstCentsForRate(rate));
+        }
+        amountLine(b, "Tax (incl.):", totals.getTaxCents());
+        long discount = totals.getLineDiscountCents() + totals.getBillDiscountCents();
+        if (discount > 0) {
+            amountLine(b, "Discount:", discount);
+        }
+        b.writeBytes(rule);
+        b.writeBytes(BOLD_ON);
+        amountLine(b, "TOTAL:", totals.getTotalCents());
+        b.writeBytes(BOLD_OFF);
+        b.writeBytes(rule);
+        line(b, "Payment Mode: " + paymentMode);
+        if (customer != null) {
+            b.writeBytes(BOLD_ON);
+            line(b, "Points Earned: " + totals.getTotalCents() / 10000); // 1 point per 100 rupees
+            b.writeBytes(BOLD_OFF);
+        }
+        b.writeBytes(rule);
+        b.writeBytes(footer);
+        return b.toByteArray();
+    }
+
+    private void amountLine(ByteArrayOutputStream b, String label, long cents) {
+        left(b, label, columns - 12);
+        moneyRight(b, cents, 12);
+        b.write(NEWLINE);
+    }
+
+    /** Writes s, wrapping at spaces onto as many lines as it needs */
+    private void line(ByteArrayOutputStream b, String s) {
+        while (s.length() > columns) {
+            int cut = s.lastIndexOf(' ', columns);
+            if (cut <= 0) cut = columns;
+            text(b, s.substring(0, cut), columns);
+            b.write(NEWLINE);
+            s = s.substring(cut).trim();
+        }
+        text(b, s, columns);
+        b.write(NEWLINE);
+    }
+
+    private static void left(ByteArrayOutputStream b, String s, int width) {
+        int written = text(b, s, width);
+        pad(b, ' ', width - written);
+    }
+
+    private static void right(ByteArrayOutputStream b, String s, int width) {
+        pad(b, ' ', width - Math.min(s.length(), width)); // headings are plain ASCII
+        text(b, s, width);
+    }
+
+    /** Writes s as ASCII, at most max bytes of it; returns how many were written */
+    private static int text(ByteArrayOutputStream b, String s, int max) {
+        int written = 0;
+        for (int i = 0; i < s.length() && written < max; i++) {
+            char c = s.charAt(i);
+            if (c == '₹') {
+                if (written + 3 > max) break;
+                b.write('R');
+                b.write('s');
+                b.write('.');
+                written += 3;
+            } else {
+                b.write(c < 0x20 || c > 0x7E ? '?' : c);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void pad(ByteArrayOutputStream b, char c, int count) {
+        for (int i = 0; i < count; i++) {
+            b.write(c);
+        }
+    }
+
+    private void moneyRight(ByteArrayOutputStream b, long cents, int width) {
+        moneyRight(b, cents, width, true);
+    }
+
+    /** Right-aligned amount: rupees.paise, or a whole number when paise is false */
+    private void moneyRight(ByteArrayOutputStream b, long cents, int width, boolean paise) {
+        int len = formatMoney(cents, paise);
+        pad(b, ' ', width - len);
+        b.write(digits, digits.length - len, len);
+    }
+
+    private void money(ByteArrayOutputStream b, long cents) {
+        int len = formatMoney(cents, true);
+        b.write(digits, digits.length - len, len);
+    }
+
+    private void number(ByteArrayOutputStream b, long n) {
+        int len = formatMoney(n * 100, false);
+        b.write(digits, digits.length - len, len);
+    }
+
+    /** Formats into the end of the digits scratch buffer; returns the length */
+    private int formatMoney(long cents, boolean paise) {
+        boolean negative = cents < 0;
+        long v = Math.abs(cents);
+        int pos = digits.length;
+        if (paise) {
+            digits[--pos] = (byte) ('0' + v % 10);
+            digits[--pos] = (byte) ('0' + v / 10 % 10);
+            digits[--pos] = '.';
+        }
+        v /= 100;
+        do {
+            digits[--pos] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        if (negative) {
+            digits[--pos] = '-';
+        }
+        return digits.length - pos;
+    }
+
+    private static String setting(Map<String, String> settings, String key, String defaultValue) {
+        String value = settings.get(key);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    private interface Template {
+        void write(ByteArrayOutputStream b);
+    }
+
+    private static byte[] compile(Template template) {
+        ByteArrayOutputStream b = new ByteArrayOutputStream(256);
+        template.write(b);
+        return b.toByteArray();
+    }
+
+    /** Receipt as plain text with the ESC/POS commands stripped, for logs and tests */
+    public static String toPlainText(byte[] receipt) {
+        StringBuilder sb = new StringBuilder(receipt.length);
+        for (int i = 0; i < receipt.length; i++) {
+            byte c = receipt[i];
+            if (c == 0x1B || c == 0x1D) {
+                // ESC @ takes no argument; ESC a/E/d, GS ! take one; GS V 66 takes two
+                byte cmd = i + 1 < receipt.length ? receipt[i + 1] : 0;
+                i += cmd == 0x40 ? 1 : (c == 0x1D && cmd == 0x56) ? 3 : 2;
+            } else {
+                sb.append((char) c);
+            }
+        }
+        return new String(sb.toString().getBytes(StandardCharsets.US_ASCII), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,88 @@
+package com.vastra.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hands decoded scans to the UI in order, merging repeats.
+ *
+ * A scan is held for the window after it was decoded before it is handed to the delivery
+ * executor (the FX thread). A scan of the same code as the newest one not yet delivered
+ * just increments that one's quantity, so twenty quick scans of the same T-shirt reach
+ * the cart as a few larger updates instead of twenty. Only adjacent scans merge, so the
+ * order of different codes is kept.
+ *
+ * The window is also the least time from decode to cart update; 0 delivers at once and
+ * merges only scans still waiting for the FX thread.
+ */
+public class ScanCoalescer {
+
+    private final Consumer<ScanEvent> handler;
+    private final Executor deliveryExecutor;
+    private final long windowNanos;
+
+    // guarded by this
+    private final ArrayDeque<ScanEvent> pending = new ArrayDeque<>();
+    private long holdUntilNanos;
+    private boolean deliveryScheduled;
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ScanCoalescer(Consumer<ScanEvent> handler, Executor deliveryExecutor, long windowMs) {
+        this.handler = handler;
+        this.deliveryExecutor = deliveryExecutor;
+        this.windowNanos = windowMs * 1_000_000L;
+    }
+
+    public synchronized void submit(ScanEvent scan) {
+        ScanEvent last = pending.peekLast();
+        if (last != null && last.getCode().equals(scan.getCode())) {
+            last.merge(scan.getLastDecodedNanos());
+            coalesced.incrementAndGet();
+            return;
+        }
+        if (pending.isEmpty()) {
+            holdUntilNanos = scan.getLastDecodedNanos() + windowNanos;
+        }
+        pending.addLast(scan);
+    }
+
+    /**
+     * Hands the waiting scans to the delivery executor once the window after the oldest
+     * has passed. Returns the nanos until that is due, or -1 if there is nothing to wait for.
+     */
+    public long flush(long nanos) {
+        synchronized (this) {
+            if (pending.isEmpty() || deliveryScheduled) {
+                return -1;
+            }
+            long wait = holdUntilNanos - nanos;
+            if (wait > 0) {
+                return wait;
+            }
+            deliveryScheduled = true;
+        }
+        deliveryExecutor.execute(this::deliver);
+        return -1;
+    }
+
+    /** Scans merged into an earlier one instead of being delivered separately */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private void deliver() {
+        List<ScanEvent> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            deliveryScheduled = false;
+        }
+        for (ScanEvent scan : batch) {
+            handler.accept(scan);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.vastra.util;
+
+/**
+ * Frames a keystroke stream into barcodes by inter-key timing.
+ *
+ * Keyboard-wedge scanners type a whole code within a few milliseconds, people do not.
+ * A frame is the run of keys with no gap longer than maxKeyGap between them. It ends at
+ * Enter, or (with flushOnGap, for scanners configured without a suffix) once the gap has
+ * passed. Frames shorter than minLength are treated as manual typing and dropped.
+ *
+ * Not thread-safe: used only by the decoder thread.
+ */
+public class ScanDecoder {
+
+    private final long maxKeyGapNanos;
+    private final int minLength;
+    private final boolean flushOnGap;
+
+    private final StringBuilder frame = new StringBuilder(32);
+    private long firstKeyNanos;
+    private long lastKeyNanos;
+
+    public ScanDecoder(long maxKeyGapMs, int minLength, boolean flushOnGap) {
+        this.maxKeyGapNanos = maxKeyGapMs * 1_000_000L;
+        this.minLength = Math.max(1, minLength);
+        this.flushOnGap = flushOnGap;
+    }
+
+    /**
+     * Feed one keystroke. Returns a completed scan, or null.
+     */
+    public ScanEvent onKey(char key, long nanos) {
+        ScanEvent done = null;
+        if (frame.length() > 0 && nanos - lastKeyNanos > maxKeyGapNanos) {
+            done = endFrame(lastKeyNanos, flushOnGap);
+        }
+
+        if (key == '\n' || key == '\r') {
+            ScanEvent scan = endFrame(nanos, true);
+            return done != null ? done : scan;
+        }
+
+        if (frame.length() == 0) {
+            firstKeyNanos = nanos;
+        }
+        frame.append(key);
+        lastKeyNanos = nanos;
+        return done;
+    }
+
+    /**
+     * Called when no keys are arriving. Ends a frame that has been idle for longer than
+     * the gap; returns it if it counts as a scan.
+     */
+    public ScanEvent onIdle(long nanos) {
+        if (frame.length() > 0 && nanos - lastKeyNanos > maxKeyGapNanos) {
+            return endFrame(lastKeyNanos, flushOnGap);
+        }
+        return null;
+    }
+
+    public boolean hasOpenFrame() {
+        return frame.length() > 0;
+    }
+
+    private ScanEvent endFrame(long decodedNanos, boolean emit) {
+        ScanEvent scan = null;
+        if (emit && frame.length() >= minLength) {
+            scan = new ScanEvent(frame.toString(), firstKeyNanos, decodedNanos);
+        }
+        frame.setLength(0);
+        return scan;
+    }
+}
@@ -0,0 +1,52 @@
+package com.vastra.util;
+
+/**
+ * One decoded barcode scan, possibly standing for several identical scans merged by
+ * the ScanCoalescer. Timestamps are System.nanoTime() values.
+ */
+public class ScanEvent {
+    private final String code;
+    private final long firstKeyNanos;
+    private int quantity = 1;
+    private long lastDecodedNanos;
+    private long appliedNanos;
+
+    public ScanEvent(String code, long firstKeyNanos, long decodedNanos) {
+        this.code = code;
+        this.firstKeyNanos = firstKeyNanos;
+        this.lastDecodedNanos = decodedNanos;
+    }
+
+    public String getCode() { return code; }
+
+    /** How many scans of this code this event stands for */
+    public int getQuantity() { return quantity; }
+
+    /** First keystroke of the first scan merged into this event */
+    public long getFirstKeyNanos() { return firstKeyNanos; }
+
+    /** When the most recent scan merged into this event was decoded */
+    public long getLastDecodedNanos() { return lastDecodedNanos; }
+
+    /** When the cart was updated, or 0 if it has not been */
+    public long getAppliedNanos() { return appliedNanos; }
+
+    /** First keystroke to cart update, in milliseconds */
+    public double getLatencyMillis() {
+        return appliedNanos == 0 ? 0 : (appliedNanos - firstKeyNanos) / 1_000_000.0;
+    }
+
+    void merge(long decodedNanos) {
+        quantity++;
+        lastDecodedNanos = decodedNanos;
+    }
+
+    void markApplied(long nanos) {
+        appliedNanos = nanos;
+    }
+
+    @Override
+    public String toString() {
+        return code + " x" + quantity;
+    }
+}
@@ -0,0 +1,191 @@
+package com.vastra.util;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Brings a SQLite database up to date by applying an ordered list of migrations.
+ *
+ * The version a database has reached is kept in PRAGMA user_version, which is read from
+ * the database header, and each applied migration is recorded in schema_migrations with
+ * a checksum of its SQL. A database already at the latest version only has its
+ * checksums compared; no DDL runs. Each migration runs in its own transaction together
+ * with its bookkeeping, so one that fails leaves the database at the previous version.
+ *
+ * Once released, a migration must not be edited (a changed checksum is reported on the
+ * next start); schema changes go in a new migration with the next version.
+ */
+class SchemaMigrator {
+
+    /**
+     * Work a migration does beyond its SQL statements, e.g. conditional upgrades of
+     * databases created by earlier versions.
+     */
+    interface Step {
+        void apply(Connection c) throws SQLException;
+    }
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final List<String> sql;
+        final Step then;
+        final long checksum;
+
+        /**
+         * @param then run after the SQL statements, may be null. Only the SQL is checksummed.
+         */
+        Migration(int version, String description, Step then, String... sql) {
+            this.version = version;
+            this.description = description;
+            this.sql = List.of(sql);
+            this.then = then;
+            this.checksum = checksum(this.sql);
+        }
+
+        Migration(int version, String description, String... sql) {
+            this(version, description, null, sql);
+        }
+    }
+
+    private final List<Migration> migrations;
+
+    /**
+     * @param migrations in ascending version order, starting at 1
+     */
+    SchemaMigrator(List<Migration> migrations) {
+        for (int i = 0; i < migrations.size(); i++) {
+            if (migrations.get(i).version != i + 1) {
+                throw new IllegalArgumentException("Migration " + migrations.get(i).version
+                        + " is out of order, expected version " + (i + 1));
+            }
+        }
+        this.migrations = migrations;
+    }
+
+    int getLatestVersion() {
+        return migrations.size();
+    }
+
+    /**
+     * Apply the migrations c's database has not had yet.
+     *
+     * @return the number of migrations applied
+     */
+    int migrate(Connection c) throws SQLException {
+        int current = getVersion(c);
+        int latest = getLatestVersion();
+        if (current > latest) {
+            throw new SQLException("Database is at schema version " + current
+                    + " but this version of Vastra only knows up to " + latest);
+        }
+        if (current > 0) {
+            verify(c, current);
+        }
+        if (current == latest) {
+            return 0;
+        }
+
+        try (Statement s = c.createStatement()) {
+            s.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migrations(
+                  version INTEGER PRIMARY KEY,
+                  description TEXT NOT NULL,
+                  checksum INTEGER NOT NULL,
+                  applied_at TEXT NOT NULL,
+                  duration_ms INTEGER
+                );
+            """);
+        }
+        long start = System.currentTimeMillis();
+        for (Migration m : migrations.subList(current, latest)) {
+            apply(c, m);
+        }
+        System.out.println("Database schema migrated from version " + current + " to " + latest
+                + " in " + (System.currentTimeMillis() - start) + " ms");
+        return latest - current;
+    }
+
+    static int getVersion(Connection c) throws SQLException {
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(Connection c, Migration m) throws SQLException {
+        long start = System.currentTimeMillis();
+        c.setAutoCommit(false);
+        try (Statement s = c.createStatement()) {
+            for (String sql : m.sql) {
+                s.execute(sql);
+            }
+            if (m.then != null) {
+                m.then.apply(c);
+            }
+            long duration = System.currentTimeMillis() - start;
+            try (PreparedStatement ps = c.prepareStatement("INSERT OR REPLACE INTO schema_migrations" +
+                    "(version, description, checksum, applied_at, duration_ms) VALUES (?, ?, ?, datetime('now'), ?)")) {
+                ps.setInt(1, m.version);
+                ps.setString(2, m.description);
+                ps.setLong(3, m.checksum);
+                ps.setLong(4, duration);
+                ps.executeUpdate();
+            }
+            // Part of the transaction: the header is only updated if the migration commits
+            s.execute("PRAGMA user_version = " + m.version);
+            c.commit();
+        } catch (SQLException e) {
+            c.rollback();
+            throw new SQLException("Schema migration " + m.version + " (" + m.description + ") failed: "
+                    + e.getMessage(), e);
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Warn about applied migrations whose SQL has changed since. The database is left
+     * as it is: the change is in this build, not in the data.
+     */
+    private void verify(Connection c, int current) {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not read schema_migrations: " + e.getMessage());
+            return;
+        }
+        for (Migration m : migrations.subList(0, current)) {
+            Long checksum = applied.get(m.version);
+            if (checksum == null) {
+                System.err.println("Schema migration " + m.version + " (" + m.description
+                        + ") is not recorded in schema_migrations");
+            } else if (checksum != m.checksum) {
+                System.err.println("Schema migration " + m.version + " (" + m.description
+                        + ") has changed since it was applied (checksum " + checksum + ", now " + m.checksum + ")");
+            }
+        }
+    }
+
+    /** CRC32 of the statements with runs of whitespace collapsed, so reindenting is not a change */
+    static long checksum(List<String> sql) {
+        CRC32 crc = new CRC32();
+        for (String statement : sql) {
+            crc.update(statement.strip().replaceAll("\\s+", " ").getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,171 @@
+package com.vastra.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Rolling log of SQL statements that took at least db.slowQueryMs.
+ *
+ * Each entry has the time split into execute and fetch, the rows read, the method that
+ * ran the statement, its SQL, the shape of its parameters and the statement's
+ * EXPLAIN QUERY PLAN, so a full table scan can be spotted without reproducing it. The
+ * plan is looked up once per SQL text. Files are written to db.slowQueryDir as
+ * slow-queries.0.log, .1.log, ..., each up to db.slowQueryLogKb before the oldest is
+ * dropped.
+ *
+ * db.slowQueryMs=-1 turns the log off; 0 logs every statement.
+ */
+public class SlowQueryLog {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final int MAX_CACHED_PLANS = 256;
+
+    private static final Metrics.Counter SLOW_QUERIES = Metrics.counter("vastra_db_slow_queries_total",
+            "Statements that took longer than db.slowQueryMs");
+
+    private static volatile SlowQueryLog instance;
+
+    private final long thresholdNanos;
+    private final Path dir;
+    private final int maxKb;
+    private final int files;
+    private final Map<String, String> plans = new ConcurrentHashMap<>();
+    private FileHandler handler; // opened on the first slow statement
+    private boolean broken;
+
+    public static SlowQueryLog getInstance() {
+        SlowQueryLog log = instance;
+        if (log != null) return log;
+        synchronized (SlowQueryLog.class) {
+            if (instance == null) {
+                instance = new SlowQueryLog(
+                        AppConfig.getLong("db.slowQueryMs", 100),
+                        Paths.get(AppConfig.getString("db.slowQueryDir", "logs")),
+                        AppConfig.getInt("db.slowQueryLogKb", 1024),
+                        AppConfig.getInt("db.slowQueryLogFiles", 5));
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Close the log file. The next getInstance() reads the settings again.
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * @param thresholdMs statements taking at least this long are logged; negative for none
+     */
+    public SlowQueryLog(long thresholdMs, Path dir, int maxKb, int files) {
+        this.thresholdNanos = thresholdMs >= 0 ? thresholdMs * 1_000_000L : -1;
+        this.dir = dir;
+        this.maxKb = Math.max(1, maxKb);
+        this.files = Math.max(1, files);
+    }
+
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    public boolean isSlow(long nanos) {
+        return thresholdNanos >= 0 && nanos >= thresholdNanos;
+    }
+
+    /**
+     * Write one entry. Called on the thread that ran the statement, while it still holds
+     * the connection, which is used to explain the statement.
+     *
+     * @param rows rows read from the result set (0 for updates)
+     */
+    void log(Connection connection, String caller, String sql, String params,
+             long executeNanos, long fetchNanos, long rows) {
+        SLOW_QUERIES.increment();
+        String plan = plans.get(sql);
+        if (plan == null) {
+            plan = explain(connection, sql);
+            if (plans.size() < MAX_CACHED_PLANS) {
+                plans.put(sql, plan);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(512);
+        sb.append(LocalDateTime.now().format(TIME_FORMAT))
+                .append(String.format(" %.1f ms (execute %.1f ms, fetch %.1f ms, %d rows) ",
+                        (executeNanos + fetchNanos) / 1e6, executeNanos / 1e6, fetchNanos / 1e6, rows))
+                .append(caller).append(" [").append(Thread.currentThread().getName()).append("]\n");
+        sb.append("  SQL: ").append(sql.strip().replaceAll("\\s+", " ")).append('\n');
+        if (!params.isEmpty()) {
+            sb.append("  Params: ").append(params).append('\n');
+        }
+        sb.append("  Plan:\n").append(plan).append('\n');
+        write(sb.toString());
+    }
+
+    private synchronized void write(String entry) {
+        if (handler == null && !broken) {
+            try {
+                Files.createDirectories(dir);
+                handler = new FileHandler(dir.resolve("slow-queries.%g.log").toString(), maxKb * 1024, files, true);
+                handler.setEncoding("UTF-8");
+                handler.setFormatter(new Formatter() {
+                    @Override
+                    public String format(LogRecord record) {
+                        return record.getMessage();
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("Could not open the slow query log in " + dir + ": " + e.getMessage());
+                broken = true;
+            }
+        }
+        if (handler != null) {
+            handler.publish(new LogRecord(Level.WARNING, entry));
+            handler.flush();
+        }
+    }
+
+    /** EXPLAIN QUERY PLAN as an indented tree, one step per line */
+    private static String explain(Connection connection, String sql) {
+        StringBuilder sb = new StringBuilder();
+        Map<Integer, Integer> depth = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                int d = depth.getOrDefault(rs.getInt("parent"), 0) + 1;
+                depth.put(id, d);
+                sb.append("  ".repeat(d + 1)).append(rs.getString("detail")).append('\n');
+            }
+        } catch (SQLException e) {
+            return "    (not available: " + e.getMessage() + ")";
+        }
+        return sb.length() == 0 ? "    (none)" : sb.substring(0, sb.length() - 1);
+    }
+
+    private synchronized void close() {
+        if (handler != null) {
+            handler.close();
+            handler = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.vastra.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes each job as its own file in a spool directory, for a print daemon that picks
+ * them up. Files are written under a temporary name and renamed when complete, so the
+ * daemon never sees a partial job.
+ */
+public class SpoolDirectoryPrintSink implements PrintSink {
+
+    private final Path dir;
+
+    public SpoolDirectoryPrintSink(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public void write(String jobName, byte[] data) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(jobName + ".tmp");
+        Files.write(tmp, data);
+        Files.move(tmp, dir.resolve(jobName + ".bin"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public String toString() {
+        return "spool " + dir;
+    }
+}
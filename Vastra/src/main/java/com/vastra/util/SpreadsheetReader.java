@@ -0,0 +1,255 @@
+package com.vastra.util;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads CSV and XLSX files one row at a time, so memory use does not grow with the file.
+ *
+ * CSV follows RFC 4180 (quoted fields may contain commas, quotes and line breaks) and
+ * may start with a UTF-8 byte order mark. XLSX is read with POI's SAX event API, first
+ * sheet only, with cells formatted as Excel shows them; empty cells come through as "".
+ */
+public class SpreadsheetReader {
+
+    @FunctionalInterface
+    public interface RowConsumer {
+        /**
+         * @param rowNumber 1-based row number in the file
+         */
+        void row(int rowNumber, String[] cells) throws Exception;
+    }
+
+    /**
+     * Read every non-empty row of a .csv or .xlsx file.
+     *
+     * @param progress called about every megabyte with the number of bytes read so far
+     *                 (CSV only), or null
+     */
+    public static void read(Path file, RowConsumer consumer, LongConsumer progress) throws Exception {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".xlsx")) {
+            readXlsx(file, consumer);
+        } else if (name.endsWith(".csv") || name.endsWith(".txt")) {
+            try (InputStream in = new CountingInputStream(Files.newInputStream(file), progress)) {
+                readCsv(new InputStreamReader(in, StandardCharsets.UTF_8), consumer);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported file type (use .csv or .xlsx): " + file.getFileName());
+        }
+    }
+
+    public static void readCsv(Reader source, RowConsumer consumer) throws Exception {
+        BufferedReader in = new BufferedReader(source, 1 << 16);
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        boolean atStart = true; // at the start of a cell
+        int rowNumber = 1;
+        int startRow = 1;
+
+        int c = in.read();
+        if (c == '\uFEFF') c = in.read(); // byte order mark
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    int next = in.read();
+                    if (next == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') rowNumber++;
+                    cell.append((char) c);
+                }
+            } else if (c == '"' && atStart) {
+                quoted = true;
+                atStart = false;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+                atStart = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int next = in.read();
+                    if (next != '\n') {
+                        endRow(cells, cell, startRow, consumer);
+                        rowNumber++;
+                        startRow = rowNumber;
+                        atStart = true;
+                        c = next;
+                        continue;
+                    }
+                }
+                endRow(cells, cell, startRow, consumer);
+                rowNumber++;
+                startRow = rowNumber;
+                atStart = true;
+            } else {
+                cell.append((char) c);
+                atStart = false;
+            }
+            c = in.read();
+        }
+        if (!cells.isEmpty() || cell.length() > 0) {
+            endRow(cells, cell, startRow, consumer);
+        }
+    }
+
+    private static void endRow(List<String> cells, StringBuilder cell, int rowNumber,
+                               RowConsumer consumer) throws Exception {
+        cells.add(cell.toString());
+        cell.setLength(0);
+        String[] row = cells.toArray(new String[0]);
+        cells.clear();
+        if (!isEmpty(row)) {
+            consumer.row(rowNumber, row);
+        }
+    }
+
+    public static void readXlsx(Path file, RowConsumer consumer) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) return;
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                        new RowCollector(consumer), new DataFormatter(), false));
+                try {
+                    parser.parse(new InputSource(sheet));
+                } catch (ConsumerException e) {
+                    throw e.error;
+                }
+            }
+        }
+    }
+
+    private static boolean isEmpty(String[] row) {
+        for (String cell : row) {
+            if (!cell.isBlank()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Turns the SAX cell callbacks into rows. Cells missing from the sheet XML (empty
+     * ones) are filled in as "".
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowConsumer consumer;
+        private String[] cells = new String[16];
+        private int width;
+
+        RowCollector(RowConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(cells, 0, width, "");
+            width = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = new CellReference(cellReference).getCol();
+            if (col >= cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(col + 1, cells.length * 2));
+            }
+            for (int i = width; i < col; i++) {
+                cells[i] = "";
+            }
+            cells[col] = formattedValue != null ? formattedValue : "";
+            width = Math.max(width, col + 1);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            String[] row = Arrays.copyOf(cells, width);
+            if (isEmpty(row)) return;
+            try {
+                consumer.row(rowNum + 1, row);
+            } catch (Exception e) {
+                // SAX handlers cannot throw checked exceptions; unwrapped in readXlsx
+                throw new ConsumerException(e);
+            }
+        }
+    }
+
+    private static class ConsumerException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final Exception error;
+
+        ConsumerException(Exception error) {
+            super(error);
+            this.error = error;
+        }
+    }
+
+    /** Reports how far through the file the reader is, about every 1 MB */
+    private static class CountingInputStream extends FilterInputStream {
+        private final LongConsumer progress;
+        private long count;
+        private long reported;
+
+        CountingInputStream(InputStream in, LongConsumer progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) advance(n);
+            return n;
+        }
+
+        private void advance(long n) {
+            count += n;
+            if (progress != null && count - reported >= 1 << 20) {
+                reported = count;
+                progress.accept(count);
+            }
+        }
+    }
+}
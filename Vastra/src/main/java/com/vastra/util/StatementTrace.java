@@ -0,0 +1,214 @@
+package com.vastra.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Traces the executions of one statement handed out by the ConnectionPool.
+ *
+ * Each execution is timed from the execute call until its result set is closed, with the
+ * time spent in ResultSet.next() counted as fetch time, so a full scan that only shows
+ * up while the rows are read is still measured. The total goes to the statement's
+ * vastra_db_query_seconds histogram, and executions at or above the slow-query threshold
+ * are written to the SlowQueryLog with the shape of their bind parameters (types and
+ * lengths, never values).
+ *
+ * A trace belongs to whichever thread holds the statement, so it needs no locking.
+ */
+class StatementTrace {
+
+    private final Connection raw;
+    private final String preparedSql;
+    private final QueryMetrics.Query prepared;
+    private Object[] params;
+
+    // The execution in progress
+    private String sql;
+    private QueryMetrics.Query query;
+    private boolean running;
+    private int execution;
+    private long executeNanos;
+    private long fetchNanos;
+    private long rows;
+
+    /**
+     * @param raw the physical connection, used to explain slow statements
+     * @param sql the SQL of a prepared statement, or null for a plain Statement
+     */
+    StatementTrace(Connection raw, String sql) {
+        this.raw = raw;
+        this.preparedSql = sql;
+        this.prepared = sql != null ? QueryMetrics.forSql(sql) : null;
+    }
+
+    /**
+     * Call method on target, tracing it if it is an execute call and noting bound
+     * parameters if slow statements are being logged.
+     */
+    Object invoke(Statement target, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("execute")) {
+            return execute(target, method, args);
+        }
+        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                && SlowQueryLog.getInstance().isEnabled()) {
+            bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+        } else if (name.equals("clearParameters") && params != null) {
+            Arrays.fill(params, null);
+        }
+        return call(target, method, args);
+    }
+
+    /**
+     * End the execution in progress, if any: record it and log it if it was slow.
+     */
+    void finish() {
+        if (!running) return;
+        running = false;
+        long total = executeNanos + fetchNanos;
+        query.histogram.record(total);
+        SlowQueryLog log = SlowQueryLog.getInstance();
+        if (log.isSlow(total)) {
+            log.log(raw, query.label, sql, describeParams(), executeNanos, fetchNanos, rows);
+        }
+    }
+
+    /**
+     * Finish the execution in progress and forget the bound parameters, when the
+     * statement is closed or returned to the cache.
+     */
+    void reset() {
+        finish();
+        if (params != null) {
+            Arrays.fill(params, null);
+        }
+    }
+
+    private Object execute(Statement target, Method method, Object[] args) throws Throwable {
+        finish(); // a result set from the previous execution still open
+        if (prepared != null) {
+            sql = preparedSql;
+            query = prepared;
+        } else if (args != null && args.length > 0 && args[0] instanceof String) {
+            sql = (String) args[0];
+            query = QueryMetrics.forSql(sql);
+        } else {
+            return call(target, method, args); // executeBatch of a plain Statement
+        }
+
+        running = true;
+        execution++;
+        fetchNanos = 0;
+        rows = 0;
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = call(target, method, args);
+        } catch (Throwable e) {
+            executeNanos = System.nanoTime() - start;
+            finish();
+            throw e;
+        }
+        executeNanos = System.nanoTime() - start;
+        if (result instanceof ResultSet) {
+            return Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    new TracedResultSet((ResultSet) result, execution));
+        }
+        finish();
+        return result;
+    }
+
+    private void bind(int index, Object value) {
+        if (index < 1 || index > 999) return;
+        if (params == null || params.length < index) {
+            params = Arrays.copyOf(params != null ? params : new Object[0], Math.max(index, 8));
+        }
+        params[index - 1] = value;
+    }
+
+    /** e.g. "?1 TEXT(7), ?2 INTEGER, ?3 NULL" */
+    private String describeParams() {
+        if (params == null) return "";
+        int n = params.length;
+        while (n > 0 && params[n - 1] == null) n--;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?').append(i + 1).append(' ');
+            Object v = params[i];
+            if (v == null) {
+                sb.append("NULL");
+            } else if (v instanceof CharSequence) {
+                sb.append("TEXT(").append(((CharSequence) v).length()).append(')');
+            } else if (v instanceof byte[]) {
+                sb.append("BLOB(").append(((byte[]) v).length).append(')');
+            } else if (v instanceof Integer || v instanceof Long || v instanceof Short
+                    || v instanceof Byte || v instanceof Boolean) {
+                sb.append("INTEGER");
+            } else if (v instanceof Double || v instanceof Float || v instanceof BigDecimal) {
+                sb.append("REAL");
+            } else {
+                sb.append(v.getClass().getSimpleName());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Adds the time spent in next() to the trace and ends the execution on close().
+     * A result set left over from an earlier execution no longer counts.
+     */
+    private class TracedResultSet implements InvocationHandler {
+        private final ResultSet rs;
+        private final int owner;
+
+        TracedResultSet(ResultSet rs, int owner) {
+            this.rs = rs;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    long start = System.nanoTime();
+                    boolean more = rs.next();
+                    if (owner == execution) {
+                        fetchNanos += System.nanoTime() - start;
+                        if (more) rows++;
+                    }
+                    return more;
+                case "close":
+                    try {
+                        rs.close();
+                    } finally {
+                        if (owner == execution) finish();
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return call(rs, method, args);
+            }
+        }
+    }
+}
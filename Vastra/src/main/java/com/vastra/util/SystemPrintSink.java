@@ -0,0 +1,49 @@
+package com.vastra.util;
+
+import javax.print.Doc;
+import javax.print.DocFlavor;
+import javax.print.DocPrintJob;
+import javax.print.PrintException;
+import javax.print.PrintService;
+import javax.print.PrintServiceLookup;
+import javax.print.SimpleDoc;
+import java.io.IOException;
+
+/**
+ * Sends raw bytes to the operating system's default printer (or printer.name),
+ * for thermal printers installed with a driver rather than exposed as a device file.
+ */
+public class SystemPrintSink implements PrintSink {
+
+    @Override
+    public void write(String jobName, byte[] data) throws IOException {
+        PrintService service = findService();
+        if (service == null) {
+            throw new IOException("No printer available");
+        }
+        Doc doc = new SimpleDoc(data, DocFlavor.BYTE_ARRAY.AUTOSENSE, null);
+        DocPrintJob job = service.createPrintJob();
+        try {
+            job.print(doc, null);
+        } catch (PrintException e) {
+            throw new IOException("Printing failed on " + service.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static PrintService findService() {
+        String name = AppConfig.getString("printer.name", "");
+        if (!name.isEmpty()) {
+            for (PrintService s : PrintServiceLookup.lookupPrintServices(null, null)) {
+                if (s.getName().equalsIgnoreCase(name)) {
+                    return s;
+                }
+            }
+        }
+        return PrintServiceLookup.lookupDefaultPrintService();
+    }
+
+    @Override
+    public String toString() {
+        return "system printer";
+    }
+}
@@ -1,4 +1,55 @@
 package com.vastra.util;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Parsing and range checks shared by forms and imports. Parse methods return null for a
+ * blank value and throw IllegalArgumentException with a readable message for a bad one.
+ */
 public class ValidationUtil {
+
+    public static final int MAX_GST_PERCENT = 28;
+
+    /**
+     * Rupee amount such as "1299", "1,299.50", "₹ 99" or "Rs. 99" in paise.
+     */
+    public static Integer parseCents(String value, String field) {
+        if (isBlank(value)) return null;
+        String s = value.trim().replace(",", "").replace("₹", "");
+        if (s.regionMatches(true, 0, "Rs", 0, 2)) {
+            s = s.substring(s.startsWith(".", 2) ? 3 : 2);
+        }
+        try {
+            BigDecimal cents = new BigDecimal(s.trim()).movePointRight(2);
+            if (cents.signum() < 0) {
+                throw new IllegalArgumentException(field + " cannot be negative: " + value);
+            }
+            return cents.setScale(0, RoundingMode.HALF_UP).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    /**
+     * Whole number; "12.0" (as spreadsheets often write it) is accepted, "12.5" is not.
+     */
+    public static Integer parseInt(String value, String field) {
+        if (isBlank(value)) return null;
+        String s = value.trim().replace(",", "");
+        if (s.endsWith("%")) s = s.substring(0, s.length() - 1).trim();
+        try {
+            return new BigDecimal(s).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    public static boolean isValidGst(int percent) {
+        return percent >= 0 && percent <= MAX_GST_PERCENT;
+    }
+
+    public static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 }
@@ -0,0 +1,52 @@
+package com.vastra;
+
+import com.vastra.util.DBUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Runs each test against a fresh database in a temp file. Properties DBUtil reads at
+ * init, such as pool settings, must be set before calling super.setUp().
+ */
+public abstract class DatabaseTestCase extends TestCase {
+
+    private File dbFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        dbFile = File.createTempFile("vastra-test", ".db");
+        dbFile.delete();
+        DBUtil.shutdown();
+        System.setProperty("vastra.db.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+        if (initDatabase()) {
+            DBUtil.init();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DBUtil.shutdown();
+        System.clearProperty("vastra.db.url");
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+        dbFile.delete();
+    }
+
+    /** Whether setUp runs DBUtil.init(); false for tests that prepare the file first */
+    protected boolean initDatabase() {
+        return true;
+    }
+
+    protected static int queryInt(String sql) throws SQLException {
+        try (Connection c = DBUtil.getConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.vastra.bench;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.vastra.service.BarcodeImageService;
+import com.vastra.util.BarcodeUtil;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering Code 128 label images, as done per product when printing barcode labels.
+ *
+ * awtRoundTrip is the old path (full BitMatrix, BufferedImage, SwingFXUtils) for
+ * comparison; generateBarcodeImage writes pixels directly; cachedImage is a repeat
+ * label from BarcodeImageService; labelSheet renders a batch of sheetSize uncached
+ * labels on the service's fork-join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// Software pipeline: headless machines have no OpenGL for prism
+@Fork(value = 1, jvmArgsAppend = "-Dprism.order=sw")
+public class BarcodeImageBenchmark {
+
+    @Param("1000")
+    public int sheetSize;
+
+    private int next;
+    private BarcodeImageService service;
+    private List<String> sheet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new BarcodeImageService(sheetSize, Runtime.getRuntime().availableProcessors());
+        sheet = new ArrayList<>(sheetSize);
+        for (int i = 0; i < sheetSize; i++) {
+            sheet.add(BenchmarkData.barcode(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.getPool().shutdown();
+    }
+
+    @Benchmark
+    public Image awtRoundTrip() throws WriterException {
+        next = (next + 1) % 10_000;
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.MARGIN, 1);
+        BitMatrix matrix = new MultiFormatWriter()
+                .encode(BenchmarkData.barcode(next), BarcodeFormat.CODE_128, 300, 80, hints);
+        return SwingFXUtils.toFXImage(MatrixToImageWriter.toBufferedImage(matrix), null);
+    }
+
+    @Benchmark
+    public Image generateBarcodeImage() {
+        next = (next + 1) % 10_000;
+        return BarcodeUtil.generateBarcodeImage(BenchmarkData.barcode(next), 300, 80);
+    }
+
+    @Benchmark
+    public Image cachedImage() {
+        next = (next + 1) % 100;
+        return service.getImage(sheet.get(next), 300, 80);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Image> labelSheet() {
+        service.clear();
+        return service.renderAll(sheet, 300, 80);
+    }
+}
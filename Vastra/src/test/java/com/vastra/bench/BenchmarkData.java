@@ -0,0 +1,150 @@
+package com.vastra.bench;
+
+import com.vastra.util.DBUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Builds throwaway SQLite databases of a given size for benchmarks.
+ * Point DBUtil at the file with use(), then fill it with the add* methods.
+ */
+public class BenchmarkData {
+
+    private static final String[] NAMES = {"Shirt", "Kurta", "Saree", "Jeans", "T-Shirt", "Lehenga",
+            "Dupatta", "Jacket", "Trousers", "Salwar", "Sherwani", "Skirt", "Blazer", "Shorts", "Top"};
+    private static final String[] VARIANTS = {"S", "M", "L", "XL", "XXL", "Red", "Blue", "Black", "Cotton", "Silk"};
+    private static final String[] BRANDS = {"Vastra", "Raymond", "FabIndia", "Biba", "Allen Solly", "Manyavar"};
+    private static final String[] CATEGORIES = {"Men", "Women", "Kids", "Ethnic", "Western"};
+    private static final String[] PAYMENT_MODES = {"CASH", "CARD", "UPI", "OTHER"};
+    private static final int[] GST_SLABS = {0, 5, 12, 18, 28};
+    private static final String[] FIRST_NAMES = {"Priya", "Rahul", "Anita", "Vikram", "Meena", "Arjun", "Kavya",
+            "Suresh", "Lakshmi", "Rohan", "Deepa", "Imran", "Neha", "Karthik", "Pooja", "Aditya"};
+    private static final String[] SURNAMES = {"Sharma", "Verma", "Iyer", "Reddy", "Khan", "Patel", "Nair",
+            "Gupta", "Singh", "Rao", "Das", "Menon", "Joshi", "Kulkarni"};
+
+    /**
+     * Create a fresh database file in the temp directory, point DBUtil at it and initialise the schema.
+     */
+    public static File use(String name) throws Exception {
+        File file = File.createTempFile("vastra-bench-" + name, ".db");
+        file.delete();
+        file.deleteOnExit();
+        new File(file.getPath() + "-wal").deleteOnExit();
+        new File(file.getPath() + "-shm").deleteOnExit();
+        DBUtil.shutdown();
+        System.setProperty("vastra.db.url", "jdbc:sqlite:" + file.getAbsolutePath());
+        DBUtil.init();
+        return file;
+    }
+
+    /**
+     * Insert products with barcodes BENCH0000000..n-1 and SKUs SKU-0..n-1.
+     */
+    public static void addProducts(int count, long seed) throws Exception {
+        Random random = new Random(seed);
+        String sql = """
+            INSERT INTO products(name, variant, category, brand, barcode, sku, mrp_cents,
+                                 sell_price_cents, gst_percent, stock, reorder_threshold, is_active, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 5, 1, datetime('now'))
+        """;
+        try (Connection c = DBUtil.getWriteConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int i = 0; i < count; i++) {
+                    int price = (random.nextInt(5000) + 100) * 100;
+                    ps.setString(1, NAMES[random.nextInt(NAMES.length)] + " " + i);
+                    ps.setString(2, VARIANTS[random.nextInt(VARIANTS.length)]);
+                    ps.setString(3, CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                    ps.setString(4, BRANDS[random.nextInt(BRANDS.length)]);
+                    ps.setString(5, barcode(i));
+                    ps.setString(6, "SKU-" + i);
+                    ps.setInt(7, price + price / 5);
+                    ps.setInt(8, price);
+                    ps.setInt(9, GST_SLABS[random.nextInt(GST_SLABS.length)]);
+                    ps.setInt(10, 1_000_000);
+                    ps.addBatch();
+                    if (i % 10_000 == 9_999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+            c.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Insert customers with phone numbers customerPhone(0..n-1).
+     */
+    public static void addCustomers(int count, long seed) throws Exception {
+        Random random = new Random(seed);
+        String sql = "INSERT INTO customers(name, phone, points, created_at) VALUES (?, ?, ?, datetime('now'))";
+        try (Connection c = DBUtil.getWriteConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int i = 0; i < count; i++) {
+                    ps.setString(1, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                            + SURNAMES[random.nextInt(SURNAMES.length)]);
+                    ps.setString(2, customerPhone(i));
+                    ps.setInt(3, random.nextInt(500));
+                    ps.addBatch();
+                    if (i % 10_000 == 9_999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+            c.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Insert sale header rows spread evenly over the given number of days ending today.
+     */
+    public static void addSales(int count, int days, long seed) throws Exception {
+        Random random = new Random(seed);
+        LocalDate start = LocalDate.now().minusDays(days - 1L);
+        String sql = """
+            INSERT INTO sales(invoice_number, ts, subtotal_cents, tax_cents, discount_cents,
+                              total_cents, payment_mode, status, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, 'COMPLETED', datetime('now'))
+        """;
+        try (Connection c = DBUtil.getWriteConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int i = 0; i < count; i++) {
+                    LocalDate day = start.plusDays((long) i * days / count);
+                    int seconds = random.nextInt(12 * 3600) + 9 * 3600;
+                    String ts = String.format("%sT%02d:%02d:%02d.%03d", day,
+                            seconds / 3600, seconds / 60 % 60, seconds % 60, i % 1000);
+                    int subtotal = (random.nextInt(20000) + 100) * 100;
+                    int tax = subtotal * 12 / 112;
+                    int discount = random.nextInt(10) == 0 ? subtotal / 10 : 0;
+                    ps.setString(1, "BENCH-" + seed + "-" + i);
+                    ps.setString(2, ts);
+                    ps.setInt(3, subtotal);
+                    ps.setInt(4, tax);
+                    ps.setInt(5, discount);
+                    ps.setInt(6, subtotal - discount);
+                    ps.setString(7, PAYMENT_MODES[random.nextInt(PAYMENT_MODES.length)]);
+                    ps.addBatch();
+                    if (i % 10_000 == 9_999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+            c.setAutoCommit(true);
+        }
+    }
+
+    /** Distinct 10 digit mobile numbers starting with 9, spread over the whole range */
+    public static String customerPhone(int i) {
+        return Long.toString(9_000_000_000L + i * 7919L % 1_000_000_000L);
+    }
+
+    public static String barcode(int i) {
+        return String.format("BENCH%08d", i);
+    }
+}
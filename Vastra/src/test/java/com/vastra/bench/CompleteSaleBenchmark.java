@@ -0,0 +1,55 @@
+package com.vastra.bench;
+
+import com.vastra.dao.ProductDAO;
+import com.vastra.dao.SalesDAO;
+import com.vastra.model.CartItem;
+import com.vastra.model.Product;
+import com.vastra.util.DBUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SalesDAO.completeSale for carts of 1, 10 and 100 lines, each line a different product.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompleteSaleBenchmark {
+
+    @Param("10000")
+    public int products;
+
+    @Param({"1", "10", "100"})
+    public int lines;
+
+    private List<Product> catalogue;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.use("sale");
+        BenchmarkData.addProducts(products, 42);
+        catalogue = ProductDAO.getAllProducts();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DBUtil.shutdown();
+    }
+
+    @Benchmark
+    public String completeSale() throws Exception {
+        List<CartItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            next = (next + 1) % catalogue.size();
+            items.add(new CartItem(catalogue.get(next), 1 + i % 3));
+        }
+        return SalesDAO.completeSale(items, null, 0, "CASH");
+    }
+}
@@ -0,0 +1,75 @@
+package com.vastra.bench;
+
+import com.vastra.dao.CustomerDAO;
+import com.vastra.model.Customer;
+import com.vastra.service.CustomerDirectory;
+import com.vastra.util.DBUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer lookup while the cashier types, against a generated customer list.
+ *
+ * findByPhone is the database lookup of a full number; phonePrefix and namePrefix are
+ * the top 8 suggestions from CustomerDirectory for a partly typed number or name.
+ * Customer count: -Djmh.args="CustomerLookup -p customers=100000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CustomerLookupBenchmark {
+
+    private static final String[] NAMES = {"pri", "sharma", "ra", "vikram re", "k", "meena iyer", "das"};
+
+    @Param("500000")
+    public int customers;
+
+    private int name;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.use("customers");
+        BenchmarkData.addCustomers(customers, 42);
+        CustomerDirectory directory = CustomerDirectory.getInstance();
+        long start = System.nanoTime();
+        directory.load();
+        System.out.printf("%nLoaded %d customers in %d ms, %.1f MB (%d bytes each)%n", directory.size(),
+                (System.nanoTime() - start) / 1_000_000, directory.estimateMemoryBytes() / 1e6,
+                directory.estimateMemoryBytes() / Math.max(1, directory.size()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CustomerDirectory.shutdownInstance();
+        DBUtil.shutdown();
+    }
+
+    @Benchmark
+    public Customer findByPhone() throws Exception {
+        return CustomerDAO.findByPhone(randomPhone());
+    }
+
+    @Benchmark
+    public List<CustomerDirectory.Match> phonePrefix() {
+        // The first 3 to 7 digits of a customer's number
+        String phone = randomPhone();
+        return CustomerDirectory.getInstance().suggest(
+                phone.substring(0, 3 + ThreadLocalRandom.current().nextInt(5)), 8);
+    }
+
+    @Benchmark
+    public List<CustomerDirectory.Match> namePrefix() {
+        name = (name + 1) % NAMES.length;
+        return CustomerDirectory.getInstance().suggest(NAMES[name], 8);
+    }
+
+    private String randomPhone() {
+        return BenchmarkData.customerPhone(ThreadLocalRandom.current().nextInt(customers));
+    }
+}
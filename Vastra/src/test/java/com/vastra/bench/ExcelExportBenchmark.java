@@ -0,0 +1,57 @@
+package com.vastra.bench;
+
+import com.vastra.util.DBUtil;
+import com.vastra.util.ExcelReportUtil;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDate;
+
+/**
+ * Exports a daily sales report with a large number of rows and reports time and peak heap.
+ *
+ * Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.vastra.bench.ExcelExportBenchmark -Dexec.args="1000000"
+ */
+public class ExcelExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        System.out.println("Generating " + rows + " sales for one day...");
+        BenchmarkData.use("excel");
+        long t0 = System.nanoTime();
+        BenchmarkData.addSales(rows, 1, 42);
+        System.out.printf("Generated in %.1f s%n", (System.nanoTime() - t0) / 1e9);
+
+        File out = File.createTempFile("vastra-daily", ".xlsx");
+        out.deleteOnExit();
+
+        System.gc();
+        resetPeakHeap();
+        long start = System.nanoTime();
+        ExcelReportUtil.generateDailySalesReport(LocalDate.now().toString(), out.getAbsolutePath());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Exported %d rows in %.1f s (%.0f rows/s), file %.1f MB, peak heap %.1f MB%n",
+                rows, seconds, rows / seconds, out.length() / 1048576.0, peakHeapBytes() / 1048576.0);
+        DBUtil.shutdown();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
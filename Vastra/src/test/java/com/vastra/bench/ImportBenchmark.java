@@ -0,0 +1,66 @@
+package com.vastra.bench;
+
+import com.vastra.service.ProductImporter;
+import com.vastra.util.DBUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of a CSV file into an empty database (every row a new product), and the
+ * same file again over the imported products (every row an update).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ImportBenchmark {
+
+    @Param("100000")
+    public int rows;
+
+    @Param({"insert", "update"})
+    public String mode;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws Exception {
+        csv = Files.createTempFile("vastra-bench-import", ".csv");
+        try (BufferedWriter w = Files.newBufferedWriter(csv)) {
+            w.write("Name,Size,Category,Brand,SKU,MRP,Selling Price,GST %,HSN,Qty\n");
+            for (int i = 0; i < rows; i++) {
+                w.write("\"Kurta, cotton " + i + "\",M,Ethnic,Vastra,SKU-" + i + ",\"1,299.00\",999.50,12,6211," + i % 50 + "\n");
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        BenchmarkData.use("import");
+        if (mode.equals("update")) {
+            new ProductImporter(null).importFile(csv);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        DBUtil.shutdown();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public long importCsv() throws Exception {
+        ProductImporter.Result result = new ProductImporter(null).importFile(csv);
+        return result.getInserted() + result.getUpdated();
+    }
+}
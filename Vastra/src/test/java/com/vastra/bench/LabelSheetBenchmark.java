@@ -0,0 +1,69 @@
+package com.vastra.bench;
+
+import com.vastra.model.Product;
+import com.vastra.util.LabelLayout;
+import com.vastra.util.LabelSheet;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Label sheet rendering at 300 dpi on 65-up A4: one page, and every page of a products
+ * long run in print order, rendered ahead of the "printer" on a fork-join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LabelSheetBenchmark {
+
+    @Param("5000")
+    public int products;
+
+    private ForkJoinPool pool;
+    private LabelSheet sheet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Product> list = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product p = new Product();
+            p.setId("P" + i);
+            p.setName("Cotton Kurta " + i);
+            p.setVariant("Size M");
+            p.setBrand("Vastra");
+            p.setSku(BenchmarkData.barcode(i));
+            p.setSellPriceCents(99900 + i);
+            list.add(p);
+        }
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        sheet = new LabelSheet(list, LabelLayout.A4_65, 300, pool, 2 * pool.getParallelism());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage renderPage() throws Exception {
+        return sheet.renderPage(0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 1)
+    public int renderSheet() throws Exception {
+        int pixels = 0;
+        for (int i = 0; i < sheet.getPageCount(); i++) {
+            pixels += sheet.page(i).getWidth();
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,125 @@
+package com.vastra.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting a sale with three line items into sales and sale_items that already hold a
+ * history of sales, with the old random UUID text keys and with integer keys. Same
+ * columns and indexes otherwise. The database size per sale is printed at the end of
+ * each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimaryKeyBenchmark {
+
+    @Param({"uuid", "integer"})
+    public String keys;
+
+    @Param("100000")
+    public int sales;
+
+    private File file;
+    private Connection conn;
+    private PreparedStatement insertSale;
+    private PreparedStatement insertItem;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = File.createTempFile("vastra-bench-keys", ".db");
+        file.delete();
+        conn = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        boolean uuid = keys.equals("uuid");
+        String key = uuid ? "TEXT PRIMARY KEY" : "INTEGER PRIMARY KEY";
+        String ref = uuid ? "TEXT" : "INTEGER";
+        try (Statement s = conn.createStatement()) {
+            s.execute("PRAGMA journal_mode=WAL");
+            s.execute("PRAGMA synchronous=NORMAL");
+            s.execute("CREATE TABLE sales(id " + key + ", invoice_number TEXT UNIQUE, customer_id " + ref + ", " +
+                    "ts TEXT NOT NULL, subtotal_cents INTEGER, tax_cents INTEGER, total_cents INTEGER, payment_mode TEXT)");
+            s.execute("CREATE TABLE sale_items(id " + key + ", sale_id " + ref + " NOT NULL, product_id " + ref + " NOT NULL, " +
+                    "product_name TEXT, qty INTEGER, unit_price_cents INTEGER, line_total_cents INTEGER)");
+            s.execute("CREATE INDEX idx_sales_ts ON sales(ts)");
+            s.execute("CREATE INDEX idx_sales_customer ON sales(customer_id)");
+            s.execute("CREATE INDEX idx_sale_items_sale ON sale_items(sale_id)");
+            s.execute("CREATE INDEX idx_sale_items_product ON sale_items(product_id)");
+        }
+        insertSale = conn.prepareStatement(uuid
+                ? "INSERT INTO sales(id, invoice_number, customer_id, ts, subtotal_cents, tax_cents, total_cents, payment_mode) " +
+                  "VALUES (?, ?, ?, datetime('now'), 10000, 1200, 10000, 'CASH') RETURNING id"
+                : "INSERT INTO sales(invoice_number, customer_id, ts, subtotal_cents, tax_cents, total_cents, payment_mode) " +
+                  "VALUES (?, ?, datetime('now'), 10000, 1200, 10000, 'CASH') RETURNING id");
+        insertItem = conn.prepareStatement(uuid
+                ? "INSERT INTO sale_items(id, sale_id, product_id, product_name, qty, unit_price_cents, line_total_cents) " +
+                  "VALUES (?, ?, ?, 'Cotton Kurta', 1, 3300, 3300)"
+                : "INSERT INTO sale_items(sale_id, product_id, product_name, qty, unit_price_cents, line_total_cents) " +
+                  "VALUES (?, ?, 'Cotton Kurta', 1, 3300, 3300)");
+
+        conn.setAutoCommit(false);
+        for (int i = 0; i < sales; i++) {
+            insert();
+            if (i % 10_000 == 9_999) conn.commit();
+        }
+        conn.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        long rows;
+        try (Statement s = conn.createStatement();
+             ResultSet rs = s.executeQuery("SELECT count(*) FROM sales")) {
+            rows = rs.next() ? rs.getLong(1) : 1;
+        }
+        conn.setAutoCommit(true);
+        try (Statement s = conn.createStatement()) {
+            s.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+        System.out.printf("%n%s keys: %,d sales, %,d bytes, %d bytes per sale%n",
+                keys, rows, file.length(), file.length() / rows);
+        conn.close();
+        file.delete();
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+    }
+
+    @Benchmark
+    public void insertSale() throws Exception {
+        insert();
+        conn.commit();
+    }
+
+    private void insert() throws Exception {
+        long n = next++;
+        boolean uuid = keys.equals("uuid");
+        String customer = Long.toString(n % 5000);
+        int p = 1;
+        if (uuid) insertSale.setString(p++, UUID.randomUUID().toString());
+        insertSale.setString(p++, "INV-" + n);
+        insertSale.setString(p, n % 3 == 0 ? customer : null);
+        String saleId;
+        try (ResultSet rs = insertSale.executeQuery()) {
+            rs.next();
+            saleId = rs.getString(1);
+        }
+        for (int i = 0; i < 3; i++) {
+            p = 1;
+            if (uuid) insertItem.setString(p++, UUID.randomUUID().toString());
+            insertItem.setString(p++, saleId);
+            insertItem.setString(p, Long.toString((n * 7 + i) % 10_000));
+            insertItem.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.vastra.bench;
+
+import com.vastra.dao.ProductDAO;
+import com.vastra.model.Product;
+import com.vastra.service.ProductCatalogCache;
+import com.vastra.util.DBUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Barcode lookup and product search against a generated catalogue.
+ * Catalogue size: -Djmh.args="ProductLookup -p products=50000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductLookupBenchmark {
+
+    private static final String[] QUERIES = {"sa", "kur", "saree", "jeans 12", "kurta blue", "raymond", "sku-4"};
+
+    @Param("10000")
+    public int products;
+
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.use("lookup");
+        BenchmarkData.addProducts(products, 42);
+        ProductCatalogCache.getInstance().load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DBUtil.shutdown();
+    }
+
+    @Benchmark
+    public Product findByBarcode() throws Exception {
+        return ProductDAO.findByBarcode(randomBarcode());
+    }
+
+    @Benchmark
+    public Product catalogCacheLookup() throws Exception {
+        return ProductCatalogCache.getInstance().lookup(randomBarcode());
+    }
+
+    @Benchmark
+    public List<Product> searchByName() throws Exception {
+        query = (query + 1) % QUERIES.length;
+        return ProductDAO.searchByName(QUERIES[query]);
+    }
+
+    private String randomBarcode() {
+        return BenchmarkData.barcode(ThreadLocalRandom.current().nextInt(products));
+    }
+}
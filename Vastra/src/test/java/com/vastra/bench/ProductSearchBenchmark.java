@@ -0,0 +1,66 @@
+package com.vastra.bench;
+
+import com.vastra.dao.ProductDAO;
+import com.vastra.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Compares the old LIKE '%term%' product search with the FTS5 search on a large catalogue.
+ *
+ * Run with:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.vastra.bench.ProductSearchBenchmark -Dexec.args="100000"
+ */
+public class ProductSearchBenchmark {
+
+    private static final String[] QUERIES = {"sa", "kur", "saree", "jeans 12", "kurta blue", "raymond", "sku-4"};
+    private static final int ROUNDS = 50;
+
+    private static final String LIKE_SQL =
+            "SELECT * FROM products WHERE name LIKE ? AND is_active = 1 ORDER BY name LIMIT 20";
+
+    public static void main(String[] args) throws Exception {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.println("Generating " + products + " products...");
+        BenchmarkData.use("search");
+        BenchmarkData.addProducts(products, 42);
+
+        // Warm up both paths
+        for (String q : QUERIES) {
+            like(q);
+            ProductDAO.searchByName(q);
+        }
+
+        System.out.printf("%-12s %12s %12s %8s%n", "query", "LIKE (ms)", "FTS5 (ms)", "hits");
+        for (String q : QUERIES) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) like(q);
+            double likeMs = (System.nanoTime() - t0) / 1e6 / ROUNDS;
+
+            int hits = 0;
+            t0 = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) hits = ProductDAO.searchByName(q).size();
+            double ftsMs = (System.nanoTime() - t0) / 1e6 / ROUNDS;
+
+            System.out.printf("%-12s %12.3f %12.3f %8d%n", q, likeMs, ftsMs, hits);
+        }
+
+        DBUtil.shutdown();
+    }
+
+    private static int like(String term) throws Exception {
+        int n = 0;
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement(LIKE_SQL)) {
+            ps.setString(1, "%" + term + "%");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) n++;
+            }
+        }
+        return n;
+    }
+}
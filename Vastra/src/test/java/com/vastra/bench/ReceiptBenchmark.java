@@ -0,0 +1,110 @@
+package com.vastra.bench;
+
+import com.vastra.model.CartItem;
+import com.vastra.model.Customer;
+import com.vastra.model.Product;
+import com.vastra.service.CartTotals;
+import com.vastra.service.GstCalculator;
+import com.vastra.service.PrintSpooler;
+import com.vastra.util.PrintSink;
+import com.vastra.util.ReceiptRenderer;
+import com.vastra.util.SpoolDirectoryPrintSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Receipts per second: ESC/POS rendering alone, rendering plus writing to a spool
+ * directory, and a full trip through the PrintSpooler queue to the same sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptBenchmark {
+
+    private static final int[] GST_SLABS = {0, 5, 12, 18, 28};
+
+    @Param({"5", "30"})
+    public int lines;
+
+    @Param({"32", "48"})
+    public int columns;
+
+    private ReceiptRenderer renderer;
+    private List<CartItem> items;
+    private Customer customer;
+    private final CartTotals totals = new CartTotals();
+    private final LocalDateTime time = LocalDateTime.now();
+    private Path spoolDir;
+    private PrintSink sink;
+    private PrintSpooler spooler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Map<String, String> settings = new HashMap<>();
+        settings.put("store_name", "Vastra Store");
+        settings.put("store_address", "12 MG Road, Bengaluru 560001");
+        settings.put("store_phone", "+91-9876543210");
+        settings.put("store_gstin", "29ABCDE1234F1Z5");
+        settings.put("receipt_footer", "Thank you for shopping with us!");
+        renderer = new ReceiptRenderer(settings, columns);
+
+        Random random = new Random(42);
+        items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            Product p = new Product();
+            p.setId("P" + i);
+            p.setName("Cotton Kurta " + i);
+            p.setVariant("Size M");
+            p.setSellPriceCents((random.nextInt(5000) + 100) * 100);
+            p.setGstPercent(GST_SLABS[random.nextInt(GST_SLABS.length)]);
+            items.add(new CartItem(p, random.nextInt(3) + 1));
+        }
+        customer = new Customer();
+        customer.setName("Asha Kumar");
+        customer.setPhone("9876543210");
+        GstCalculator.compute(items, 5000, totals);
+
+        spoolDir = Files.createTempDirectory("vastra-receipts");
+        sink = new SpoolDirectoryPrintSink(spoolDir);
+        spooler = new PrintSpooler(sink, 0, 0, 64);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        spooler.shutdown();
+        try (Stream<Path> files = Files.walk(spoolDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public byte[] render() {
+        return renderer.render("INV-1001", time, items, customer, totals, "CASH");
+    }
+
+    @Benchmark
+    public void renderToSpoolFile() throws IOException {
+        sink.write("INV-1001", render());
+    }
+
+    /** Submit and wait, so each op is one receipt through the queue and thread hand-off */
+    @Benchmark
+    public void spooler() {
+        spooler.submit("INV-1001", this::render, null).join();
+    }
+}
@@ -0,0 +1,70 @@
+package com.vastra.bench;
+
+import com.vastra.dao.SalesDAO;
+import com.vastra.util.DBUtil;
+import com.vastra.util.ExcelReportUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three Excel exports on generated data: one day's sales, a month of daily
+ * totals and the full inventory. See ExcelExportBenchmark for peak heap at a million rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ReportExportBenchmark {
+
+    @Param("10000")
+    public int products;
+
+    /** Sales on the exported day; the same number again is spread over the previous 30 days */
+    @Param("20000")
+    public int sales;
+
+    private File out;
+    private String today;
+    private String monthStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkData.use("report");
+        BenchmarkData.addProducts(products, 42);
+        BenchmarkData.addSales(sales, 1, 42);
+        BenchmarkData.addSales(sales, 30, 43);
+        SalesDAO.rebuildDailySummary();
+        out = File.createTempFile("vastra-report", ".xlsx");
+        today = LocalDate.now().toString();
+        monthStart = LocalDate.now().minusDays(29).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        out.delete();
+        DBUtil.shutdown();
+    }
+
+    @Benchmark
+    public long dailySalesReport() throws Exception {
+        ExcelReportUtil.generateDailySalesReport(today, out.getAbsolutePath());
+        return out.length();
+    }
+
+    @Benchmark
+    public long monthlyReport() throws Exception {
+        ExcelReportUtil.generateMonthlyReport(monthStart, today, out.getAbsolutePath());
+        return out.length();
+    }
+
+    @Benchmark
+    public long inventoryReport() throws Exception {
+        ExcelReportUtil.generateInventoryReport(out.getAbsolutePath());
+        return out.length();
+    }
+}
@@ -0,0 +1,72 @@
+package com.vastra.bench;
+
+import com.vastra.model.CartItem;
+import com.vastra.model.Product;
+import com.vastra.service.CartTotals;
+import com.vastra.service.GstCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-line and whole-cart GST calculation, as done on every cart change and on checkout.
+ * cartTotals sums the per-line double getters; engineCartTotals uses GstCalculator directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaxBenchmark {
+
+    private static final int[] GST_SLABS = {0, 5, 12, 18, 28};
+
+    @Param("50")
+    public int cartSize;
+
+    private List<CartItem> cart;
+    private CartItem line;
+    private final CartTotals totals = new CartTotals();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        cart = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            Product p = new Product();
+            p.setId("P" + i);
+            p.setName("Product " + i);
+            p.setSellPriceCents((random.nextInt(5000) + 100) * 100);
+            p.setGstPercent(GST_SLABS[random.nextInt(GST_SLABS.length)]);
+            cart.add(new CartItem(p, random.nextInt(3) + 1));
+        }
+        line = cart.get(0);
+    }
+
+    @Benchmark
+    public double lineTax() {
+        return line.getTaxAmount();
+    }
+
+    /** Whole-cart totals and GST breakup through the integer engine, as checkout does */
+    @Benchmark
+    public long engineCartTotals() {
+        GstCalculator.compute(cart, 0, totals);
+        return totals.getTotalCents();
+    }
+
+    @Benchmark
+    public double cartTotals() {
+        double subtotal = 0;
+        double tax = 0;
+        for (CartItem item : cart) {
+            subtotal += item.getLineTotal();
+            tax += item.getTaxAmount();
+        }
+        return subtotal + tax;
+    }
+}
@@ -0,0 +1,88 @@
+package com.vastra.dao;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.model.Product;
+import com.vastra.service.ProductCatalogCache;
+import com.vastra.util.DBUtil;
+import com.vastra.util.LabelSheet;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The low stock query must read idx_products_low_stock, not scan every product, and
+ * search must find active products however many deactivated ones also match. Scanned
+ * codes resolve by barcode or SKU only.
+ */
+public class ProductDAOTest extends DatabaseTestCase {
+
+    public void testLowStockQueryUsesPartialIndex() throws Exception {
+        String plan;
+        try (Connection c = DBUtil.getConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("EXPLAIN QUERY PLAN " + ProductDAO.LOW_STOCK_SQL)) {
+            StringBuilder sb = new StringBuilder();
+            while (rs.next()) {
+                sb.append(rs.getString("detail")).append('\n');
+            }
+            plan = sb.toString();
+        }
+        assertTrue("Expected idx_products_low_stock in plan:\n" + plan, plan.contains("idx_products_low_stock"));
+        assertFalse("Unexpected sort:\n" + plan, plan.contains("TEMP B-TREE"));
+
+        ProductDAO.insertProduct("Dupatta", "", 50000, 45000, 5, 3, "Women", "", "DUP-1");
+        ProductDAO.insertProduct("Shirt", "M", 90000, 80000, 12, 40, "Men", "", "SHIRT-M");
+        assertEquals(1, ProductDAO.getLowStockProducts().size());
+        assertEquals("Dupatta", ProductDAO.getLowStockProducts().get(0).getName());
+    }
+
+    public void testSearchSkipsDeactivatedMatches() throws Exception {
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            for (int i = 0; i < 250; i++) {
+                ProductDAO.deactivateProduct(ProductDAO.insertProduct(
+                        "Saree " + i, "", 250000, 200000, 12, 5, "Women", "", "OLD-" + i));
+            }
+            uow.commit();
+        }
+        String active = ProductDAO.insertProduct("Silk Saree", "Red", 450000, 400000, 12, 5, "Women", "", "SILK-1");
+        String shirt = ProductDAO.insertProduct("Shirt", "M", 90000, 80000, 12, 5, "Men", "", "SHIRT-M");
+
+        List<Product> found = ProductDAO.search("saree", 20);
+        assertEquals(1, found.size());
+        assertEquals(active, found.get(0).getId());
+
+        // Reactivated and renamed products are indexed again, deactivated ones are not
+        ProductDAO.deactivateProduct(active);
+        assertTrue(ProductDAO.search("saree", 20).isEmpty());
+        try (Connection c = DBUtil.getWriteConnection();
+             Statement s = c.createStatement()) {
+            s.executeUpdate("UPDATE products SET is_active = 1 WHERE id = " + active);
+            s.executeUpdate("UPDATE products SET name = 'Linen Shirt' WHERE id = " + shirt);
+        }
+        assertEquals(active, ProductDAO.search("silk sar", 20).get(0).getId());
+        assertEquals(shirt, ProductDAO.search("linen", 20).get(0).getId());
+        assertTrue(ProductDAO.search("saree 12", 20).isEmpty());
+    }
+
+    public void testScannedCodeNeverMatchesId() throws Exception {
+        String id = ProductDAO.insertProduct("Shirt", "M", 90000, 80000, 12, 5, "Men", "", "");
+        Product shirt = ProductDAO.findById(id);
+        assertEquals("1", id);
+        assertNull(ProductDAO.findByCode(id));
+        assertNull(new ProductCatalogCache().lookup(id));
+        assertEquals(id, ProductDAO.findByCode(shirt.getBarcode()).getId());
+    }
+
+    public void testLabelCodeScansBackToProduct() throws Exception {
+        // No SKU: the label carries the allocated barcode
+        Product shirt = ProductDAO.findById(ProductDAO.insertProduct("Shirt", "M", 90000, 80000, 12, 5, "Men", "", ""));
+        Product kurta = ProductDAO.findById(ProductDAO.insertProduct("Kurta", "L", 150000, 120000, 12, 5, "Men", "", "KURTA-L"));
+        for (Product p : List.of(shirt, kurta)) {
+            assertFalse(LabelSheet.labelCode(p).equals(p.getId()));
+            assertEquals(p.getId(), ProductDAO.findByCode(LabelSheet.labelCode(p)).getId());
+        }
+        assertEquals("KURTA-L", LabelSheet.labelCode(kurta));
+    }
+}
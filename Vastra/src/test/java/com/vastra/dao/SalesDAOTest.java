@@ -0,0 +1,123 @@
+package com.vastra.dao;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.model.CartItem;
+import com.vastra.model.Product;
+import com.vastra.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Date-filtered sales reports must be served by idx_sales_date or the daily rollup,
+ * never by a full scan of the sales table.
+ */
+public class SalesDAOTest extends DatabaseTestCase {
+
+    @Override
+    protected boolean initDatabase() {
+        return false;
+    }
+
+    public void testDailySalesQueryUsesDateIndex() throws Exception {
+        DBUtil.init();
+        String plan = explain(SalesDAO.DAILY_SALES_SQL, "2024-01-01");
+        assertTrue("Expected idx_sales_date in plan:\n" + plan, plan.contains("idx_sales_date"));
+        assertFalse("Unexpected full scan of sales:\n" + plan, plan.contains("SCAN s"));
+    }
+
+    public void testSalesInRangeQueryReadsDailySummary() throws Exception {
+        DBUtil.init();
+        String plan = explain(SalesDAO.SALES_IN_RANGE_SQL, "2024-01-01", "2024-01-31");
+        assertTrue("Expected a primary key range search of the rollup:\n" + plan,
+                plan.contains("SEARCH daily_sales_summary USING PRIMARY KEY"));
+        assertFalse("Range report must not touch raw sales:\n" + plan, plan.contains("sales "));
+    }
+
+    public void testDailySummaryMatchesRawSales() throws Exception {
+        DBUtil.init();
+        String productId = ProductDAO.insertProduct("Saree", "", 500000, 450000, 5, 10, "Women", "", "SAREE-1");
+        Product product = ProductDAO.findById(productId);
+        for (String mode : new String[]{"CASH", "UPI", "CASH"}) {
+            List<CartItem> items = new ArrayList<>();
+            items.add(new CartItem(product, 1));
+            SalesDAO.completeSale(items, null, 10000, mode);
+        }
+
+        String today = java.time.LocalDate.now().toString();
+        List<String> rows = new ArrayList<>();
+        SalesDAO.getSalesInRange(today, today, rs -> rows.add(rs.getInt("num_sales") + ":"
+                + rs.getLong("total_revenue_cents") + ":" + rs.getLong("cash_cents") + ":" + rs.getLong("upi_cents")));
+        assertEquals(List.of("3:1320000:880000:440000"), rows);
+
+        // A rebuild from raw sales gives the same numbers
+        SalesDAO.rebuildDailySummary();
+        List<String> rebuilt = new ArrayList<>();
+        SalesDAO.getSalesInRange(today, today, rs -> rebuilt.add(rs.getInt("num_sales") + ":"
+                + rs.getLong("total_revenue_cents") + ":" + rs.getLong("cash_cents") + ":" + rs.getLong("upi_cents")));
+        assertEquals(rows, rebuilt);
+    }
+
+    public void testMigrationUpgradesExistingDatabase() throws Exception {
+        // A sales table as created by earlier versions, without sale_date
+        try (Connection c = DBUtil.getWriteConnection();
+             Statement s = c.createStatement()) {
+            s.execute("""
+                CREATE TABLE sales(
+                  id TEXT PRIMARY KEY, invoice_number TEXT UNIQUE, customer_id TEXT, cashier_name TEXT,
+                  ts TEXT NOT NULL, subtotal_cents INTEGER NOT NULL, tax_cents INTEGER NOT NULL,
+                  discount_cents INTEGER DEFAULT 0, points_redeemed INTEGER DEFAULT 0,
+                  total_cents INTEGER NOT NULL, payment_mode TEXT NOT NULL,
+                  amount_received_cents INTEGER, change_returned_cents INTEGER,
+                  status TEXT DEFAULT 'COMPLETED', notes TEXT, created_at TEXT)
+            """);
+            s.execute("INSERT INTO sales(id, ts, subtotal_cents, tax_cents, total_cents, payment_mode) " +
+                    "VALUES ('old', '2024-03-05T10:15:00', 1000, 0, 1000, 'CASH')");
+        }
+
+        DBUtil.init();
+
+        List<String> days = new ArrayList<>();
+        SalesDAO.getSalesInRange("2024-03-01", "2024-03-31", rs ->
+                days.add(rs.getString("sale_date") + ":" + rs.getInt("num_sales")));
+        assertEquals(List.of("2024-03-05:1"), days);
+        String plan = explain(SalesDAO.DAILY_SALES_SQL, "2024-03-05");
+        assertTrue("Expected idx_sales_date in plan:\n" + plan, plan.contains("idx_sales_date"));
+    }
+
+    public void testCompletedSaleAppearsInDailyReport() throws Exception {
+        DBUtil.init();
+        String productId = ProductDAO.insertProduct("Kurta", "L", 150000, 120000, 12, 10, "Men", "", "KURTA-L");
+        Product product = ProductDAO.findById(productId);
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem(product, 2));
+
+        String saleId = SalesDAO.completeSale(items, null, 0, "CASH");
+
+        String today = java.time.LocalDate.now().toString();
+        List<String> rows = new ArrayList<>();
+        SalesDAO.getDailySalesReport(today, rs ->
+                rows.add(rs.getString("id") + ":" + rs.getInt("total_cents")));
+        assertEquals(List.of(saleId + ":240000"), rows);
+    }
+
+    private static String explain(String sql, String... params) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (Connection c = DBUtil.getConnection();
+             PreparedStatement ps = c.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString("detail")).append('\n');
+                }
+            }
+        }
+        return plan.toString();
+    }
+}
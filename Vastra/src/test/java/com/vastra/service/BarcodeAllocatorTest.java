@@ -0,0 +1,56 @@
+package com.vastra.service;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.dao.ProductDAO;
+import com.vastra.util.BarcodeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BarcodeAllocatorTest extends DatabaseTestCase {
+
+    public void testCheckDigit() {
+        assertEquals(1, BarcodeUtil.ean13CheckDigit("400638133393"));
+        assertTrue(BarcodeUtil.isValidEan13("4006381333931"));
+        assertFalse(BarcodeUtil.isValidEan13("4006381333932"));
+        assertFalse(BarcodeUtil.isValidEan13("400638133393"));
+    }
+
+    public void testCodesUniqueAcrossThreadsAndRuns() throws Exception {
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        BarcodeAllocator allocator = new BarcodeAllocator("200", 7);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(threads.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    String code = allocator.next();
+                    assertTrue(code, code.startsWith("200") && BarcodeUtil.isValidEan13(code));
+                    assertTrue("Duplicate " + code, codes.add(code));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        threads.shutdown();
+        assertEquals(1000, codes.size());
+
+        // A new run continues after the last reserved block
+        String next = new BarcodeAllocator("200", 7).next();
+        assertFalse(codes.contains(next));
+        assertTrue(next.compareTo(codes.stream().max(String::compareTo).get()) > 0);
+    }
+
+    public void testStartsAboveExistingCodes() throws Exception {
+        ProductDAO.insertProduct("Kurta", "M", 1000, 1000, 5, 1, "", "", "2000000500007");
+        assertEquals(50000, ProductDAO.maxBarcodeNumber("200"));
+        assertEquals("2000000500010", new BarcodeAllocator("200", 10).next());
+    }
+}
@@ -0,0 +1,92 @@
+package com.vastra.service;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.dao.CustomerDAO;
+import com.vastra.dao.ProductDAO;
+import com.vastra.dao.SalesDAO;
+import com.vastra.model.CartItem;
+import com.vastra.model.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Phone and name prefix suggestions, and customers and points added after load() showing
+ * up without a reload.
+ */
+public class CustomerDirectoryTest extends DatabaseTestCase {
+
+    private CustomerDirectory directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        CustomerDirectory.shutdownInstance();
+        directory = CustomerDirectory.getInstance();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        CustomerDirectory.shutdownInstance();
+        super.tearDown();
+    }
+
+    public void testSuggestsByPhoneAndName() throws Exception {
+        CustomerDAO.createCustomer("Priya Sharma", "+91 98450 12345", "");
+        CustomerDAO.createCustomer("Rahul Verma", "9845067890", "");
+        CustomerDAO.createCustomer("Anita Sharma", "09900011122", "");
+        directory.load();
+        assertEquals(3, directory.size());
+
+        assertEquals(List.of("Priya Sharma", "Rahul Verma"), names(directory.suggest("98450", 10)));
+        assertEquals(List.of("Priya Sharma"), names(directory.suggest("+91 984501", 10)));
+        assertEquals(List.of("Anita Sharma"), names(directory.suggest("0990", 10)));
+        assertEquals("9900011122", directory.suggest("99", 10).get(0).getPhone());
+        assertEquals(1, directory.suggest("98", 1).size());
+
+        // Any word of the name, in name order from that word (then oldest customer first)
+        assertEquals(List.of("Priya Sharma", "Anita Sharma"), names(directory.suggest("shar", 10)));
+        assertEquals(List.of("Priya Sharma"), names(directory.suggest("priya sh", 10)));
+        assertEquals(List.of("Priya Sharma"), names(directory.suggest("sharma pri", 10)));
+        assertEquals(List.of("Rahul Verma"), names(directory.suggest("RAH", 10)));
+        assertTrue(directory.suggest("kumar", 10).isEmpty());
+    }
+
+    public void testKeptInSyncWithCustomersAndSales() throws Exception {
+        Customer priya = CustomerDAO.createCustomer("Priya Sharma", "9845012345", "");
+        directory.load();
+
+        Customer meena = CustomerDAO.createCustomer("Meena Iyer", "9845000001", "");
+        assertEquals(List.of("Meena Iyer", "Priya Sharma"), names(directory.suggest("98450", 10)));
+
+        CustomerDAO.addPoints(priya.getId(), 40);
+        CustomerDAO.redeemPoints(priya.getId(), 15);
+        assertEquals(25, directory.suggest("Priya", 1).get(0).getPoints());
+
+        // 2,500 rupees earns 25 points, 10 were redeemed
+        CustomerDAO.addPoints(meena.getId(), 10);
+        String saree = ProductDAO.insertProduct("Saree", "", 250000, 200000, 12, 10, "Women", "", "SAREE-1");
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem(ProductDAO.findById(saree), 1));
+        SalesDAO.completeSale(items, meena.getId(), 0, 10, "CASH");
+        assertEquals(CustomerDAO.findById(meena.getId()).getPoints(), directory.suggest("Meena", 1).get(0).getPoints());
+    }
+
+    public void testPhoneKeys() {
+        assertEquals("9845012345", CustomerDirectory.normalizePhone("+91-98450 12345"));
+        assertEquals("9845012345", CustomerDirectory.normalizePhone("098450 12345"));
+        assertEquals("9845012345", CustomerDirectory.phonePrefix("+91 9845012345"));
+        assertNull(CustomerDirectory.phonePrefix("Priya"));
+
+        assertEquals("0123456789", CustomerDirectory.decode(CustomerDirectory.encode("0123456789")));
+        // Every number starting with 98 sorts between 98 and 99, shorter numbers first
+        assertTrue(CustomerDirectory.encode("98") < CustomerDirectory.encode("980"));
+        assertTrue(CustomerDirectory.encode("989999999999999") < CustomerDirectory.encode("99"));
+    }
+
+    private static List<String> names(List<CustomerDirectory.Match> matches) {
+        List<String> names = new ArrayList<>();
+        for (CustomerDirectory.Match m : matches) names.add(m.getName());
+        return names;
+    }
+}
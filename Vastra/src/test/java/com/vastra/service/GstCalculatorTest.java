@@ -0,0 +1,105 @@
+package com.vastra.service;
+
+import com.vastra.model.Cart;
+import com.vastra.model.CartItem;
+import com.vastra.model.Product;
+import junit.framework.TestCase;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GstCalculatorTest extends TestCase {
+
+    /** GST slab rates in use, in percent */
+    private static final int[] SLABS = {0, 3, 5, 12, 18, 28};
+
+    public void testIncludedTaxOnSlabRates() {
+        // 1050.00 at 5% inclusive is 1000.00 + 50.00 tax
+        assertEquals(5000, GstCalculator.includedTax(105000, 5));
+        assertEquals(12000, GstCalculator.includedTax(112000, 12));
+        assertEquals(0, GstCalculator.includedTax(99900, 0));
+        // 999.00 at 18%: 152.389... rounds to 152.39
+        assertEquals(15239, GstCalculator.includedTax(99900, 18));
+    }
+
+    public void testRoundingModes() {
+        // 25 / 10 = 2.5
+        assertEquals(3, GstCalculator.divide(25, 10, RoundingMode.HALF_UP));
+        assertEquals(2, GstCalculator.divide(25, 10, RoundingMode.HALF_DOWN));
+        assertEquals(2, GstCalculator.divide(25, 10, RoundingMode.HALF_EVEN));
+        assertEquals(4, GstCalculator.divide(35, 10, RoundingMode.HALF_EVEN));
+        assertEquals(2, GstCalculator.divide(29, 10, RoundingMode.DOWN));
+        assertEquals(3, GstCalculator.divide(21, 10, RoundingMode.UP));
+        // Negative amounts (returns) round symmetrically
+        assertEquals(-3, GstCalculator.divide(-25, 10, RoundingMode.HALF_UP));
+        assertEquals(-2, GstCalculator.divide(-25, 10, RoundingMode.HALF_DOWN));
+        assertEquals(-2, GstCalculator.divide(-29, 10, RoundingMode.DOWN));
+        assertEquals(-3, GstCalculator.divide(-29, 10, RoundingMode.FLOOR));
+        try {
+            GstCalculator.divide(25, 10, RoundingMode.UNNECESSARY);
+            fail("expected ArithmeticException");
+        } catch (ArithmeticException expected) {
+        }
+    }
+
+    public void testCgstAndSgstAddUpToTax() {
+        for (long tax = 0; tax < 1000; tax++) {
+            assertEquals(tax, GstCalculator.cgst(tax) + GstCalculator.sgst(tax));
+            assertTrue(GstCalculator.cgst(tax) - GstCalculator.sgst(tax) <= 1);
+        }
+    }
+
+    public void testCartTotalsMatchCartAndLines() {
+        List<CartItem> items = new ArrayList<>();
+        Cart cart = new Cart();
+        int[] rates = SLABS;
+        for (int i = 0; i < 300; i++) {
+            Product p = product("P" + i, 99900 + i * 37, rates[i % rates.length]);
+            items.add(cart.add(p, 1 + i % 4));
+        }
+
+        CartTotals totals = new CartTotals();
+        GstCalculator.compute(items, 5000, totals);
+        cart.setBillDiscountCents(5000);
+
+        long lineTax = 0;
+        for (CartItem item : items) {
+            lineTax += item.getTaxCents();
+        }
+        assertEquals(lineTax, totals.getTaxCents());
+        assertEquals(cart.getTaxCents(), totals.getTaxCents());
+        assertEquals(cart.getSubtotalCents(), totals.getSubtotalCents());
+        assertEquals(cart.getTotalCents(), totals.getTotalCents());
+        assertEquals(totals.getTaxCents(), totals.getCgstCents() + totals.getSgstCents());
+
+        long taxable = 0;
+        long tax = 0;
+        for (int i = 0; i < totals.getRateCount(); i++) {
+            taxable += totals.getTaxableCentsForRate(totals.getRate(i));
+            tax += totals.getTaxCentsForRate(totals.getRate(i));
+        }
+        assertEquals(totals.getTaxableCents(), taxable);
+        assertEquals(totals.getTaxCents(), tax);
+    }
+
+    public void testReusedTotalsAreReset() {
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem(product("A", 11200, 12), 1));
+        CartTotals totals = new CartTotals();
+        GstCalculator.compute(items, 0, totals);
+        GstCalculator.compute(items, 0, totals);
+        assertEquals(1, totals.getRateCount());
+        assertEquals(1200, totals.getTaxCents());
+        assertEquals(11200, totals.getTotalCents());
+    }
+
+    private static Product product(String id, int priceCents, int gst) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(id);
+        p.setSellPriceCents(priceCents);
+        p.setGstPercent(gst);
+        return p;
+    }
+}
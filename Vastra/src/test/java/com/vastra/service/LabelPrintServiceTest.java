@@ -0,0 +1,28 @@
+package com.vastra.service;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.dao.SettingsDAO;
+
+/**
+ * Printing one category's labels must not count as printing the others'.
+ */
+public class LabelPrintServiceTest extends DatabaseTestCase {
+
+    public void testLastPrintedIsPerCategory() throws Exception {
+        assertNull(LabelPrintService.lastPrintedAt("Men"));
+
+        SettingsDAO.set(LabelPrintService.lastPrintedKey("Men"), "2026-10-01 10:00:00");
+        assertEquals("2026-10-01 10:00:00", LabelPrintService.lastPrintedAt("Men"));
+        assertNull(LabelPrintService.lastPrintedAt("Women"));
+        assertNull(LabelPrintService.lastPrintedAt(null));
+
+        // A later print of every category covers each of them
+        SettingsDAO.set(LabelPrintService.lastPrintedKey(null), "2026-10-02 09:30:00");
+        assertEquals("2026-10-02 09:30:00", LabelPrintService.lastPrintedAt("Men"));
+        assertEquals("2026-10-02 09:30:00", LabelPrintService.lastPrintedAt("Women"));
+
+        SettingsDAO.set(LabelPrintService.lastPrintedKey("Men"), "2026-10-03 18:00:00");
+        assertEquals("2026-10-03 18:00:00", LabelPrintService.lastPrintedAt("Men"));
+        assertEquals("2026-10-02 09:30:00", LabelPrintService.lastPrintedAt(null));
+    }
+}
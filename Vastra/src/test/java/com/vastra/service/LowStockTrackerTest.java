@@ -0,0 +1,84 @@
+package com.vastra.service;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.dao.ProductDAO;
+import com.vastra.dao.SalesDAO;
+import com.vastra.model.CartItem;
+import com.vastra.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sales, stock adjustments and deactivation move products in and out of the tracker's
+ * list without a reload, and it always matches what the database query returns.
+ */
+public class LowStockTrackerTest extends DatabaseTestCase {
+
+    private LowStockTracker tracker;
+    private final List<List<Product>> events = new ArrayList<>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        LowStockTracker.shutdownInstance();
+        tracker = LowStockTracker.getInstance();
+        tracker.addListener(events::add);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        LowStockTracker.shutdownInstance();
+        super.tearDown();
+    }
+
+    public void testTracksStockChanges() throws Exception {
+        String kurta = ProductDAO.insertProduct("Kurta", "L", 150000, 120000, 12, 10, "Men", "", "KURTA-L");
+        String stole = ProductDAO.insertProduct("Stole", "", 40000, 35000, 5, 2, "Women", "", "STOLE-1");
+        tracker.load();
+        assertEquals(List.of(stole), ids(tracker.getLowStockProducts()));
+        events.clear();
+
+        // Selling 6 of 10 takes the kurta below its threshold of 5
+        sell(kurta, 6);
+        assertEquals(List.of(stole, kurta), ids(tracker.getLowStockProducts()));
+        assertEquals(4, tracker.getLowStockProducts().get(1).getStock());
+        assertEquals(1, events.size());
+        assertEquals(ProductDAO.getLowStockProducts().size(), tracker.getCount());
+
+        // Selling more of it only updates its stock (and moves it to the front)
+        sell(kurta, 3);
+        assertEquals(List.of(kurta, stole), ids(tracker.getLowStockProducts()));
+        assertEquals(1, tracker.getLowStockProducts().get(0).getStock());
+
+        // Restocked: leaves the list
+        ProductDAO.updateStock(kurta, 30);
+        assertEquals(List.of(stole), ids(tracker.getLowStockProducts()));
+
+        ProductDAO.deactivateProduct(stole);
+        assertTrue(tracker.getLowStockProducts().isEmpty());
+        assertEquals(List.of(), events.get(events.size() - 1));
+        assertEquals(ids(ProductDAO.getLowStockProducts()), ids(tracker.getLowStockProducts()));
+    }
+
+    public void testSaleAboveThresholdSendsNoEvent() throws Exception {
+        String shirt = ProductDAO.insertProduct("Shirt", "M", 90000, 80000, 12, 40, "Men", "", "SHIRT-M");
+        tracker.load();
+        events.clear();
+        sell(shirt, 2);
+        assertTrue(tracker.getLowStockProducts().isEmpty());
+        assertTrue(events.isEmpty());
+    }
+
+    private static void sell(String productId, int qty) throws Exception {
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem(ProductDAO.findById(productId), qty));
+        SalesDAO.completeSale(items, null, 0, "CASH");
+    }
+
+    private static List<String> ids(List<Product> products) {
+        List<String> ids = new ArrayList<>();
+        for (Product p : products) ids.add(p.getId());
+        return ids;
+    }
+}
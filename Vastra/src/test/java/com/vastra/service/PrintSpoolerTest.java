@@ -0,0 +1,110 @@
+package com.vastra.service;
+
+import com.vastra.model.CartItem;
+import com.vastra.model.Product;
+import com.vastra.util.DevicePrintSink;
+import com.vastra.util.PrintSink;
+import com.vastra.util.ReceiptRenderer;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+public class PrintSpoolerTest extends TestCase {
+
+    public void testReceiptWrittenToFileSink() throws Exception {
+        Product p = new Product();
+        p.setId("P1");
+        p.setName("Cotton Kurta");
+        p.setSellPriceCents(105000);
+        p.setGstPercent(5);
+        List<CartItem> items = Collections.singletonList(new CartItem(p, 2));
+        CartTotals totals = new CartTotals();
+        GstCalculator.compute(items, 0, totals);
+
+        Map<String, String> settings = new HashMap<>();
+        settings.put("store_name", "Test Store");
+        ReceiptRenderer renderer = new ReceiptRenderer(settings, 48);
+
+        Path file = Files.createTempFile("receipt", ".bin");
+        PrintSpooler spooler = new PrintSpooler(new DevicePrintSink(file), 0, 0, 4);
+        try {
+            spooler.submit("INV-1", () -> renderer.render("INV-1", LocalDateTime.now(), items,
+                    null, totals, "CASH"), null).join();
+        } finally {
+            spooler.shutdown();
+        }
+
+        byte[] data = Files.readAllBytes(file);
+        Files.delete(file);
+        assertEquals(0x1B, data[0]); // ESC @ resets the printer first
+        String text = ReceiptRenderer.toPlainText(data);
+        assertTrue(text.contains("TEST STORE"));
+        assertTrue(text.contains("Invoice: INV-1"));
+        // 2 x 1050.00, of which 100.00 is 5% GST split 2.5% + 2.5%
+        assertTrue(text, text.contains("2100.00"));
+        assertTrue(text, text.contains("CGST @2.5%:"));
+        assertTrue(text, text.contains("50.00"));
+        assertEquals(1, spooler.getPrinted());
+    }
+
+    public void testRetriesUntilSinkRecovers() {
+        FlakySink sink = new FlakySink(2);
+        List<PrintSpooler.Status> statuses = Collections.synchronizedList(new ArrayList<>());
+        PrintSpooler spooler = new PrintSpooler(sink, 3, 1, 4);
+        try {
+            spooler.submit("job", () -> new byte[]{1, 2, 3},
+                    (job, status, attempt, error) -> statuses.add(status)).join();
+        } finally {
+            spooler.shutdown();
+        }
+        assertEquals(3, sink.attempts);
+        assertEquals(2, spooler.getRetries());
+        assertEquals(PrintSpooler.Status.QUEUED, statuses.get(0));
+        assertTrue(statuses.contains(PrintSpooler.Status.RETRYING));
+        assertEquals(PrintSpooler.Status.PRINTED, statuses.get(statuses.size() - 1));
+    }
+
+    public void testFailsAfterLastRetry() {
+        FlakySink sink = new FlakySink(Integer.MAX_VALUE);
+        List<PrintSpooler.Status> statuses = Collections.synchronizedList(new ArrayList<>());
+        PrintSpooler spooler = new PrintSpooler(sink, 2, 1, 4);
+        try {
+            spooler.submit("job", () -> new byte[]{1},
+                    (job, status, attempt, error) -> statuses.add(status)).join();
+            fail("expected the job to fail");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        } finally {
+            spooler.shutdown();
+        }
+        assertEquals(3, sink.attempts);
+        assertEquals(1, spooler.getFailed());
+        assertEquals(PrintSpooler.Status.FAILED, statuses.get(statuses.size() - 1));
+    }
+
+    /** Fails the first n writes, like a printer that is out of paper for a moment */
+    private static class FlakySink implements PrintSink {
+        private final int failures;
+        volatile int attempts;
+
+        FlakySink(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void write(String jobName, byte[] data) throws IOException {
+            if (++attempts <= failures) {
+                throw new IOException("Printer offline");
+            }
+        }
+    }
+}
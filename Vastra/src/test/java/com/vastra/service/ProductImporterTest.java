@@ -0,0 +1,77 @@
+package com.vastra.service;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.dao.ProductDAO;
+import com.vastra.model.ProductImportRow;
+import com.vastra.util.SpreadsheetReader;
+
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImporterTest extends DatabaseTestCase {
+
+    public void testCsvQuotingAndBom() throws Exception {
+        List<String[]> rows = new ArrayList<>();
+        SpreadsheetReader.readCsv(new StringReader("﻿Name,Price\r\n\"Kurta, \"\"silk\"\"\",\"1,250\"\r\n\r\nSaree,\n"),
+                (rowNumber, cells) -> rows.add(cells));
+        assertEquals(3, rows.size());
+        assertEquals("Name", rows.get(0)[0]);
+        assertEquals("Kurta, \"silk\"", rows.get(1)[0]);
+        assertEquals("1,250", rows.get(1)[1]);
+        assertEquals("", rows.get(2)[1]);
+    }
+
+    public void testRowParsing() {
+        int[] columns = ProductImporter.mapHeadings(new String[]{"Item Name", "SKU", "MRP (Rs)", "Selling Price", "GST %", "Qty"});
+        ProductImportRow row = ProductImporter.parseRow(2, new String[]{"Kurta", "K-1", "₹1,299", "999.50", "12%", "4"}, columns);
+        assertNull(row.getError());
+        assertEquals("K-1", row.getSku());
+        assertEquals(Integer.valueOf(129900), row.getMrpCents());
+        assertEquals(Integer.valueOf(99950), row.getSellPriceCents());
+        assertEquals(Integer.valueOf(12), row.getGstPercent());
+        assertEquals(Integer.valueOf(4), row.getStock());
+        assertNull(row.getBarcode());
+
+        assertNotNull(ProductImporter.parseRow(3, new String[]{"Kurta", "K-2", "100", "150", "5", "1"}, columns).getError());
+        assertNotNull(ProductImporter.parseRow(4, new String[]{"Kurta", "K-3", "100", "90", "40", "1"}, columns).getError());
+        assertNotNull(ProductImporter.parseRow(5, new String[]{"Kurta", "K-4", "100", "abc", "5", "1"}, columns).getError());
+    }
+
+    public void testFileWithoutProductColumnsRejected() {
+        try {
+            ProductImporter.mapHeadings(new String[]{"Colour", "Price"});
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testImportIndexesForSearchWithoutDdl() throws Exception {
+        Path csv = Files.createTempFile("vastra-import", ".csv");
+        try {
+            try (BufferedWriter w = Files.newBufferedWriter(csv)) {
+                w.write("Name,SKU,MRP,Selling Price,GST %,Qty\n");
+                for (int i = 0; i < 25; i++) {
+                    w.write("Linen Shirt " + i + ",LIN-" + i + ",999,899,5,3\n");
+                }
+            }
+            int schemaVersion = queryInt("PRAGMA schema_version");
+
+            // Three chunks, each written with multi-row inserts
+            ProductImporter.Result result = new ProductImporter(10, 2, 10, null).importFile(csv);
+            assertEquals(25, result.getInserted());
+            assertEquals(schemaVersion, queryInt("PRAGMA schema_version"));
+            assertEquals(20, ProductDAO.search("linen", 20).size());
+            assertEquals(1, ProductDAO.search("shirt 24", 20).size());
+
+            // Products added one at a time are indexed too
+            ProductDAO.insertProduct("Linen Kurta", "", 150000, 120000, 5, 2, "Men", "", "KURTA-1");
+            assertEquals(1, ProductDAO.search("linen kurta", 20).size());
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.vastra.service;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.dao.ProductDAO;
+import com.vastra.model.CartItem;
+import com.vastra.model.Sale;
+import com.vastra.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Every submitted sale's future completes: with its id once committed, or with the
+ * error that kept it (or its whole batch) from being written.
+ */
+public class SaleWriterTest extends DatabaseTestCase {
+
+    private SaleWriter writer;
+    private String kurta;
+
+    @Override
+    protected void setUp() throws Exception {
+        System.setProperty("db.pool.acquireTimeoutMs", "500");
+        super.setUp();
+        kurta = ProductDAO.insertProduct("Kurta", "L", 150000, 120000, 12, 3, "Men", "", "KURTA-L");
+        // Linger long enough for the sales of one test to share a batch
+        writer = new SaleWriter(32, 100, 64, 1000);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        writer.shutdown();
+        super.tearDown();
+        System.clearProperty("db.pool.acquireTimeoutMs");
+    }
+
+    public void testOversoldSaleFailsAlone() throws Exception {
+        CompletableFuture<String> first = writer.submit(sale(1));
+        CompletableFuture<String> oversold = writer.submit(sale(5));
+        CompletableFuture<String> last = writer.submit(sale(1));
+
+        assertNotNull(first.join());
+        assertNotNull(last.join());
+        Throwable error = failure(oversold);
+        assertTrue(error.getMessage(), error.getMessage().contains("Insufficient stock"));
+        assertEquals(1, ProductDAO.findById(kurta).getStock());
+        assertEquals(2, writer.getSalesWritten());
+        assertEquals(1, writer.getSalesFailed());
+    }
+
+    public void testBatchThatCannotBeginFailsEverySale() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        // Holding the writer connection makes UnitOfWork.begin() time out
+        try (Connection held = DBUtil.getWriteConnection()) {
+            for (int i = 0; i < 3; i++) {
+                futures.add(writer.submit(sale(1)));
+            }
+            for (CompletableFuture<String> f : futures) {
+                assertTrue(failure(f) instanceof SQLException);
+            }
+        }
+        assertEquals(3, writer.getSalesFailed());
+        assertEquals(0, writer.getSalesWritten());
+        assertEquals(3, ProductDAO.findById(kurta).getStock());
+    }
+
+    public void testShutdownWritesQueuedSales() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        Thread stopper;
+        try (Connection held = DBUtil.getWriteConnection()) {
+            for (int i = 0; i < 3; i++) {
+                futures.add(writer.submit(sale(1)));
+            }
+            stopper = new Thread(writer::shutdown);
+            stopper.start();
+            // shutdown() must wait for the writer connection instead of abandoning the batch
+            Thread.sleep(100);
+        }
+        stopper.join();
+
+        for (CompletableFuture<String> f : futures) {
+            assertTrue(f.isDone());
+            assertNotNull(f.join());
+        }
+        assertEquals(0, ProductDAO.findById(kurta).getStock());
+        assertTrue(failure(writer.submit(sale(1))) instanceof RejectedExecutionException);
+    }
+
+    private Sale sale(int qty) throws Exception {
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem(ProductDAO.findById(kurta), qty));
+        return new Sale(items, null, 0, 0, "CASH");
+    }
+
+    private static Throwable failure(CompletableFuture<String> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+        fail("sale should have failed");
+        return null;
+    }
+}
@@ -0,0 +1,143 @@
+package com.vastra.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The stages behind BarcodeScanner, driven with explicit timestamps: keystroke capture,
+ * framing into scans, and merging repeats before they reach the cart.
+ */
+public class BarcodeScannerTest extends TestCase {
+
+    public void testRingBufferWrapsAround() {
+        KeystrokeRingBuffer buffer = new KeystrokeRingBuffer(3);
+        assertEquals(4, buffer.capacity());
+        StringBuilder out = new StringBuilder();
+        for (String chunk : new String[]{"abc", "def", "ghi"}) {
+            for (char c : chunk.toCharArray()) {
+                assertTrue(buffer.offer(c, 0));
+            }
+            assertEquals(3, buffer.drainTo((key, nanos) -> out.append(key)));
+            assertTrue(buffer.isEmpty());
+        }
+        assertEquals("abcdefghi", out.toString());
+    }
+
+    public void testRingBufferDropsWhenFull() {
+        KeystrokeRingBuffer buffer = new KeystrokeRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer((char) ('0' + i), ms(i)));
+        }
+        assertFalse(buffer.offer('x', ms(4)));
+        assertEquals(1, buffer.getDropped());
+
+        List<Long> times = new ArrayList<>();
+        StringBuilder out = new StringBuilder();
+        buffer.drainTo((key, nanos) -> {
+            out.append(key);
+            times.add(nanos);
+        });
+        assertEquals("0123", out.toString());
+        assertEquals(List.of(ms(0), ms(1), ms(2), ms(3)), times);
+        assertTrue(buffer.offer('y', ms(5)));
+    }
+
+    public void testDecoderFramesOnEnter() {
+        ScanDecoder decoder = new ScanDecoder(100, 3, false);
+        assertNull(type(decoder, "8901234", 0));
+        ScanEvent scan = decoder.onKey('\n', ms(70));
+        assertEquals("8901234", scan.getCode());
+        assertEquals(0, scan.getFirstKeyNanos());
+        assertEquals(ms(70), scan.getLastDecodedNanos());
+        assertFalse(decoder.hasOpenFrame());
+    }
+
+    public void testDecoderGapEndsFrame() {
+        // Without flushOnGap a frame that stops without Enter is manual typing
+        ScanDecoder decoder = new ScanDecoder(100, 3, false);
+        type(decoder, "KURTA", 0);
+        assertNull(decoder.onIdle(ms(200)));
+        assertFalse(decoder.hasOpenFrame());
+        type(decoder, "SAREE", ms(1000));
+        assertNull(decoder.onKey('S', ms(1200)));
+
+        ScanDecoder flushing = new ScanDecoder(100, 3, true);
+        type(flushing, "KURTA", 0);
+        assertNull(flushing.onIdle(ms(100)));
+        ScanEvent idle = flushing.onIdle(ms(200));
+        assertEquals("KURTA", idle.getCode());
+        assertEquals(ms(40), idle.getLastDecodedNanos());
+
+        type(flushing, "SAREE", ms(1000));
+        assertEquals("SAREE", flushing.onKey('D', ms(1200)).getCode());
+        // The key after the gap starts the next frame
+        assertNull(type(flushing, "UP", ms(1210)));
+        assertEquals("DUP", flushing.onKey('\n', ms(1230)).getCode());
+    }
+
+    public void testDecoderDropsShortFrames() {
+        ScanDecoder decoder = new ScanDecoder(100, 3, false);
+        type(decoder, "12", 0);
+        assertNull(decoder.onKey('\n', ms(20)));
+        type(decoder, "123", ms(100));
+        assertEquals("123", decoder.onKey('\n', ms(130)).getCode());
+    }
+
+    public void testCoalescerMergesAdjacentRepeatsInOrder() {
+        List<ScanEvent> delivered = new ArrayList<>();
+        ScanCoalescer coalescer = new ScanCoalescer(delivered::add, Runnable::run, 300);
+        assertEquals(-1, coalescer.flush(0));
+
+        coalescer.submit(new ScanEvent("TSHIRT", 0, ms(10)));
+        coalescer.submit(new ScanEvent("TSHIRT", ms(50), ms(60)));
+        coalescer.submit(new ScanEvent("SAREE", ms(100), ms(110)));
+        coalescer.submit(new ScanEvent("TSHIRT", ms(150), ms(160)));
+        coalescer.submit(new ScanEvent("TSHIRT", ms(200), ms(210)));
+
+        // Held until the window after the first scan has passed
+        assertEquals(ms(60), coalescer.flush(ms(250)));
+        assertTrue(delivered.isEmpty());
+        assertEquals(-1, coalescer.flush(ms(310)));
+        assertEquals("[TSHIRT x2, SAREE x1, TSHIRT x2]", delivered.toString());
+        assertEquals(ms(60), delivered.get(0).getLastDecodedNanos());
+        assertEquals(2, coalescer.getCoalesced());
+
+        // A scan after delivery starts a new window
+        coalescer.submit(new ScanEvent("TSHIRT", ms(400), ms(410)));
+        assertEquals(ms(300), coalescer.flush(ms(410)));
+        coalescer.flush(ms(710));
+        assertEquals(4, delivered.size());
+        assertEquals(1, delivered.get(3).getQuantity());
+    }
+
+    public void testCoalescerMergesScansWaitingForDelivery() {
+        List<Runnable> fxQueue = new ArrayList<>();
+        List<ScanEvent> delivered = new ArrayList<>();
+        ScanCoalescer coalescer = new ScanCoalescer(delivered::add, fxQueue::add, 0);
+
+        coalescer.submit(new ScanEvent("TSHIRT", 0, ms(10)));
+        assertEquals(-1, coalescer.flush(ms(10)));
+        assertEquals(1, fxQueue.size());
+        // The FX thread is busy; the next scan joins the one it has not taken yet
+        coalescer.submit(new ScanEvent("TSHIRT", ms(20), ms(30)));
+        assertEquals(-1, coalescer.flush(ms(30)));
+        assertEquals(1, fxQueue.size());
+
+        fxQueue.remove(0).run();
+        assertEquals("[TSHIRT x2]", delivered.toString());
+    }
+
+    private static ScanEvent type(ScanDecoder decoder, String keys, long startNanos) {
+        ScanEvent scan = null;
+        for (int i = 0; i < keys.length(); i++) {
+            scan = decoder.onKey(keys.charAt(i), startNanos + ms(10 * i));
+        }
+        return scan;
+    }
+
+    private static long ms(long millis) {
+        return millis * 1_000_000L;
+    }
+}
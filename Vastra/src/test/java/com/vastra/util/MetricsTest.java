@@ -0,0 +1,77 @@
+package com.vastra.util;
+
+import junit.framework.TestCase;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsTest extends TestCase {
+
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int ms = 1; ms <= 1000; ms++) {
+            h.record(ms * 1_000_000L);
+        }
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(1000, s.getCount());
+        assertEquals(1_000_000_000L, s.getMaxNanos());
+        assertEquals(500.0, s.getPercentileNanos(0.5) / 1e6, 500 * 0.04);
+        assertEquals(990.0, s.getPercentileNanos(0.99) / 1e6, 990 * 0.04);
+        assertEquals(1000.0, s.getPercentileNanos(1.0) / 1e6, 0.001);
+        assertEquals(500.5, s.getMeanNanos() / 1e6, 0.001);
+    }
+
+    public void testBucketsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+            long lowest = LatencyHistogram.highestMicros(i - 1) + 1;
+            assertEquals(i, LatencyHistogram.index(lowest));
+            assertEquals(i, LatencyHistogram.index(LatencyHistogram.highestMicros(i)));
+        }
+    }
+
+    public void testPrometheusText() {
+        Metrics.counter("vastra_test_events_total", "Test events", "kind", "a \"quoted\" one").add(3);
+        Metrics.histogram("vastra_test_seconds", "Test latency").record(2_000_000);
+
+        String text = Metrics.toPrometheusText();
+        assertTrue(text.contains("# TYPE vastra_test_events_total counter\n"));
+        assertTrue(text.contains("vastra_test_events_total{kind=\"a \\\"quoted\\\" one\"} 3\n"));
+        assertTrue(text.contains("# TYPE vastra_test_seconds summary\n"));
+        assertTrue(text.contains("vastra_test_seconds{quantile=\"0.99\"} "));
+        assertTrue(text.contains("vastra_test_seconds_count 1\n"));
+        assertTrue(text.contains("vastra_test_seconds_max 0.002\n"));
+    }
+
+    public void testSameNameAndLabelsIsSameMetric() {
+        Metrics.Counter a = Metrics.counter("vastra_test_same_total", "Test", "k", "v");
+        assertSame(a, Metrics.counter("vastra_test_same_total", "Test", "k", "v"));
+        try {
+            Metrics.histogram("vastra_test_same_total", "Test");
+            fail("a counter name cannot be reused for a histogram");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testEndpointServesMetricsOnLoopback() throws Exception {
+        Metrics.counter("vastra_test_scrapes_total", "Test").increment();
+        MetricsServer server = new MetricsServer(0);
+        try {
+            URL url = new URL("http://127.0.0.1:" + server.getPort() + "/metrics");
+            HttpURLConnection http = (HttpURLConnection) url.openConnection();
+            assertEquals(200, http.getResponseCode());
+            assertTrue(http.getContentType().startsWith("text/plain; version=0.0.4"));
+            try (InputStream in = http.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("vastra_test_scrapes_total 1\n"));
+            }
+
+            http = (HttpURLConnection) url.openConnection();
+            http.setRequestMethod("POST");
+            assertEquals(405, http.getResponseCode());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.vastra.util;
+
+import com.vastra.DatabaseTestCase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * A database at the current schema version must start without any DDL, and a failed
+ * migration must leave it at the version before.
+ */
+public class SchemaMigratorTest extends DatabaseTestCase {
+
+    @Override
+    protected boolean initDatabase() {
+        return false;
+    }
+
+    public void testCurrentDatabaseRunsNoDdl() throws Exception {
+        DBUtil.init();
+        assertEquals(DBUtil.getSchemaVersion(), queryInt("PRAGMA user_version"));
+        int schemaVersion = queryInt("PRAGMA schema_version");
+        try (Connection c = DBUtil.getWriteConnection();
+             Statement s = c.createStatement()) {
+            s.execute("DELETE FROM store_settings WHERE key = 'store_phone'");
+        }
+        DBUtil.shutdown();
+
+        DBUtil.init();
+        // schema_version is bumped by every CREATE, DROP and ALTER
+        assertEquals(schemaVersion, queryInt("PRAGMA schema_version"));
+        assertEquals("Default settings must not be seeded again", 0,
+                queryInt("SELECT count(*) FROM store_settings WHERE key = 'store_phone'"));
+        assertEquals(DBUtil.getSchemaVersion(), queryInt("SELECT count(*) FROM schema_migrations"));
+    }
+
+    public void testFailedMigrationKeepsPreviousVersion() throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator(List.of(
+                new SchemaMigrator.Migration(1, "First", "CREATE TABLE first(id INTEGER PRIMARY KEY)"),
+                new SchemaMigrator.Migration(2, "Broken",
+                        "CREATE TABLE second(id INTEGER PRIMARY KEY)",
+                        "INSERT INTO missing VALUES (1)")));
+        try (Connection c = DBUtil.getWriteConnection()) {
+            migrator.migrate(c);
+            fail("migration 2 should fail");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Schema migration 2 (Broken) failed"));
+        }
+        assertEquals(1, queryInt("PRAGMA user_version"));
+        assertEquals(0, queryInt("SELECT count(*) FROM sqlite_master WHERE name = 'second'"));
+        assertEquals(1, queryInt("SELECT count(*) FROM schema_migrations"));
+    }
+
+    public void testChecksumIgnoresIndentation() {
+        assertEquals(SchemaMigrator.checksum(List.of("CREATE TABLE t(\n  a INTEGER\n)")),
+                SchemaMigrator.checksum(List.of("    CREATE TABLE t(\n\t\ta INTEGER\n    )\n")));
+        assertFalse(SchemaMigrator.checksum(List.of("CREATE TABLE t(a INTEGER)"))
+                == SchemaMigrator.checksum(List.of("CREATE TABLE t(a TEXT)")));
+    }
+}
@@ -0,0 +1,58 @@
+package com.vastra.util;
+
+import com.vastra.DatabaseTestCase;
+import com.vastra.dao.ProductDAO;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * With db.slowQueryMs=0 every statement is logged, with its caller, parameter shapes
+ * and query plan, but never the parameter values.
+ */
+public class SlowQueryLogTest extends DatabaseTestCase {
+
+    private Path logDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        logDir = Files.createTempDirectory("vastra-slow");
+        System.setProperty("db.slowQueryMs", "0");
+        System.setProperty("db.slowQueryDir", logDir.toString());
+        super.setUp();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty("db.slowQueryMs");
+        System.clearProperty("db.slowQueryDir");
+        try (var files = Files.list(logDir)) {
+            files.forEach(f -> f.toFile().delete());
+        }
+        Files.delete(logDir);
+    }
+
+    public void testStatementsLoggedWithShapeAndPlan() throws Exception {
+        assertNull(ProductDAO.findByBarcode("SECRET-CODE-42"));
+        ProductDAO.getLowStockProducts();
+        DBUtil.shutdown(); // closes the log file
+
+        String log = Files.readString(logDir.resolve("slow-queries.0.log"), StandardCharsets.UTF_8);
+        int entry = log.indexOf("ProductDAO.findByBarcode");
+        assertTrue(log, entry >= 0);
+        String findEntry = log.substring(entry, log.indexOf("\n20", entry) > 0 ? log.indexOf("\n20", entry) : log.length());
+        assertTrue(findEntry, findEntry.contains("Params: ?1 TEXT(14)"));
+        assertTrue(findEntry, findEntry.contains("Plan:\n    SEARCH products USING INDEX"));
+        assertFalse("Parameter values must not be logged", log.contains("SECRET-CODE-42"));
+
+        assertTrue(log, log.contains("ProductDAO.getLowStockProducts"));
+    }
+
+    public void testNegativeThresholdTurnsLogOff() {
+        SlowQueryLog off = new SlowQueryLog(-1, logDir, 16, 1);
+        assertFalse(off.isEnabled());
+        assertFalse(off.isSlow(Long.MAX_VALUE));
+    }
+}